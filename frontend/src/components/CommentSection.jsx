@@ -1,6 +1,9 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
+import { Client } from '@stomp/stompjs';
+import SockJS from 'sockjs-client';
 import commentService from '../services/commentService';
+import API_BASE_URL from '../config';
 import './CommentSection.css';
 
 const CommentSection = ({ videoId }) => {
@@ -11,10 +14,12 @@ const CommentSection = ({ videoId }) => {
     const [error, setError] = useState('');
 
     const [currentPage, setCurrentPage] = useState(0);
+    // cursors[i] je kursor za stranicu i (prva stranica nema kursor)
+    const [cursors, setCursors] = useState([null]);
     const [totalPages, setTotalPages] = useState(0);
     const [totalComments, setTotalComments] = useState(0);
     const [hasNext, setHasNext] = useState(false);
-    const [hasPrevious, setHasPrevious] = useState(false);
+    const hasPrevious = currentPage > 0;
 
     const [commentText, setCommentText] = useState('');
     const [submitting, setSubmitting] = useState(false);
@@ -23,13 +28,102 @@ const CommentSection = ({ videoId }) => {
 
     const [remainingComments, setRemainingComments] = useState(null);
 
+    // Najveći id koji je klijent video - od njega se nastavlja posle prekida veze
+    const lastSeenIdRef = useRef(null);
+    // Id se dodeljuje pri insert-u, a ne pri commit-u, pa 101 može da stigne posle 102 - duplikati se
+    // prepoznaju po skupu viđenih id-jeva, a ne po najvećem
+    const seenIdsRef = useRef(new Set());
+    const currentPageRef = useRef(0);
+
     const PAGE_SIZE = 10;
     const MAX_COMMENT_LENGTH = 1000;
+    // Koliko id-jeva ispod poslednjeg viđenog dopuna ponovo čita, za komentare koji su kasnije commit-ovani
+    const CATCH_UP_MARGIN = 100;
 
     useEffect(() => {
         loadComments(currentPage);
     }, [videoId, currentPage]);
 
+    useEffect(() => {
+        setCursors([null]);
+        setCurrentPage(0);
+        lastSeenIdRef.current = null;
+        seenIdsRef.current = new Set();
+    }, [videoId]);
+
+    useEffect(() => {
+        currentPageRef.current = currentPage;
+    }, [currentPage]);
+
+    useEffect(() => {
+        const client = new Client({
+            webSocketFactory: () => new SockJS(`${API_BASE_URL}/ws`),
+            reconnectDelay: 5000,
+            onConnect: () => {
+                client.subscribe(`/topic/video/${videoId}/comments`, (msg) => {
+                    const frame = JSON.parse(msg.body);
+                    applyNewComments(frame.comments || []);
+                });
+                // Pretplata je aktivna, pa se propušteno dok veza nije postojala dopunjava bez rupe
+                catchUp();
+            },
+        });
+
+        client.activate();
+
+        return () => {
+            client.deactivate();
+        };
+    }, [videoId]);
+
+    const catchUp = async () => {
+        try {
+            if (lastSeenIdRef.current === null) {
+                return;
+            }
+            let afterId = Math.max(lastSeenIdRef.current - CATCH_UP_MARGIN, 0);
+            let hasMore = true;
+            while (hasMore) {
+                const data = await commentService.getCommentsSince(videoId, afterId);
+                const items = data.items || [];
+                applyNewComments(items);
+                hasMore = data.hasMore && items.length > 0;
+                if (items.length > 0) {
+                    afterId = items[items.length - 1].id;
+                }
+            }
+        } catch (err) {
+            console.error('Error loading missed comments:', err);
+        }
+    };
+
+    // Već viđeni (npr. posle ponovnog učitavanja strane ili iz margine dopune) se preskaču
+    const applyNewComments = (incoming) => {
+        if (lastSeenIdRef.current === null) {
+            return;
+        }
+        const seen = seenIdsRef.current;
+        const fresh = incoming.filter(comment => !seen.has(comment.id));
+        if (fresh.length === 0) {
+            return;
+        }
+        fresh.forEach(comment => {
+            seen.add(comment.id);
+            lastSeenIdRef.current = Math.max(lastSeenIdRef.current, comment.id);
+        });
+
+        setTotalComments(prev => {
+            const total = prev + fresh.length;
+            setTotalPages(Math.ceil(total / PAGE_SIZE));
+            return total;
+        });
+        // Nova se dodaju na prvu stranu bez skraćivanja, pa kursor sledeće strane ostaje ispravan;
+        // kasno commit-ovan komentar se smešta po id-ju, a ne na vrh
+        if (currentPageRef.current === 0) {
+            setComments(prev => [...fresh, ...prev].sort((a, b) => b.id - a.id));
+        }
+    };
+
     useEffect(() => {
         if (localStorage.getItem('token')) {
             loadRateLimitStatus();
@@ -40,14 +134,29 @@ const CommentSection = ({ videoId }) => {
         try {
             setLoading(true);
             setError('');
-            const data = await commentService.getComments(videoId, page, PAGE_SIZE);
-
-            setComments(data.comments || []);
-            setCurrentPage(data.currentPage || 0);
-            setTotalPages(data.totalPages || 0);
-            setTotalComments(data.totalComments || 0);
-            setHasNext(data.hasNext || false);
-            setHasPrevious(data.hasPrevious || false);
+            const cursor = page > 0 ? cursors[page] : null;
+            const data = await commentService.getComments(videoId, cursor, PAGE_SIZE, true);
+
+            const total = data.total || 0;
+            const items = data.items || [];
+            items.forEach(item => seenIdsRef.current.add(item.id));
+            if (items.length > 0) {
+                const maxId = Math.max(...items.map(item => item.id));
+                lastSeenIdRef.current = Math.max(lastSeenIdRef.current ?? 0, maxId);
+            } else if (page === 0 && lastSeenIdRef.current === null) {
+                lastSeenIdRef.current = 0;
+            }
+            setComments(items);
+            setTotalComments(total);
+            setTotalPages(Math.ceil(total / PAGE_SIZE));
+            setHasNext(data.hasMore || false);
+            if (data.nextCursor) {
+                setCursors(prev => {
+                    const next = prev.slice(0, page + 1);
+                    next[page + 1] = data.nextCursor;
+                    return next;
+                });
+            }
         } catch (err) {
             console.error('Error loading comments:', err);
             setError('Greška pri učitavanju komentara');
@@ -94,7 +203,12 @@ const CommentSection = ({ videoId }) => {
             setCommentText('');
             setSubmitSuccess('Komentar je uspešno dodat!');
 
-            await loadComments(0);
+            setCursors([null]);
+            if (currentPage === 0) {
+                await loadComments(0);
+            } else {
+                setCurrentPage(0);
+            }
             await loadRateLimitStatus();
 
             setTimeout(() => setSubmitSuccess(''), 3000);
@@ -6,6 +6,7 @@ import './VideoList.css';
 const VideoList = () => {
     const navigate = useNavigate();
     const [videos, setVideos] = useState([]);
+    const [likeStatuses, setLikeStatuses] = useState({});
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState('');
 
@@ -18,6 +19,7 @@ const VideoList = () => {
             const data = await videoService.getAllVideos();
             console.log('Loaded videos:', data);
             setVideos(data);
+            loadLikeStatuses(data);
         } catch (err) {
             setError('Greška pri učitavanju videa');
             console.error('Error loading videos:', err);
@@ -26,6 +28,15 @@ const VideoList = () => {
         }
     };
 
+    const loadLikeStatuses = async (list) => {
+        try {
+            const statuses = await videoService.getLikeStatuses(list.slice(0, 100).map(video => video.id));
+            setLikeStatuses(statuses);
+        } catch (err) {
+            console.error('Error loading like statuses:', err);
+        }
+    };
+
     const handleVideoClick = (videoId) => {
         navigate(`/video/${videoId}`);
     };
@@ -93,7 +104,12 @@ const VideoList = () => {
                                         <p className="live-indicator">UŽIVO</p>
                                     )}
                                     <p className="video-author">@{video.username}</p>
-                                    <p className="video-views">👁 {video.viewCount} pregleda</p>
+                                    <p className="video-views">
+                                        👁 {video.viewCount} pregleda
+                                        {likeStatuses[video.id] && (
+                                            <span> · {likeStatuses[video.id].liked ? '❤️' : '🤍'} {likeStatuses[video.id].likeCount}</span>
+                                        )}
+                                    </p>
 
                                     {video.tags && video.tags.length > 0 && (
                                         <div className="video-tags">
@@ -35,25 +35,70 @@ const VideoMap = () => {
 
     const mapRef = useRef(null);
 
+    // Tile-ovi koje već imamo, po zoom/x/y/periodu - server za njih vraća samo ETag
+    const tileStoreRef = useRef(new Map());
+
     const fetchTilesForView = useCallback(async (bounds, zoom) => {
         setLoading(true);
         try {
             const tiles = calculateVisibleTiles(bounds, zoom);
-            const allVideos = [];
+            const store = tileStoreRef.current;
+            const storeKey = (x, y) => `${zoom}/${x}/${y}/${timePeriod}`;
+
+            const etags = {};
+            tiles.forEach(tile => {
+                const cached = store.get(storeKey(tile.x, tile.y));
+                if (cached) {
+                    etags[`${tile.x},${tile.y}`] = cached.etag;
+                }
+            });
 
-            const tilePromises = tiles.map(tile =>
-                fetch(`${API_BASE_URL}/api/map/tiles?zoom=${tile.zoom}&tileX=${tile.x}&tileY=${tile.y}&period=${timePeriod}`)
-                    .then(res => res.json())
-                    .catch(err => {
-                        console.error(`Greška pri učitavanju tile-a ${tile.x},${tile.y}:`, err);
-                        return [];
-                    })
-            );
+            const response = await fetch(`${API_BASE_URL}/api/map/viewport`, {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({
+                    zoom,
+                    period: timePeriod,
+                    tiles: tiles.map(tile => ({ x: tile.x, y: tile.y })),
+                    etags,
+                }),
+            });
+            if (!response.ok) {
+                throw new Error(`HTTP ${response.status}`);
+            }
 
-            const results = await Promise.all(tilePromises);
-            results.forEach(tileVideos => allVideos.push(...tileVideos));
+            const visible = new Map();
+            const showVisible = () => setVideos([...visible.values()].flat());
 
-            setVideos(allVideos);
+            // NDJSON: svaki red je jedan tile, prikazuje se čim stigne
+            const reader = response.body.getReader();
+            const decoder = new TextDecoder();
+            let buffer = '';
+            const handleLine = (line) => {
+                if (!line.trim()) return;
+                const tile = JSON.parse(line);
+                const key = storeKey(tile.x, tile.y);
+                if (tile.error) {
+                    console.error(`Greška pri učitavanju tile-a ${tile.x},${tile.y}:`, tile.error);
+                    return;
+                }
+                if (!tile.notModified) {
+                    store.set(key, { etag: tile.etag, videos: tile.videos });
+                }
+                visible.set(key, store.get(key)?.videos || []);
+            };
+
+            for (;;) {
+                const { done, value } = await reader.read();
+                if (done) break;
+                buffer += decoder.decode(value, { stream: true });
+                const lines = buffer.split('\n');
+                buffer = lines.pop();
+                lines.forEach(handleLine);
+                showVisible();
+            }
+            handleLine(buffer);
+            showVisible();
         } catch (error) {
             console.error('Greška pri učitavanju video snimaka:', error);
         } finally {
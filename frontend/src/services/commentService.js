@@ -10,8 +10,22 @@ const getAuthHeader = () => {
 };
 
 const commentService = {
-    getComments: async (videoId, page = 0, size = 10) => {
-        const response = await axios.get(`${API_URL}/${videoId}/comments?page=${page}&size=${size}`, {
+    getComments: async (videoId, cursor = null, size = 10, includeTotal = false) => {
+        const params = { size, includeTotal };
+        if (cursor) {
+            params.cursor = cursor;
+        }
+        const response = await axios.get(`${API_URL}/${videoId}/comments`, {
+            params,
+            headers: getAuthHeader()
+        });
+        return response.data;
+    },
+
+    // Komentari posle poslednjeg viđenog id-ja, najstariji prvi (dopuna live stream-a)
+    getCommentsSince: async (videoId, afterId, size = 50) => {
+        const response = await axios.get(`${API_URL}/${videoId}/comments/since`, {
+            params: { afterId, size },
             headers: getAuthHeader()
         });
         return response.data;
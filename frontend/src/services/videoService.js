@@ -41,6 +41,18 @@ const videoService = {
         });
     },
 
+    // Stanje lajkova za više videa jednim zahtevom: { [videoId]: { liked, likeCount } }
+    getLikeStatuses: async (ids) => {
+        if (ids.length === 0) {
+            return {};
+        }
+        const response = await axios.get(`${API_URL}/likes/status`, {
+            params: { ids: ids.join(',') },
+            headers: getAuthHeader()
+        });
+        return response.data;
+    },
+
     getThumbnailUrl: (id) => {
         return `${API_URL}/${id}/thumbnail`;
     }
@@ -0,0 +1,50 @@
+package com.example.jutjubic.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Cluster mode rate limiter-a komentara: svaka replika ima svoj privremeni queue vezan na fanout
+// exchange, pa prihvaćen komentar na jednoj replici stiže u klizni prozor druge
+@Configuration
+@ConditionalOnProperty(name = "comments.rate-limit.cluster.enabled", havingValue = "true")
+public class CommentRateLimitClusterConfig {
+
+    public static final String EXCHANGE = "comment.rate-limit.fanout";
+
+    @Bean
+    public FanoutExchange commentRateLimitExchange() {
+        return new FanoutExchange(EXCHANGE, false, false);
+    }
+
+    @Bean
+    public Queue commentRateLimitQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding commentRateLimitBinding(Queue commentRateLimitQueue, FanoutExchange commentRateLimitExchange) {
+        return BindingBuilder.bind(commentRateLimitQueue).to(commentRateLimitExchange);
+    }
+
+    // Izgubljena poruka samo privremeno oslabi limit, pa je dovoljan AUTO ack i veći prefetch
+    @Bean
+    public SimpleRabbitListenerContainerFactory commentRateLimitListenerContainerFactory(
+            ConnectionFactory connectionFactory, MessageConverter jsonMessageConverter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setPrefetchCount(250);
+        return factory;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.jutjubic.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// STOMP broker je u memoriji svake replike, pa se novi komentari prosleđuju preko fanout exchange-a
+// da stignu i do pretplatnika povezanih na drugu repliku
+@Configuration
+@ConditionalOnProperty(name = "comments.stream.cluster.enabled", havingValue = "true")
+public class CommentStreamClusterConfig {
+
+    public static final String EXCHANGE = "comment.stream.fanout";
+
+    @Bean
+    public FanoutExchange commentStreamExchange() {
+        return new FanoutExchange(EXCHANGE, false, false);
+    }
+
+    @Bean
+    public Queue commentStreamQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding commentStreamBinding(Queue commentStreamQueue, FanoutExchange commentStreamExchange) {
+        return BindingBuilder.bind(commentStreamQueue).to(commentStreamExchange);
+    }
+
+    // Propušten komentar klijent dopuni preko /comments/since, pa je dovoljan AUTO ack
+    @Bean
+    public SimpleRabbitListenerContainerFactory commentStreamListenerContainerFactory(
+            ConnectionFactory connectionFactory, MessageConverter jsonMessageConverter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setPrefetchCount(250);
+        return factory;
+    }
+}
@@ -15,6 +15,8 @@ import org.springframework.context.annotation.Configuration;
 public class RabbitMQConfig {
 
     public static final String VIDEO_TRANSCODING_QUEUE = "video.transcoding.queue";
+    public static final String VIDEO_TRANSCODING_PRIORITY_QUEUE = "video.transcoding.priority.queue";
+    public static final int TRANSCODING_MAX_PRIORITY = 10;
     public static final String VIDEO_TRANSCODING_DLQ = "video.transcoding.dlq";
     public static final String VIDEO_UPLOAD_JSON_QUEUE = "video.upload.json.queue";
     public static final String VIDEO_UPLOAD_PROTOBUF_QUEUE = "video.upload.protobuf.queue";
@@ -27,6 +29,17 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    // Argumenti postojećeg durable queue-a ne mogu da se menjaju, pa prioriteti idu u novi queue;
+    // stari se i dalje sluša dok se ne isprazni
+    @Bean
+    public Queue videoTranscodingPriorityQueue() {
+        return QueueBuilder.durable(VIDEO_TRANSCODING_PRIORITY_QUEUE)
+                .withArgument("x-max-priority", TRANSCODING_MAX_PRIORITY)
+                .withArgument("x-dead-letter-exchange", "")
+                .withArgument("x-dead-letter-routing-key", VIDEO_TRANSCODING_DLQ)
+                .build();
+    }
+
     @Bean
     public Queue deadLetterQueue() {
         return QueueBuilder.durable(VIDEO_TRANSCODING_DLQ).build();
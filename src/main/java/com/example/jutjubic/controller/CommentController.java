@@ -35,16 +35,33 @@ public class CommentController {
 
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getComments(
+    public ResponseEntity<?> getComments(
             @PathVariable Long videoId,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
 
         Video video = videoRepository.findById(videoId)
                 .orElseThrow(() -> new RuntimeException("Video nije pronađen"));
 
-        Map<String, Object> response = commentService.getCommentsPaginated(video, page, size);
-        return ResponseEntity.ok(response);
+        try {
+            return ResponseEntity.ok(commentService.getCommentsPage(video, cursor, size, includeTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Dopuna live stream-a: komentari posle afterId, najstariji prvi
+    @GetMapping("/since")
+    public ResponseEntity<?> getCommentsSince(
+            @PathVariable Long videoId,
+            @RequestParam long afterId,
+            @RequestParam(defaultValue = "50") int size) {
+
+        if (!videoRepository.existsById(videoId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(commentService.getCommentsSince(videoId, afterId, size));
     }
 
     @PostMapping
@@ -1,36 +1,33 @@
 package com.example.jutjubic.controller;
 
-import com.example.jutjubic.model.Like;
 import com.example.jutjubic.model.User;
-import com.example.jutjubic.model.Video;
-import com.example.jutjubic.repository.LikeRepository;
 import com.example.jutjubic.repository.UserRepository;
-import com.example.jutjubic.repository.VideoRepository;
+import com.example.jutjubic.service.LikeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
-@RequestMapping("/api/videos/{videoId}/likes")
+@RequestMapping("/api/videos")
 @CrossOrigin(origins = "http://localhost:3000")
 public class LikeController {
 
     @Autowired
-    private LikeRepository likeRepository;
-
-    @Autowired
-    private VideoRepository videoRepository;
+    private LikeService likeService;
 
     @Autowired
     private UserRepository userRepository;
 
-    @PostMapping
-    @Transactional
+    @Value("${likes.status.max-ids:100}")
+    private int maxStatusIds;
+
+    @PostMapping("/{videoId}/likes")
     public ResponseEntity<Map<String, Object>> toggleLike(
             @PathVariable Long videoId,
             Authentication authentication) {
@@ -42,54 +39,63 @@ public class LikeController {
         User user = userRepository.findByEmail(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new RuntimeException("Video not found"));
-
-        boolean liked;
-        var existingLike = likeRepository.findByVideoAndUser(video, user);
-
-        if (existingLike.isPresent()) {
-            likeRepository.delete(existingLike.get());
-            liked = false;
-        } else {
-            Like newLike = new Like(video, user);
-            likeRepository.save(newLike);
-            liked = true;
+        LikeService.LikeStatus status;
+        try {
+            status = likeService.toggleLike(videoId, user.getId());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
         }
 
-        long likeCount = likeRepository.countByVideo(video);
-
         Map<String, Object> response = new HashMap<>();
-        response.put("liked", liked);
-        response.put("likeCount", likeCount);
+        response.put("liked", status.liked());
+        response.put("likeCount", status.likeCount());
 
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping("/status")
+    @GetMapping("/{videoId}/likes/status")
     public ResponseEntity<Map<String, Object>> getLikeStatus(
             @PathVariable Long videoId,
             Authentication authentication) {
 
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new RuntimeException("Video not found"));
-
-        boolean liked = false;
-        long likeCount = likeRepository.countByVideo(video);
-
+        Long userId = null;
         if (authentication != null && authentication.getName() != null) {
-            User user = userRepository.findByEmail(authentication.getName())
+            userId = userRepository.findByEmail(authentication.getName())
+                    .map(User::getId)
                     .orElse(null);
+        }
 
-            if (user != null) {
-                liked = likeRepository.existsByVideoAndUser(video, user);
-            }
+        LikeService.LikeStatus status;
+        try {
+            status = likeService.getLikeStatus(videoId, userId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
         }
 
         Map<String, Object> response = new HashMap<>();
-        response.put("liked", liked);
-        response.put("likeCount", likeCount);
+        response.put("liked", status.liked());
+        response.put("likeCount", status.likeCount());
 
         return ResponseEntity.ok(response);
     }
+
+    // Stanje lajkova za ceo feed jednim zahtevom: ?ids=1,2,3
+    @GetMapping("/likes/status")
+    public ResponseEntity<?> getLikeStatuses(
+            @RequestParam List<Long> ids,
+            Authentication authentication) {
+
+        if (ids.size() > maxStatusIds) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Najviše " + maxStatusIds + " videa po zahtevu"));
+        }
+
+        Long userId = null;
+        if (authentication != null && authentication.getName() != null) {
+            userId = userRepository.findByEmail(authentication.getName())
+                    .map(User::getId)
+                    .orElse(null);
+        }
+
+        return ResponseEntity.ok(likeService.getLikeStatuses(ids, userId));
+    }
 }
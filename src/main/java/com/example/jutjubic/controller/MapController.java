@@ -1,14 +1,24 @@
 package com.example.jutjubic.controller;
 
+import com.example.jutjubic.dto.MapTileContent;
+import com.example.jutjubic.dto.MapViewportRequest;
 import com.example.jutjubic.dto.VideoMap;
 import com.example.jutjubic.enums.TimePeriod;
 import com.example.jutjubic.service.MapTileService;
+import com.example.jutjubic.util.VectorTileCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -20,27 +30,48 @@ public class MapController {
     @Autowired
     private MapTileService mapTileService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Accept: application/x-protobuf vraća kompaktan vektorski tile umesto JSON-a; njegovi bajtovi
+    // su kodirani jednom po verziji tile-a i šalju se bez ponovne serijalizacije. Isti URL ima dve
+    // reprezentacije sa različitim ETag-ovima, pa svaki odgovor nosi Vary: Accept za deljene cache-eve.
     @GetMapping("/tiles")
-    public ResponseEntity<List<VideoMap>> getTileVideos(
+    public ResponseEntity<?> getTileVideos(
             @RequestParam int zoom,
             @RequestParam int tileX,
             @RequestParam int tileY,
-            @RequestParam(defaultValue = "ALL_TIME") String period) {
+            @RequestParam(defaultValue = "ALL_TIME") String period,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
 
         try {
             TimePeriod timePeriod = TimePeriod.valueOf(period.toUpperCase());
             logger.info("GET /api/map/tiles - zoom: {}, x: {}, y: {}, period: {}",
                     zoom, tileX, tileY, timePeriod);
 
-            List<VideoMap> videos = mapTileService.getVideosForTile(
-                    zoom, tileX, tileY, timePeriod
-            );
+            MapTileContent tile = mapTileService.getTile(zoom, tileX, tileY);
+            boolean vector = accept != null && accept.contains(VectorTileCodec.MEDIA_TYPE);
+            String eTag = vector ? tile.getVectorETag(timePeriod) : tile.getETag(timePeriod);
+            if (eTag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+            }
+
+            if (vector) {
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(VectorTileCodec.MEDIA_TYPE))
+                        .eTag(eTag)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(tile.getVectorTile(timePeriod, mapTileService.calculateTileBounds(zoom, tileX, tileY)));
+            }
+
+            List<VideoMap> videos = tile.getVideos(timePeriod);
 
             logger.info("Vraćeno {} video snimaka", videos.size());
-            return ResponseEntity.ok(videos);
+            return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(videos);
 
         } catch (IllegalArgumentException e) {
-            logger.error("Nevažeći vremenski period: {}", period);
+            logger.error("Nevažeći zahtev za tile: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Greška pri dobavljanju tile-a: ", e);
@@ -48,6 +79,52 @@ public class MapController {
         }
     }
 
+    // Svi tile-ovi viewport-a u jednom odgovoru: NDJSON, jedan red po tile-u, redom kojim su spremni
+    @PostMapping(value = "/viewport", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> getViewport(@RequestBody MapViewportRequest request) {
+        TimePeriod timePeriod;
+        List<MapViewportRequest.TileRef> tiles;
+        try {
+            timePeriod = TimePeriod.valueOf(request.getPeriod().toUpperCase());
+            if (request.getTiles() != null && !request.getTiles().isEmpty()) {
+                tiles = request.getTiles();
+            } else if (request.hasBounds()) {
+                tiles = mapTileService.tilesInBounds(request.getZoom(), request.getMinLat(), request.getMinLon(),
+                        request.getMaxLat(), request.getMaxLon());
+            } else {
+                return ResponseEntity.badRequest().build();
+            }
+            mapTileService.validateViewport(request.getZoom(), tiles);
+        } catch (IllegalArgumentException e) {
+            logger.error("Nevažeći viewport zahtev: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        logger.info("POST /api/map/viewport - zoom: {}, tile-ova: {}, period: {}",
+                request.getZoom(), tiles.size(), timePeriod);
+
+        StreamingResponseBody body = out -> {
+            try {
+                mapTileService.streamViewport(request.getZoom(), tiles, timePeriod, request.getEtags(), tile -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(tile));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @PostMapping("/cache/regenerate")
     public ResponseEntity<String> regenerateCache() {
         logger.info("POST /api/map/cache/regenerate");
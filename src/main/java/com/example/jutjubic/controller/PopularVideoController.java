@@ -2,6 +2,7 @@ package com.example.jutjubic.controller;
 
 import com.example.jutjubic.dto.PopularVideoResponse;
 import com.example.jutjubic.service.ETLService;
+import com.example.jutjubic.service.TrendingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,10 +16,17 @@ public class PopularVideoController {
     @Autowired
     private ETLService etlService;
 
+    @Autowired
+    private TrendingService trendingService;
+
     @GetMapping
-    public ResponseEntity<List<PopularVideoResponse>> getPopularVideos() {
-        List<PopularVideoResponse> popularVideos = etlService.getLatestPopularVideos();
-        return ResponseEntity.ok(popularVideos);
+    public ResponseEntity<List<PopularVideoResponse>> getPopularVideos(
+            @RequestParam(defaultValue = "3") int limit) {
+        // Dok se trending ne obnovi iz baze pri startu, vraća se poslednji sačuvani snapshot
+        if (!trendingService.isReady()) {
+            return ResponseEntity.ok(etlService.getLatestPopularVideos());
+        }
+        return ResponseEntity.ok(trendingService.getTopVideos(Math.max(1, limit)));
     }
 
 
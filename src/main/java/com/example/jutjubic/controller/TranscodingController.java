@@ -1,10 +1,20 @@
 package com.example.jutjubic.controller;
 
+import com.example.jutjubic.config.RabbitMQConfig;
+import com.example.jutjubic.dto.TranscodingProgress;
+import com.example.jutjubic.model.User;
+import com.example.jutjubic.repository.UserRepository;
 import com.example.jutjubic.service.FFmpegService;
+import com.example.jutjubic.service.TranscodingJobService;
+import com.example.jutjubic.service.TranscodingProgressService;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -19,9 +29,47 @@ public class TranscodingController {
     @Autowired
     private FFmpegService ffmpegService;
 
+    @Autowired
+    private TranscodingProgressService progressService;
+
+    @Autowired
+    private TranscodingJobService jobService;
+
+    @Autowired
+    private UserRepository userRepository;
+
     @Autowired(required = false)
     private RabbitAdmin rabbitAdmin;
 
+    // Poslednje stanje; isti objekat se push-uje na /topic/transcoding/{videoId}
+    @GetMapping("/progress/{videoId}")
+    public ResponseEntity<?> getProgress(@PathVariable Long videoId) {
+        TranscodingProgress progress = progressService.getProgress(videoId);
+        if (progress == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    @PostMapping("/{videoId}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable Long videoId, Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || "anonymousUser".equals(authentication.getPrincipal())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Authentication required"));
+        }
+
+        try {
+            User user = userRepository.findByEmail(authentication.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            jobService.cancel(videoId, user);
+            return ResponseEntity.ok(Map.of("videoId", videoId, "status", "CANCELLED"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> getHealth() {
         Map<String, Object> health = new HashMap<>();
@@ -35,14 +83,14 @@ public class TranscodingController {
         boolean rabbitmqConnected = false;
         try {
             if (rabbitAdmin != null) {
-                Properties queueProperties = rabbitAdmin.getQueueProperties("video.transcoding.queue");
+                Properties queueProperties = rabbitAdmin.getQueueProperties(RabbitMQConfig.VIDEO_TRANSCODING_PRIORITY_QUEUE);
                 rabbitmqConnected = queueProperties != null;
 
                 if (rabbitmqConnected) {
                     health.put("rabbitmq", Map.of(
                             "connected", true,
                             "status", "OK",
-                            "queue", "video.transcoding.queue"
+                            "queue", RabbitMQConfig.VIDEO_TRANSCODING_PRIORITY_QUEUE
                     ));
                 }
             }
@@ -72,13 +120,22 @@ public class TranscodingController {
         Map<String, Object> info = new HashMap<>();
 
         info.put("description", "Video Transcoding System with RabbitMQ");
-        info.put("consumers", "Minimum 2 concurrent workers");
-        info.put("queue", "video.transcoding.queue");
+        info.put("consumers", "Dynamic, sized from CPU cores and load average");
+        info.put("queue", RabbitMQConfig.VIDEO_TRANSCODING_PRIORITY_QUEUE);
+        info.put("scheduling", "Priority by estimated cost (duration x renditions), per-job wall-clock timeout");
+        info.put("running_jobs", jobService.getRunningCount());
         info.put("acknowledgment", "MANUAL (exactly-once delivery)");
         info.put("ffmpeg_presets", Map.of(
                 "720p", "1280x720, 2000k bitrate, libx264, aac",
                 "1080p", "1920x1080, 4000k bitrate, libx264, aac"
         ));
+        info.put("hls_ladder", Map.of(
+                "240p", "426x240, 400k bitrate",
+                "480p", "854x480, 1000k bitrate",
+                "720p", "1280x720, 2000k bitrate",
+                "1080p", "1920x1080, 4000k bitrate"
+        ));
+        info.put("progress_topic", TranscodingProgressService.TOPIC_PREFIX + "{videoId}");
         info.put("rabbitmq_ui", "http://localhost:15672");
         info.put("setup_guide", "See TRANSCODING_SETUP.md");
 
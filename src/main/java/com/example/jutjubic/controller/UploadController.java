@@ -0,0 +1,111 @@
+package com.example.jutjubic.controller;
+
+import com.example.jutjubic.dto.UploadSession;
+import com.example.jutjubic.dto.UploadSessionRequest;
+import com.example.jutjubic.model.User;
+import com.example.jutjubic.model.Video;
+import com.example.jutjubic.repository.UserRepository;
+import com.example.jutjubic.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PostMapping
+    public ResponseEntity<?> createSession(@RequestBody UploadSessionRequest request, Authentication authentication) {
+        try {
+            User user = currentUser(authentication);
+            return ResponseEntity.ok(chunkedUploadService.createSession(user, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("Greška pri kreiranju upload sesije: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error(e.getMessage()));
+        }
+    }
+
+    @PutMapping(value = "/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @PathVariable int index,
+                                         @RequestParam long offset,
+                                         HttpServletRequest request,
+                                         Authentication authentication) {
+        try {
+            User user = currentUser(authentication);
+            UploadSession session = chunkedUploadService.writeChunk(
+                    uploadId, user, index, offset, request.getInputStream(), request.getContentLengthLong());
+            return ResponseEntity.ok(session);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("Greška pri upisu chunk-a " + index + " za sesiju " + uploadId + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getSession(@PathVariable String uploadId, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.getSession(uploadId, currentUser(authentication)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error(e.getMessage()));
+        }
+    }
+
+    @PostMapping(value = "/{uploadId}/complete", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> complete(@PathVariable String uploadId,
+                                      @RequestParam("thumbnail") MultipartFile thumbnail,
+                                      Authentication authentication) {
+        try {
+            Video video = chunkedUploadService.complete(uploadId, currentUser(authentication), thumbnail);
+            return ResponseEntity.ok(video);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("Greška pri završetku upload sesije " + uploadId + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error("Upload failed: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> cancel(@PathVariable String uploadId, Authentication authentication) {
+        try {
+            chunkedUploadService.cancel(uploadId, currentUser(authentication));
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error(e.getMessage()));
+        }
+    }
+
+    private User currentUser(Authentication authentication) {
+        return userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    private Map<String, String> error(String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return error;
+    }
+}
@@ -40,4 +40,17 @@ public class UserController {
         List<VideoResponse> videos = videoService.getVideosByUserId(id);
         return ResponseEntity.ok(videos);
     }
+
+    @GetMapping("/{id}/videos/feed")
+    public ResponseEntity<?> getUserVideosFeed(@PathVariable Long id,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(videoService.getUserFeed(id, cursor, size));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
 }
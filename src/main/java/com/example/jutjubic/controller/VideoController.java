@@ -5,10 +5,15 @@ import com.example.jutjubic.listener.WebSocketEventListener;
 import com.example.jutjubic.model.User;
 import com.example.jutjubic.model.Video;
 import com.example.jutjubic.repository.UserRepository;
+import com.example.jutjubic.service.ThumbnailService;
 import com.example.jutjubic.service.VideoService;
+import com.example.jutjubic.service.VideoStreamingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -18,6 +23,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
@@ -26,14 +33,27 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/videos")
 public class VideoController {
 
+    private static final MediaType HLS_PLAYLIST_TYPE = MediaType.parseMediaType("application/vnd.apple.mpegurl");
+    private static final MediaType HLS_SEGMENT_TYPE = MediaType.parseMediaType("video/mp2t");
+    private static final Pattern HLS_RENDITION_NAME = Pattern.compile("^[0-9]{3,4}p$");
+    private static final Pattern HLS_FILE_NAME = Pattern.compile("^[A-Za-z0-9_]+\\.(m3u8|ts)$");
+
     @Autowired
     private VideoService videoService;
 
+    @Autowired
+    private VideoStreamingService videoStreamingService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
     @Autowired
     private WebSocketEventListener webSocketEventListener;
 
@@ -95,6 +115,16 @@ public class VideoController {
         return ResponseEntity.ok(videoService.getAllVideos());
     }
 
+    @GetMapping("/feed")
+    public ResponseEntity<?> getFeed(@RequestParam(required = false) String cursor,
+                                     @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(videoService.getFeed(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<VideoResponse> getVideoById(@PathVariable Long id) {
         return ResponseEntity.ok(videoService.getVideoById(id));
@@ -107,56 +137,143 @@ public class VideoController {
     }
 
     @GetMapping("/{id}/thumbnail")
-    public ResponseEntity<byte[]> getThumbnail(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getThumbnail(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            byte[] thumbnail = videoService.getThumbnail(id);
+            ThumbnailService.Thumbnail thumbnail = thumbnailService.getThumbnail(id);
+            // URL nije verzionisan, a bajtovi se menjaju posle kompresije slike - zato kratak max-age
+            // i revalidacija preko ETag-a (304 bez tela) umesto immutable
+            CacheControl cacheControl = CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic().mustRevalidate();
+
+            if (eTagMatches(ifNoneMatch, thumbnail.getETag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(thumbnail.getETag())
+                        .cacheControl(cacheControl)
+                        .build();
+            }
+
             return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_JPEG)
-                    .body(thumbnail);
+                    .contentType(thumbnail.getContentType())
+                    .eTag(thumbnail.getETag())
+                    .cacheControl(cacheControl)
+                    .body(thumbnail.getBytes());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
     }
 
+    private boolean eTagMatches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @GetMapping("/{id}/stream")
-    public ResponseEntity<Resource> streamVideo(@PathVariable Long id) {
+    public void streamVideo(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        VideoResponse videoResponse;
         try {
-            VideoResponse videoResponse = videoService.getVideoById(id);
-            String videoPath = videoResponse.getVideoPath();
-
-            System.out.println("Streaming video from path: " + videoPath);
-
-            File videoFile = new File(videoPath);
-            if (!videoFile.exists()) {
-                String filename = videoPath.replace('\\', '/');
-                filename = filename.substring(filename.lastIndexOf('/') + 1);
-                videoFile = new File("./uploads/videos/" + filename);
-                if (!videoFile.exists()) {
-                    System.err.println("Video file not found at: " + videoPath);
-                    return ResponseEntity.notFound().build();
-                }
+            videoResponse = videoService.getVideoById(id);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        File videoFile = videoStreamingService.resolveVideoFile(videoResponse);
+        if (videoFile == null) {
+            System.err.println("Video file not found at: " + videoResponse.getVideoPath());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!videoFile.canRead()) {
+            System.err.println("Video file exists but not readable: " + videoFile.getPath());
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+
+        videoStreamingService.stream(videoFile, request, response);
+    }
+
+    @GetMapping("/{id}/hls/master.m3u8")
+    public ResponseEntity<Resource> getHlsMasterPlaylist(@PathVariable Long id) {
+        try {
+            VideoResponse video = videoService.getVideoById(id);
+            if (video.getHlsMasterPath() == null) {
+                return ResponseEntity.notFound().build();
             }
 
-            Path path = videoFile.toPath();
-            Resource resource = new UrlResource(path.toUri());
+            File master = new File(video.getHlsMasterPath());
+            if (!master.isFile()) {
+                return ResponseEntity.notFound().build();
+            }
 
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType("video/mp4"))
-                        .header(HttpHeaders.CONTENT_DISPOSITION,
-                                "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                System.err.println("Video file exists but not readable: " + videoPath);
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            // Master se upisuje tek kad su sve rendicije gotove, pa može dugo da se kešira
+            return ResponseEntity.ok()
+                    .contentType(HLS_PLAYLIST_TYPE)
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic())
+                    .body(new FileSystemResource(master));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{id}/hls/{rendition}/{file:.+}")
+    public ResponseEntity<Resource> getHlsFile(@PathVariable Long id,
+                                               @PathVariable String rendition,
+                                               @PathVariable String file) {
+        if (!HLS_RENDITION_NAME.matcher(rendition).matches() || !HLS_FILE_NAME.matcher(file).matches()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            VideoResponse video = videoService.getVideoById(id);
+            if (video.getHlsMasterPath() == null) {
+                return ResponseEntity.notFound().build();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+
+            Path hlsFile = Paths.get(video.getHlsMasterPath()).getParent().resolve(rendition).resolve(file);
+            if (!Files.isRegularFile(hlsFile)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            MediaType contentType = file.endsWith(".m3u8") ? HLS_PLAYLIST_TYPE : HLS_SEGMENT_TYPE;
+
+            // VOD playlist-e i segmenti se nikad ne menjaju nakon transcodinga
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                    .body(new FileSystemResource(hlsFile));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
         }
     }
 
+    @GetMapping("/{id}/renditions")
+    public ResponseEntity<List<Map<String, Object>>> getRenditions(@PathVariable Long id) {
+        List<Map<String, Object>> renditions = videoService.getRenditions(id).stream()
+                .map(r -> {
+                    Map<String, Object> info = new HashMap<>();
+                    info.put("name", r.getName());
+                    info.put("resolution", r.getResolution());
+                    info.put("bandwidth", r.getBandwidth());
+                    info.put("status", r.getStatus());
+                    info.put("updatedAt", r.getUpdatedAt());
+                    return info;
+                })
+                .toList();
+        return ResponseEntity.ok(renditions);
+    }
+
     @GetMapping("/{id}/streaming-info")
     public ResponseEntity<Map<String, Object>> getStreamingInfo(@PathVariable Long id) {
         try {
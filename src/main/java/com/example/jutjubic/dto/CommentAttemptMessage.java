@@ -0,0 +1,41 @@
+package com.example.jutjubic.dto;
+
+// Prihvaćen komentar koji replika javlja ostalima u cluster modu rate limiter-a
+public class CommentAttemptMessage {
+
+    private String origin;
+    private Long userId;
+    private long attemptedAt;
+
+    public CommentAttemptMessage() {}
+
+    public CommentAttemptMessage(String origin, Long userId, long attemptedAt) {
+        this.origin = origin;
+        this.userId = userId;
+        this.attemptedAt = attemptedAt;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getAttemptedAt() {
+        return attemptedAt;
+    }
+
+    public void setAttemptedAt(long attemptedAt) {
+        this.attemptedAt = attemptedAt;
+    }
+}
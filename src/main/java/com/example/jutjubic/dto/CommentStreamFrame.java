@@ -0,0 +1,44 @@
+package com.example.jutjubic.dto;
+
+import java.util.List;
+
+// Jedan STOMP frame na /topic/video/{id}/comments: svi novi komentari videa od prethodnog frame-a,
+// rastuće po id-ju; lastId je nastavak za /comments/since posle prekida veze
+public class CommentStreamFrame {
+
+    private Long videoId;
+    private List<CommentResponse> comments;
+    private Long lastId;
+
+    public CommentStreamFrame() {}
+
+    public CommentStreamFrame(Long videoId, List<CommentResponse> comments) {
+        this.videoId = videoId;
+        this.comments = comments;
+        this.lastId = comments.isEmpty() ? null : comments.get(comments.size() - 1).getId();
+    }
+
+    public Long getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(Long videoId) {
+        this.videoId = videoId;
+    }
+
+    public List<CommentResponse> getComments() {
+        return comments;
+    }
+
+    public void setComments(List<CommentResponse> comments) {
+        this.comments = comments;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+}
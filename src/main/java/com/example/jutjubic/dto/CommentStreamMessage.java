@@ -0,0 +1,41 @@
+package com.example.jutjubic.dto;
+
+// Novi komentar koji replika prosleđuje ostalima, da ga pošalju i svojim STOMP pretplatnicima
+public class CommentStreamMessage {
+
+    private String origin;
+    private Long videoId;
+    private CommentResponse comment;
+
+    public CommentStreamMessage() {}
+
+    public CommentStreamMessage(String origin, Long videoId, CommentResponse comment) {
+        this.origin = origin;
+        this.videoId = videoId;
+        this.comment = comment;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public Long getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(Long videoId) {
+        this.videoId = videoId;
+    }
+
+    public CommentResponse getComment() {
+        return comment;
+    }
+
+    public void setComment(CommentResponse comment) {
+        this.comment = comment;
+    }
+}
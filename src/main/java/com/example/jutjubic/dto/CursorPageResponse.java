@@ -0,0 +1,34 @@
+package com.example.jutjubic.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public class CursorPageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    // Samo kad je traženo; dolazi iz denormalizovanog brojača, ne iz COUNT upita
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+
+    public CursorPageResponse() {}
+
+    public CursorPageResponse(List<T> items, String nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public Long getTotal() { return total; }
+    public void setTotal(Long total) { this.total = total; }
+}
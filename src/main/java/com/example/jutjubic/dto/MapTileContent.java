@@ -0,0 +1,74 @@
+package com.example.jutjubic.dto;
+
+import com.example.jutjubic.enums.TimePeriod;
+import com.example.jutjubic.util.MapTileCodec;
+import com.example.jutjubic.util.VectorTileCodec;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sadržaj jednog tile-a po periodima: kodirane sekcije i, lenjo, dekodirane liste.
+// Tile učitan iz baze dekodira samo sekcije perioda koji su zaista traženi.
+public class MapTileContent {
+    private final byte[] bytes;
+    private final Map<TimePeriod, byte[]> sections;
+    private final Map<TimePeriod, List<VideoMap>> decoded = new ConcurrentHashMap<>();
+    private final Map<TimePeriod, String> eTags = new ConcurrentHashMap<>();
+    private final Map<TimePeriod, byte[]> vectorTiles = new ConcurrentHashMap<>();
+
+    private MapTileContent(byte[] bytes, Map<TimePeriod, byte[]> sections) {
+        this.bytes = bytes;
+        this.sections = sections;
+    }
+
+    public static MapTileContent of(Map<TimePeriod, List<VideoMap>> videosByPeriod) {
+        Map<TimePeriod, byte[]> sections = new EnumMap<>(TimePeriod.class);
+        for (TimePeriod period : TimePeriod.values()) {
+            sections.put(period, MapTileCodec.encode(videosByPeriod.getOrDefault(period, List.of())));
+        }
+        MapTileContent content = new MapTileContent(MapTileCodec.encodeSections(sections), sections);
+        videosByPeriod.forEach((period, videos) -> content.decoded.put(period, List.copyOf(videos)));
+        return content;
+    }
+
+    public static MapTileContent fromBytes(byte[] bytes) {
+        return new MapTileContent(bytes, MapTileCodec.splitSections(bytes));
+    }
+
+    public List<VideoMap> getVideos(TimePeriod period) {
+        return decoded.computeIfAbsent(period, p -> List.copyOf(MapTileCodec.decode(sections.get(p))));
+    }
+
+    // ETag sekcije perioda - isti sadržaj daje isti ETag na obe instance
+    public String getETag(TimePeriod period) {
+        return eTags.computeIfAbsent(period, p -> {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(sections.get(p));
+                return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 nije dostupan", e);
+            }
+        });
+    }
+
+    // Vektorski zapis se kodira jednom po verziji tile-a; osvežen tile je nov objekat
+    public byte[] getVectorTile(TimePeriod period, double[] bounds) {
+        return vectorTiles.computeIfAbsent(period, p -> VectorTileCodec.encode(getVideos(p), bounds));
+    }
+
+    public String getVectorETag(TimePeriod period) {
+        String eTag = getETag(period);
+        return eTag.substring(0, eTag.length() - 1) + "-mvt\"";
+    }
+
+    public byte[] getBytes() { return bytes; }
+
+    public int getVideoCount() {
+        return getVideos(TimePeriod.ALL_TIME).size();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.jutjubic.dto;
+
+import java.util.List;
+import java.util.Map;
+
+// Viewport mape: bounding box ili eksplicitna lista tile-ova, plus ETag-ovi tile-ova koje klijent već ima
+public class MapViewportRequest {
+    private int zoom;
+    private String period = "ALL_TIME";
+    private Double minLat;
+    private Double minLon;
+    private Double maxLat;
+    private Double maxLon;
+    private List<TileRef> tiles;
+    // Ključ je "x,y"
+    private Map<String, String> etags;
+
+    public int getZoom() { return zoom; }
+    public void setZoom(int zoom) { this.zoom = zoom; }
+
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+
+    public Double getMinLat() { return minLat; }
+    public void setMinLat(Double minLat) { this.minLat = minLat; }
+
+    public Double getMinLon() { return minLon; }
+    public void setMinLon(Double minLon) { this.minLon = minLon; }
+
+    public Double getMaxLat() { return maxLat; }
+    public void setMaxLat(Double maxLat) { this.maxLat = maxLat; }
+
+    public Double getMaxLon() { return maxLon; }
+    public void setMaxLon(Double maxLon) { this.maxLon = maxLon; }
+
+    public List<TileRef> getTiles() { return tiles; }
+    public void setTiles(List<TileRef> tiles) { this.tiles = tiles; }
+
+    public Map<String, String> getEtags() { return etags; }
+    public void setEtags(Map<String, String> etags) { this.etags = etags; }
+
+    public boolean hasBounds() {
+        return minLat != null && minLon != null && maxLat != null && maxLon != null;
+    }
+
+    public static class TileRef {
+        private int x;
+        private int y;
+
+        public TileRef() {}
+
+        public TileRef(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public int getX() { return x; }
+        public void setX(int x) { this.x = x; }
+
+        public int getY() { return y; }
+        public void setY(int y) { this.y = y; }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.jutjubic.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Jedan red NDJSON odgovora viewport-a; kad se ETag poklapa, videos se izostavlja
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MapViewportTile {
+    private int zoom;
+    private int x;
+    private int y;
+    private String etag;
+    private boolean notModified;
+    private List<VideoMap> videos;
+    private String error;
+
+    public MapViewportTile() {}
+
+    public MapViewportTile(int zoom, int x, int y) {
+        this.zoom = zoom;
+        this.x = x;
+        this.y = y;
+    }
+
+    public int getZoom() { return zoom; }
+    public void setZoom(int zoom) { this.zoom = zoom; }
+
+    public int getX() { return x; }
+    public void setX(int x) { this.x = x; }
+
+    public int getY() { return y; }
+    public void setY(int y) { this.y = y; }
+
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+
+    public boolean isNotModified() { return notModified; }
+    public void setNotModified(boolean notModified) { this.notModified = notModified; }
+
+    public List<VideoMap> getVideos() { return videos; }
+    public void setVideos(List<VideoMap> videos) { this.videos = videos; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
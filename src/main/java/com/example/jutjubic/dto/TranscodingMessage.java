@@ -1,6 +1,8 @@
 package com.example.jutjubic.dto;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TranscodingMessage implements Serializable {
 
@@ -8,6 +10,10 @@ public class TranscodingMessage implements Serializable {
     private String originalVideoPath;
     private String outputVideoPath;
     private TranscodingParams params;
+    private String hlsOutputDir;
+    private List<String> renditions = new ArrayList<>();
+    private Long durationSeconds;
+    private Long fileSizeBytes;
 
     public TranscodingMessage() {}
 
@@ -50,6 +56,38 @@ public class TranscodingMessage implements Serializable {
         this.params = params;
     }
 
+    public String getHlsOutputDir() {
+        return hlsOutputDir;
+    }
+
+    public void setHlsOutputDir(String hlsOutputDir) {
+        this.hlsOutputDir = hlsOutputDir;
+    }
+
+    public List<String> getRenditions() {
+        return renditions;
+    }
+
+    public void setRenditions(List<String> renditions) {
+        this.renditions = renditions;
+    }
+
+    public Long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(Long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public Long getFileSizeBytes() {
+        return fileSizeBytes;
+    }
+
+    public void setFileSizeBytes(Long fileSizeBytes) {
+        this.fileSizeBytes = fileSizeBytes;
+    }
+
     @Override
     public String toString() {
         return "TranscodingMessage{" +
@@ -57,6 +95,10 @@ public class TranscodingMessage implements Serializable {
                 ", originalVideoPath='" + originalVideoPath + '\'' +
                 ", outputVideoPath='" + outputVideoPath + '\'' +
                 ", params=" + params +
+                ", hlsOutputDir='" + hlsOutputDir + '\'' +
+                ", renditions=" + renditions +
+                ", durationSeconds=" + durationSeconds +
+                ", fileSizeBytes=" + fileSizeBytes +
                 '}';
     }
 
@@ -67,6 +109,7 @@ public class TranscodingMessage implements Serializable {
         private String audioCodec;
         private String audioBitrate;
         private String format;
+        private String preset;
 
         public TranscodingParams() {}
 
@@ -79,6 +122,28 @@ public class TranscodingMessage implements Serializable {
             this.format = format;
         }
 
+        public static TranscodingParams default240p() {
+            return new TranscodingParams(
+                    "libx264",
+                    "426x240",
+                    "400k",
+                    "aac",
+                    "64k",
+                    "mp4"
+            );
+        }
+
+        public static TranscodingParams default480p() {
+            return new TranscodingParams(
+                    "libx264",
+                    "854x480",
+                    "1000k",
+                    "aac",
+                    "96k",
+                    "mp4"
+            );
+        }
+
         public static TranscodingParams default720p() {
             return new TranscodingParams(
                     "libx264",
@@ -101,6 +166,16 @@ public class TranscodingMessage implements Serializable {
             );
         }
 
+        public static TranscodingParams forRendition(String name) {
+            switch (name) {
+                case "240p": return default240p();
+                case "480p": return default480p();
+                case "720p": return default720p();
+                case "1080p": return default1080p();
+                default: throw new IllegalArgumentException("Nepoznata rendicija: " + name);
+            }
+        }
+
         public String getCodec() {
             return codec;
         }
@@ -149,6 +224,14 @@ public class TranscodingMessage implements Serializable {
             this.format = format;
         }
 
+        public String getPreset() {
+            return preset;
+        }
+
+        public void setPreset(String preset) {
+            this.preset = preset;
+        }
+
         @Override
         public String toString() {
             return "TranscodingParams{" +
@@ -158,6 +241,7 @@ public class TranscodingMessage implements Serializable {
                     ", audioCodec='" + audioCodec + '\'' +
                     ", audioBitrate='" + audioBitrate + '\'' +
                     ", format='" + format + '\'' +
+                    ", preset='" + preset + '\'' +
                     '}';
         }
     }
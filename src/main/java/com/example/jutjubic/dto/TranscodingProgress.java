@@ -0,0 +1,68 @@
+package com.example.jutjubic.dto;
+
+import java.time.LocalDateTime;
+
+public class TranscodingProgress {
+    private Long videoId;
+    private String status;
+    private String phase;
+    private int stage;
+    private int totalStages;
+    private double phasePercent;
+    private double percent;
+    private long frame;
+    private double fps;
+    private double speed;
+    private Long etaSeconds;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+
+    public TranscodingProgress() {}
+
+    public TranscodingProgress(Long videoId, int totalStages) {
+        this.videoId = videoId;
+        this.totalStages = totalStages;
+        this.status = "IN_PROGRESS";
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = this.startedAt;
+    }
+
+    public Long getVideoId() { return videoId; }
+    public void setVideoId(Long videoId) { this.videoId = videoId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getPhase() { return phase; }
+    public void setPhase(String phase) { this.phase = phase; }
+
+    public int getStage() { return stage; }
+    public void setStage(int stage) { this.stage = stage; }
+
+    public int getTotalStages() { return totalStages; }
+    public void setTotalStages(int totalStages) { this.totalStages = totalStages; }
+
+    public double getPhasePercent() { return phasePercent; }
+    public void setPhasePercent(double phasePercent) { this.phasePercent = phasePercent; }
+
+    public double getPercent() { return percent; }
+    public void setPercent(double percent) { this.percent = percent; }
+
+    public long getFrame() { return frame; }
+    public void setFrame(long frame) { this.frame = frame; }
+
+    public double getFps() { return fps; }
+    public void setFps(double fps) { this.fps = fps; }
+
+    public double getSpeed() { return speed; }
+    public void setSpeed(double speed) { this.speed = speed; }
+
+    public Long getEtaSeconds() { return etaSeconds; }
+    public void setEtaSeconds(Long etaSeconds) { this.etaSeconds = etaSeconds; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
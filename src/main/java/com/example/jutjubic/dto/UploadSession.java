@@ -0,0 +1,92 @@
+package com.example.jutjubic.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TreeSet;
+
+// Stanje nastavljive upload sesije - čuva se kao session.json pored data.part fajla
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UploadSession {
+    private String uploadId;
+    private Long userId;
+    private String title;
+    private String description;
+    private List<String> tags;
+    private String location;
+    private Double latitude;
+    private Double longitude;
+    private LocalDateTime scheduledDateTime;
+    private Long durationSeconds;
+    private String fileName;
+    private long totalSize;
+    private long chunkSize;
+    private String sha256;
+    private TreeSet<Integer> receivedChunks = new TreeSet<>();
+    private LocalDateTime createdAt;
+    private LocalDateTime lastActivity;
+
+    public int getTotalChunks() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    public boolean isComplete() {
+        return receivedChunks.size() == getTotalChunks();
+    }
+
+    public long chunkLength(int index) {
+        return Math.min(chunkSize, totalSize - (long) index * chunkSize);
+    }
+
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags; }
+
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public LocalDateTime getScheduledDateTime() { return scheduledDateTime; }
+    public void setScheduledDateTime(LocalDateTime scheduledDateTime) { this.scheduledDateTime = scheduledDateTime; }
+
+    public Long getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(Long durationSeconds) { this.durationSeconds = durationSeconds; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public long getTotalSize() { return totalSize; }
+    public void setTotalSize(long totalSize) { this.totalSize = totalSize; }
+
+    public long getChunkSize() { return chunkSize; }
+    public void setChunkSize(long chunkSize) { this.chunkSize = chunkSize; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public TreeSet<Integer> getReceivedChunks() { return receivedChunks; }
+    public void setReceivedChunks(TreeSet<Integer> receivedChunks) { this.receivedChunks = receivedChunks; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getLastActivity() { return lastActivity; }
+    public void setLastActivity(LocalDateTime lastActivity) { this.lastActivity = lastActivity; }
+}
@@ -0,0 +1,55 @@
+package com.example.jutjubic.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class UploadSessionRequest {
+    private String title;
+    private String description;
+    private List<String> tags;
+    private String location;
+    private Double latitude;
+    private Double longitude;
+    private LocalDateTime scheduledDateTime;
+    private Long durationSeconds;
+    private String fileName;
+    private Long totalSize;
+    private String sha256;
+    private Long chunkSize;
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags; }
+
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public LocalDateTime getScheduledDateTime() { return scheduledDateTime; }
+    public void setScheduledDateTime(LocalDateTime scheduledDateTime) { this.scheduledDateTime = scheduledDateTime; }
+
+    public Long getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(Long durationSeconds) { this.durationSeconds = durationSeconds; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public Long getTotalSize() { return totalSize; }
+    public void setTotalSize(Long totalSize) { this.totalSize = totalSize; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public Long getChunkSize() { return chunkSize; }
+    public void setChunkSize(Long chunkSize) { this.chunkSize = chunkSize; }
+}
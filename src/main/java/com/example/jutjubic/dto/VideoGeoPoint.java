@@ -0,0 +1,60 @@
+package com.example.jutjubic.dto;
+
+import com.example.jutjubic.model.Video;
+
+import java.time.LocalDateTime;
+
+// Kompaktan zapis geo-tagovanog videa za prostorni indeks - samo polja koja treba VideoMap-u
+public class VideoGeoPoint {
+    private final long id;
+    private final double latitude;
+    private final double longitude;
+    private final String title;
+    private final String thumbnailUrl;
+    private final LocalDateTime uploadDate;
+    private final String uploaderName;
+    private volatile long viewCount;
+
+    public VideoGeoPoint(Long id, Double latitude, Double longitude, String title, String thumbnailUrl,
+                         LocalDateTime uploadDate, Long viewCount, String uploaderName) {
+        this.id = id;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.title = title;
+        this.thumbnailUrl = thumbnailUrl;
+        this.uploadDate = uploadDate;
+        this.viewCount = viewCount != null ? viewCount : 0L;
+        this.uploaderName = uploaderName != null ? uploaderName : "Unknown";
+    }
+
+    public static VideoGeoPoint of(Video video) {
+        return new VideoGeoPoint(
+                video.getId(),
+                video.getLatitude(),
+                video.getLongitude(),
+                video.getTitle(),
+                video.getThumbnailPath(),
+                video.getCreatedAt(),
+                video.getViewCount(),
+                video.getUser() != null ? video.getUser().getUsername() : null
+        );
+    }
+
+    public VideoMap toVideoMap() {
+        return new VideoMap(id, title, thumbnailUrl, latitude, longitude, uploadDate, viewCount, 1, uploaderName);
+    }
+
+    // Poziva se samo iz flush-a pregleda, koji je serijalizovan
+    public void addViews(long delta) {
+        viewCount += delta;
+    }
+
+    public long getId() { return id; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public String getTitle() { return title; }
+    public String getThumbnailUrl() { return thumbnailUrl; }
+    public LocalDateTime getUploadDate() { return uploadDate; }
+    public long getViewCount() { return viewCount; }
+    public String getUploaderName() { return uploaderName; }
+}
@@ -20,6 +20,32 @@ public class VideoResponse {
     private Long durationSeconds;
     private String transcodedVideoPath;
     private String transcodingStatus;
+    private String hlsMasterPath;
+
+    public VideoResponse() {}
+
+    // Konstruktor za JPQL projekciju feed-a - tagovi se dopunjavaju naknadno jednim upitom
+    public VideoResponse(Long id, String title, String description, String thumbnailPath, String videoPath,
+                         String username, Long userId, LocalDateTime createdAt, Long viewCount, String location,
+                         LocalDateTime scheduledDateTime, Boolean isScheduled, Long durationSeconds,
+                         String transcodedVideoPath, String transcodingStatus, String hlsMasterPath) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.thumbnailPath = thumbnailPath;
+        this.videoPath = videoPath;
+        this.username = username;
+        this.userId = userId;
+        this.createdAt = createdAt;
+        this.viewCount = viewCount;
+        this.location = location;
+        this.scheduledDateTime = scheduledDateTime;
+        this.isScheduled = isScheduled;
+        this.durationSeconds = durationSeconds;
+        this.transcodedVideoPath = transcodedVideoPath;
+        this.transcodingStatus = transcodingStatus;
+        this.hlsMasterPath = hlsMasterPath;
+    }
 
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -68,4 +94,7 @@ public class VideoResponse {
 
     public String getTranscodingStatus() { return transcodingStatus; }
     public void setTranscodingStatus(String transcodingStatus) { this.transcodingStatus = transcodingStatus; }
+
+    public String getHlsMasterPath() { return hlsMasterPath; }
+    public void setHlsMasterPath(String hlsMasterPath) { this.hlsMasterPath = hlsMasterPath; }
 }
@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_video_created_id", columnList = "video_id,created_at,id"),
+        @Index(name = "idx_comments_user_created", columnList = "user_id,created_at"),
+        @Index(name = "idx_comments_video_id", columnList = "video_id,id")
+})
 public class Comment {
 
     @Id
@@ -0,0 +1,44 @@
+package com.example.jutjubic.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Dokle je koji ETL korak stigao (poslednji obrađeni id izvorne tabele)
+@Entity
+@Table(name = "etl_watermarks")
+public class EtlWatermark {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId = 0L;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    // Sledeća granica: najveći id vidljiv u pendingAt; obrađuje se tek kad prođe zadrška za commit
+    @Column(name = "pending_id")
+    private Long pendingId;
+
+    @Column(name = "pending_at")
+    private LocalDateTime pendingAt;
+
+    public EtlWatermark() {}
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getLastId() { return lastId; }
+    public void setLastId(Long lastId) { this.lastId = lastId; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getPendingId() { return pendingId; }
+    public void setPendingId(Long pendingId) { this.pendingId = pendingId; }
+
+    public LocalDateTime getPendingAt() { return pendingAt; }
+    public void setPendingAt(LocalDateTime pendingAt) { this.pendingAt = pendingAt; }
+}
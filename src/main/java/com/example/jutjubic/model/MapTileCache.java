@@ -5,7 +5,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "map_tile_cache", indexes = {
-        @Index(name = "idx_tile_coords", columnList = "zoomLevel,tileX,tileY")
+        @Index(name = "idx_tile_coords", columnList = "zoomLevel,tileX,tileY"),
+        @Index(name = "idx_tile_generation_coords", columnList = "generation,zoomLevel,tileX,tileY")
 })
 public class MapTileCache {
 
@@ -13,6 +14,10 @@ public class MapTileCache {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Generacija noćne regeneracije; važeća je ona iz etl_watermarks (map_tile_generation)
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long generation;
+
     @Column(nullable = false)
     private int zoomLevel;
 
@@ -22,8 +27,9 @@ public class MapTileCache {
     @Column(nullable = false)
     private int tileY;
 
-    @Column(columnDefinition = "TEXT")
-    private String videoData;
+    // Protobuf MapTile (MapTileCodec); redovi iz starog JSON formata nemaju ovu kolonu i grade se ponovo
+    @Column(columnDefinition = "bytea")
+    private byte[] tileData;
 
     @Column(nullable = false)
     private LocalDateTime lastUpdated;
@@ -52,6 +58,14 @@ public class MapTileCache {
         this.id = id;
     }
 
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
     public int getZoomLevel() {
         return zoomLevel;
     }
@@ -76,12 +90,12 @@ public class MapTileCache {
         this.tileY = tileY;
     }
 
-    public String getVideoData() {
-        return videoData;
+    public byte[] getTileData() {
+        return tileData;
     }
 
-    public void setVideoData(String videoData) {
-        this.videoData = videoData;
+    public void setTileData(byte[] tileData) {
+        this.tileData = tileData;
     }
 
     public LocalDateTime getLastUpdated() {
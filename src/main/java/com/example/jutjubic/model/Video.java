@@ -1,5 +1,6 @@
 package com.example.jutjubic.model;
 
+import com.example.jutjubic.util.HilbertCurve;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import java.time.LocalDateTime;
@@ -7,7 +8,11 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = {
+        @Index(name = "idx_videos_created_id", columnList = "created_at,id"),
+        @Index(name = "idx_videos_user_created_id", columnList = "user_id,created_at,id"),
+        @Index(name = "idx_videos_spatial_key", columnList = "spatial_key")
+})
 public class Video {
 
     @Id
@@ -37,6 +42,19 @@ public class Video {
     @Column(name = "view_count", nullable = false)
     private Long viewCount = 0L;
 
+    // Denormalizovan broj komentara; NULL za stare redove dok ih CommentService ne popuni.
+    // Menja se samo SQL inkrementom, pa ga save() celog entiteta ne sme prepisati
+    @Column(name = "comment_count", updatable = false)
+    private Long commentCount = 0L;
+
+    // Denormalizovan broj lajkova; LikeService upisuje delte u paketima i periodično ga poravna sa likes.
+    // Kao i comment_count, menja se samo SQL-om
+    @Column(name = "like_count", updatable = false)
+    private Long likeCount = 0L;
+
+    @Column(name = "likes_changed_at", updatable = false)
+    private LocalDateTime likesChangedAt;
+
     @Column(name = "location")
     private String location;
 
@@ -46,6 +64,10 @@ public class Video {
     @Column(name = "longitude")
     private Double longitude;
 
+    // Hilbertov ključ lokacije (HilbertCurve) - upit po bbox-u postaje nekoliko range scan-ova
+    @Column(name = "spatial_key")
+    private Long spatialKey;
+
     @Column(name = "scheduled_date_time")
     private LocalDateTime scheduledDateTime;
 
@@ -61,6 +83,9 @@ public class Video {
     @Column(name = "transcoding_status")
     private String transcodingStatus = "PENDING";
 
+    @Column(name = "hls_master_path")
+    private String hlsMasterPath;
+
     @Column(name = "thumbnail_compressed")
     private Boolean thumbnailCompressed = false;
 
@@ -144,6 +169,26 @@ public class Video {
         this.viewCount = viewCount;
     }
 
+    public Long getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(Long commentCount) {
+        this.commentCount = commentCount;
+    }
+
+    public Long getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(Long likeCount) {
+        this.likeCount = likeCount;
+    }
+
+    public LocalDateTime getLikesChangedAt() {
+        return likesChangedAt;
+    }
+
     public String getLocation() {
         return location;
     }
@@ -168,6 +213,16 @@ public class Video {
         this.longitude = longitude;
     }
 
+    public Long getSpatialKey() {
+        return spatialKey;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateSpatialKey() {
+        spatialKey = latitude != null && longitude != null ? HilbertCurve.key(latitude, longitude) : null;
+    }
+
     public LocalDateTime getScheduledDateTime() {
         return scheduledDateTime;
     }
@@ -216,6 +271,14 @@ public class Video {
         this.transcodingStatus = transcodingStatus;
     }
 
+    public String getHlsMasterPath() {
+        return hlsMasterPath;
+    }
+
+    public void setHlsMasterPath(String hlsMasterPath) {
+        this.hlsMasterPath = hlsMasterPath;
+    }
+
     public Boolean getThumbnailCompressed() {
         return thumbnailCompressed;
     }
@@ -0,0 +1,70 @@
+package com.example.jutjubic.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "video_renditions", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"video_id", "name"})
+})
+public class VideoRendition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "video_id", nullable = false)
+    private Video video;
+
+    @Column(nullable = false, length = 16)
+    private String name;
+
+    @Column(length = 16)
+    private String resolution;
+
+    @Column(name = "bandwidth")
+    private Integer bandwidth;
+
+    @Column(nullable = false, length = 16)
+    private String status = "PENDING";
+
+    @Column(name = "playlist_path")
+    private String playlistPath;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public VideoRendition() {}
+
+    public VideoRendition(Video video, String name, String resolution, Integer bandwidth) {
+        this.video = video;
+        this.name = name;
+        this.resolution = resolution;
+        this.bandwidth = bandwidth;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Video getVideo() { return video; }
+    public void setVideo(Video video) { this.video = video; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getResolution() { return resolution; }
+    public void setResolution(String resolution) { this.resolution = resolution; }
+
+    public Integer getBandwidth() { return bandwidth; }
+    public void setBandwidth(Integer bandwidth) { this.bandwidth = bandwidth; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getPlaylistPath() { return playlistPath; }
+    public void setPlaylistPath(String playlistPath) { this.playlistPath = playlistPath; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
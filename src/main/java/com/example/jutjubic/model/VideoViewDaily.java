@@ -0,0 +1,61 @@
+package com.example.jutjubic.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Dnevni zbir pregleda po videu; puni ga ETL inkrementalno iz video_views
+@Entity
+@Table(name = "video_view_daily", indexes = {
+        @Index(name = "idx_video_view_daily_date", columnList = "view_date")
+})
+@IdClass(VideoViewDaily.Key.class)
+public class VideoViewDaily {
+
+    @Id
+    @Column(name = "video_id", nullable = false)
+    private Long videoId;
+
+    @Id
+    @Column(name = "view_date", nullable = false)
+    private LocalDate viewDate;
+
+    @Column(name = "view_count", nullable = false)
+    private Long viewCount = 0L;
+
+    public VideoViewDaily() {}
+
+    public Long getVideoId() { return videoId; }
+    public void setVideoId(Long videoId) { this.videoId = videoId; }
+
+    public LocalDate getViewDate() { return viewDate; }
+    public void setViewDate(LocalDate viewDate) { this.viewDate = viewDate; }
+
+    public Long getViewCount() { return viewCount; }
+    public void setViewCount(Long viewCount) { this.viewCount = viewCount; }
+
+    public static class Key implements Serializable {
+        private Long videoId;
+        private LocalDate viewDate;
+
+        public Key() {}
+
+        public Key(Long videoId, LocalDate viewDate) {
+            this.videoId = videoId;
+            this.viewDate = viewDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(videoId, key.videoId) && Objects.equals(viewDate, key.viewDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(videoId, viewDate);
+        }
+    }
+}
@@ -5,8 +5,11 @@ import com.example.jutjubic.model.Video;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -19,4 +22,32 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByVideoIdOrderByCreatedAtDesc(Long videoId);
 
     long countByVideo(Video video);
+
+    // Vremena poslednjih komentara korisnika, za početno punjenje rate limiter-a
+    @Query("SELECT c.createdAt FROM Comment c WHERE c.user.id = :userId AND c.createdAt > :since " +
+            "ORDER BY c.createdAt DESC")
+    List<LocalDateTime> findRecentCreatedAtByUser(@Param("userId") Long userId,
+                                                  @Param("since") LocalDateTime since,
+                                                  Pageable pageable);
+
+    // Keyset paginacija po (createdAt, id), isto kao feed videa
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user " +
+            "WHERE c.video.id = :videoId ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findFirstPage(@Param("videoId") Long videoId, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user " +
+            "WHERE c.video.id = :videoId AND c.createdAt <= :createdAt " +
+            "AND (c.createdAt < :createdAt OR c.id < :id) " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findPageAfter(@Param("videoId") Long videoId,
+                                @Param("createdAt") LocalDateTime createdAt,
+                                @Param("id") Long id,
+                                Pageable pageable);
+
+    // Novi komentari posle poslednjeg viđenog id-ja, za nastavak live stream-a
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user " +
+            "WHERE c.video.id = :videoId AND c.id > :afterId ORDER BY c.id ASC")
+    List<Comment> findSince(@Param("videoId") Long videoId,
+                            @Param("afterId") Long afterId,
+                            Pageable pageable);
 }
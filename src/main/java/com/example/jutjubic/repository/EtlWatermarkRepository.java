@@ -0,0 +1,26 @@
+package com.example.jutjubic.repository;
+
+import com.example.jutjubic.model.EtlWatermark;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EtlWatermarkRepository extends JpaRepository<EtlWatermark, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO etl_watermarks (name, last_id, updated_at) VALUES (:name, 0, now()) " +
+            "ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    void ensureExists(@Param("name") String name);
+
+    // Zaključan red serijalizuje ETL između replika - samo jedna obrađuje isti opseg
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM EtlWatermark w WHERE w.name = :name")
+    Optional<EtlWatermark> findForUpdate(@Param("name") String name);
+}
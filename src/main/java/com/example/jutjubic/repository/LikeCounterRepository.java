@@ -0,0 +1,107 @@
+package com.example.jutjubic.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Lajk kao jedan upit nad likes (unique video_id, user_id) umesto SELECT + INSERT/DELETE + COUNT(*);
+// broj lajkova se čita iz videos.like_count koji LikeService održava deltama
+@Repository
+public class LikeCounterRepository {
+
+    // Lajk u istoj naredbi obeležava likes_changed_at, pa rekoncilijacija preskače video dok mu delta
+    // možda još čeka u memoriji neke replike. Oznaka se obnavlja najviše jednom u ovom intervalu, da
+    // popularan video ne dobije upis u videos pri svakom kliku; settle-minutes mora biti duži od njega.
+    static final long CHANGE_STAMP_SECONDS = 60;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 0 znači da lajk već postoji (npr. istovremeni dupli klik)
+    public int insertLike(Long videoId, Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.queryForObject(
+                "WITH toggled AS (INSERT INTO likes (video_id, user_id, created_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT (video_id, user_id) DO NOTHING RETURNING video_id), " + STAMP_CHANGE +
+                "SELECT COUNT(*) FROM toggled",
+                Integer.class, videoId, userId, Timestamp.valueOf(now),
+                Timestamp.valueOf(now), Timestamp.valueOf(now.minusSeconds(CHANGE_STAMP_SECONDS)));
+    }
+
+    public int deleteLike(Long videoId, Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.queryForObject(
+                "WITH toggled AS (DELETE FROM likes WHERE video_id = ? AND user_id = ? RETURNING video_id), " +
+                STAMP_CHANGE + "SELECT COUNT(*) FROM toggled",
+                Integer.class, videoId, userId,
+                Timestamp.valueOf(now), Timestamp.valueOf(now.minusSeconds(CHANGE_STAMP_SECONDS)));
+    }
+
+    private static final String STAMP_CHANGE =
+            "stamped AS (UPDATE videos SET likes_changed_at = ? WHERE id IN (SELECT video_id FROM toggled) " +
+            "AND (likes_changed_at IS NULL OR likes_changed_at < ?) RETURNING id) ";
+
+    // Prazno ako video ne postoji; red bez brojača (pre prve rekoncilijacije) se broji direktno
+    public Optional<Long> findLikeCount(Long videoId) {
+        List<Long> counts = jdbcTemplate.queryForList(
+                "SELECT COALESCE(v.like_count, (SELECT COUNT(*) FROM likes l WHERE l.video_id = v.id)) " +
+                "FROM videos v WHERE v.id = ?",
+                Long.class, videoId);
+        return counts.stream().findFirst();
+    }
+
+    // Isto kao findLikeCount, za više videa jednim upitom; nepostojeći video nije u rezultatu
+    public Map<Long, Long> findLikeCounts(List<Long> videoIds) {
+        Map<Long, Long> result = new HashMap<>();
+        if (videoIds.isEmpty()) {
+            return result;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(videoIds.size(), "?"));
+        jdbcTemplate.query(
+                "SELECT v.id, COALESCE(v.like_count, (SELECT COUNT(*) FROM likes l WHERE l.video_id = v.id)) " +
+                "FROM videos v WHERE v.id IN (" + placeholders + ")",
+                rs -> {
+                    result.put(rs.getLong(1), rs.getLong(2));
+                },
+                videoIds.toArray());
+        return result;
+    }
+
+    // Lajkovi više videa jednim upitom, za punjenje LikeIndexService-a
+    public Map<Long, List<Long>> findUserIdsByVideoIds(List<Long> videoIds) {
+        Map<Long, List<Long>> result = new HashMap<>();
+        if (videoIds.isEmpty()) {
+            return result;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(videoIds.size(), "?"));
+        jdbcTemplate.query("SELECT video_id, user_id FROM likes WHERE video_id IN (" + placeholders + ")",
+                rs -> {
+                    result.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getLong(2));
+                },
+                videoIds.toArray());
+        return result;
+    }
+
+    // Poravnava like_count sa likes za redove čije delte su sigurno upisane (bez promene od settledBefore).
+    // Svežiji redovi se preskaču jer druga replika možda još drži njihove delte u memoriji - oznaku
+    // postavlja već sam lajk (insertLike/deleteLike), ne tek upis delte.
+    public int reconcile(LocalDateTime settledBefore) {
+        return jdbcTemplate.update(
+                "UPDATE videos v SET like_count = c.cnt FROM (" +
+                "SELECT v2.id, COUNT(l.id) AS cnt FROM videos v2 LEFT JOIN likes l ON l.video_id = v2.id " +
+                "WHERE v2.like_count IS NULL OR v2.likes_changed_at IS NULL OR v2.likes_changed_at < ? " +
+                "GROUP BY v2.id) c " +
+                "WHERE v.id = c.id AND (v.like_count IS NULL OR v.like_count <> c.cnt) " +
+                "AND (v.likes_changed_at IS NULL OR v.likes_changed_at < ?)",
+                Timestamp.valueOf(settledBefore), Timestamp.valueOf(settledBefore));
+    }
+}
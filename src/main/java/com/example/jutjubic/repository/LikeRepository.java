@@ -18,4 +18,6 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     long countByVideo(Video video);
 
     boolean existsByVideoAndUser(Video video, User user);
+
+    boolean existsByVideoIdAndUserId(Long videoId, Long userId);
 }
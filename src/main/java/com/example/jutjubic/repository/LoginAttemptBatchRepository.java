@@ -0,0 +1,40 @@
+package com.example.jutjubic.repository;
+
+import com.example.jutjubic.model.LoginAttempt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Audit upis pokušaja prijave - multi-row INSERT umesto jednog save-a po pokušaju
+@Repository
+public class LoginAttemptBatchRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public int insertAttempts(List<LoginAttempt> attempts) {
+        int inserted = 0;
+        for (int from = 0; from < attempts.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_ROWS_PER_STATEMENT, attempts.size());
+
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO login_attempts (ip_address, attempt_time, successful) VALUES ");
+            List<Object> args = new ArrayList<>((to - from) * 3);
+            for (int i = from; i < to; i++) {
+                LoginAttempt attempt = attempts.get(i);
+                sql.append(i == from ? "(?, ?, ?)" : ", (?, ?, ?)");
+                args.add(attempt.getIpAddress());
+                args.add(Timestamp.valueOf(attempt.getAttemptTime()));
+                args.add(attempt.isSuccessful());
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return inserted;
+    }
+}
@@ -13,9 +13,23 @@ import java.util.Optional;
 public interface MapTileCacheRepository extends JpaRepository<MapTileCache, Long> {
 
 
-    Optional<MapTileCache> findByZoomLevelAndTileXAndTileY(
-            Integer zoomLevel, Integer tileX, Integer tileY);
+    String CURRENT_GENERATION = "COALESCE((SELECT w.last_id FROM etl_watermarks w " +
+            "WHERE w.name = 'map_tile_generation'), 0)";
 
+    // Pokazivač na generaciju i red se čitaju u istom upitu, pa zamena generacije nije vidljiva napola
+    @Query(value = "SELECT * FROM map_tile_cache c WHERE c.zoom_level = :zoomLevel " +
+            "AND c.tile_x = :tileX AND c.tile_y = :tileY AND c.generation = " + CURRENT_GENERATION +
+            " ORDER BY c.id DESC LIMIT 1", nativeQuery = true)
+    Optional<MapTileCache> findCurrent(int zoomLevel, int tileX, int tileY);
+
+    @Query(value = "SELECT " + CURRENT_GENERATION, nativeQuery = true)
+    long currentGeneration();
+
+
+    @Modifying
+    @Query("UPDATE MapTileCache c SET c.lastUpdated = :staleAt " +
+           "WHERE c.zoomLevel = :zoomLevel AND c.tileX = :tileX AND c.tileY = :tileY")
+    int markStale(int zoomLevel, int tileX, int tileY, LocalDateTime staleAt);
 
     @Modifying
     @Query("DELETE FROM MapTileCache c WHERE c.lastUpdated < :cutoffTime")
@@ -0,0 +1,83 @@
+package com.example.jutjubic.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Generacije tile cache-a: čitaoci vide samo redove generacije na koju pokazuje map_tile_generation,
+// pa se nova generacija upisuje u pozadini i uključuje jednim commit-om
+@Repository
+public class MapTileGenerationRepository {
+
+    public static final String CURRENT_GENERATION = "map_tile_generation";
+    public static final String REGENERATION_LEASE = "map_tile_regeneration";
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public record TileRow(int zoomLevel, int tileX, int tileY, byte[] tileData, int videoCount) {
+    }
+
+    // Rezerviše broj nove generacije; null ako druga replika već regeneriše (zakup još nije istekao)
+    public Long reserveGeneration(LocalDateTime leaseExpiredBefore) {
+        jdbcTemplate.update("INSERT INTO etl_watermarks (name, last_id, updated_at) VALUES (?, 0, now()) " +
+                "ON CONFLICT (name) DO NOTHING", REGENERATION_LEASE);
+        List<Long> reserved = jdbcTemplate.queryForList(
+                "UPDATE etl_watermarks SET last_id = GREATEST(last_id, " +
+                        "(SELECT COALESCE(MAX(last_id), 0) FROM etl_watermarks WHERE name = ?)) + 1, updated_at = now() " +
+                        "WHERE name = ? AND (last_id = 0 OR updated_at < ?) RETURNING last_id",
+                Long.class, CURRENT_GENERATION, REGENERATION_LEASE, Timestamp.valueOf(leaseExpiredBefore));
+        return reserved.isEmpty() ? null : reserved.get(0);
+    }
+
+    // Produžava zakup dok traje izgradnja; false ako ga je u međuvremenu preuzela druga replika
+    public boolean renewLease(long generation) {
+        return jdbcTemplate.update("UPDATE etl_watermarks SET updated_at = now() WHERE name = ? AND last_id = ?",
+                REGENERATION_LEASE, generation) == 1;
+    }
+
+    public int insertTiles(long generation, List<TileRow> tiles) {
+        int inserted = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < tiles.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_ROWS_PER_STATEMENT, tiles.size());
+
+            StringBuilder sql = new StringBuilder("INSERT INTO map_tile_cache " +
+                    "(generation, zoom_level, tile_x, tile_y, tile_data, video_count, last_updated) VALUES ");
+            List<Object> args = new ArrayList<>((to - from) * 7);
+            for (int i = from; i < to; i++) {
+                TileRow tile = tiles.get(i);
+                sql.append(i == from ? "(?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?)");
+                args.add(generation);
+                args.add(tile.zoomLevel());
+                args.add(tile.tileX());
+                args.add(tile.tileY());
+                args.add(tile.tileData());
+                args.add(tile.videoCount());
+                args.add(Timestamp.valueOf(now));
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return inserted;
+    }
+
+    // Mora u istoj transakciji: pokazivač prelazi na novu generaciju i ostale nestaju zajedno
+    public int publish(long generation) {
+        jdbcTemplate.update("INSERT INTO etl_watermarks (name, last_id, updated_at) VALUES (?, ?, now()) " +
+                "ON CONFLICT (name) DO UPDATE SET last_id = EXCLUDED.last_id, updated_at = now()",
+                CURRENT_GENERATION, generation);
+        return jdbcTemplate.update("DELETE FROM map_tile_cache WHERE generation <> ?", generation);
+    }
+
+    public void releaseLease(long generation) {
+        jdbcTemplate.update("UPDATE etl_watermarks SET updated_at = now() - interval '1 day' WHERE name = ? AND last_id = ?",
+                REGENERATION_LEASE, generation);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.jutjubic.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Batch upiti nad brojačima videa - UPDATE ... FROM (VALUES ...) i multi-row INSERT u jednom round-trip-u
+@Repository
+public class VideoCounterRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public int addViewCounts(Map<Long, Long> deltas) {
+        return addToCounter("view_count", deltas);
+    }
+
+    // likes_changed_at govori rekoncilijaciji da red ima sveže delte i da ga za sada preskoči
+    public int addLikeCounts(Map<Long, Long> deltas) {
+        return addToCounter("like_count", "likes_changed_at", deltas);
+    }
+
+    public int insertViews(List<Long> videoIds, List<LocalDateTime> viewedAt) {
+        int inserted = 0;
+        for (int from = 0; from < videoIds.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_ROWS_PER_STATEMENT, videoIds.size());
+
+            StringBuilder sql = new StringBuilder("INSERT INTO video_views (video_id, viewed_at) VALUES ");
+            List<Object> args = new ArrayList<>((to - from) * 2);
+            for (int i = from; i < to; i++) {
+                sql.append(i == from ? "(?, ?)" : ", (?, ?)");
+                args.add(videoIds.get(i));
+                args.add(Timestamp.valueOf(viewedAt.get(i)));
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return inserted;
+    }
+
+    protected int addToCounter(String column, Map<Long, Long> deltas) {
+        return addToCounter(column, null, deltas);
+    }
+
+    protected int addToCounter(String column, String touchedColumn, Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        // Sortiranje po id-u drži redosled zaključavanja redova istim na obe replike (nema deadlock-a)
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(new TreeMap<>(deltas).entrySet());
+        int updated = 0;
+
+        for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_ROWS_PER_STATEMENT, entries.size());
+
+            StringBuilder sql = new StringBuilder("UPDATE videos v SET ")
+                    .append(column).append(" = COALESCE(v.").append(column).append(", 0) + d.delta");
+            if (touchedColumn != null) {
+                sql.append(", ").append(touchedColumn).append(" = now()");
+            }
+            sql.append(" FROM (VALUES ");
+            List<Object> args = new ArrayList<>((to - from) * 2);
+            for (int i = from; i < to; i++) {
+                sql.append(i == from ? "(CAST(? AS bigint), CAST(? AS bigint))" : ", (CAST(? AS bigint), CAST(? AS bigint))");
+                args.add(entries.get(i).getKey());
+                args.add(entries.get(i).getValue());
+            }
+            sql.append(") AS d(id, delta) WHERE v.id = d.id");
+
+            updated += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.jutjubic.repository;
+
+import com.example.jutjubic.model.VideoRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface VideoRenditionRepository extends JpaRepository<VideoRendition, Long> {
+
+    List<VideoRendition> findByVideoIdOrderByBandwidthAsc(Long videoId);
+
+    Optional<VideoRendition> findByVideoIdAndName(Long videoId, String name);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE VideoRendition r SET r.status = :status, r.updatedAt = :now " +
+            "WHERE r.video.id = :videoId AND r.name = :name")
+    int updateStatus(@Param("videoId") Long videoId, @Param("name") String name,
+                     @Param("status") String status, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE VideoRendition r SET r.status = :status, r.playlistPath = :path, r.resolution = :resolution, " +
+            "r.updatedAt = :now WHERE r.video.id = :videoId AND r.name = :name")
+    int updateResult(@Param("videoId") Long videoId, @Param("name") String name, @Param("status") String status,
+                     @Param("path") String path, @Param("resolution") String resolution,
+                     @Param("now") LocalDateTime now);
+}
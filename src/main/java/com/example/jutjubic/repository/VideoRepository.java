@@ -1,28 +1,93 @@
 package com.example.jutjubic.repository;
 
+import com.example.jutjubic.dto.VideoGeoPoint;
+import com.example.jutjubic.dto.VideoResponse;
 import com.example.jutjubic.model.Video;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface VideoRepository extends JpaRepository<Video, Long> {
 
-    List<Video> findAllByOrderByCreatedAtDesc();
+    String FEED_PROJECTION = "SELECT new com.example.jutjubic.dto.VideoResponse(" +
+            "v.id, v.title, v.description, v.thumbnailPath, v.videoPath, u.username, u.id, v.createdAt, " +
+            "v.viewCount, v.location, v.scheduledDateTime, v.isScheduled, v.durationSeconds, " +
+            "v.transcodedVideoPath, v.transcodingStatus, v.hlsMasterPath) " +
+            "FROM Video v JOIN v.user u ";
 
-    List<Video> findByUserIdOrderByCreatedAtDesc(Long userId);
+    String FEED_VISIBLE = "(v.isScheduled IS NULL OR v.isScheduled = false OR v.scheduledDateTime < :now) ";
+
+    // createdAt <= :createdAt je redundantan uslov koji omogućava da indeks krene od kursora
+    String FEED_AFTER_CURSOR = "AND v.createdAt <= :createdAt " +
+            "AND (v.createdAt < :createdAt OR v.id < :id) ";
+
+    String FEED_ORDER = "ORDER BY v.createdAt DESC, v.id DESC";
+
+    String GEO_POINT_PROJECTION = "SELECT new com.example.jutjubic.dto.VideoGeoPoint(" +
+            "v.id, v.latitude, v.longitude, v.title, v.thumbnailPath, v.createdAt, v.viewCount, u.username) " +
+            "FROM Video v LEFT JOIN v.user u WHERE v.latitude IS NOT NULL AND v.longitude IS NOT NULL ";
+
+    @Query(FEED_PROJECTION + "WHERE " + FEED_VISIBLE + FEED_ORDER)
+    List<VideoResponse> findFeedFirstPage(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query(FEED_PROJECTION + "WHERE " + FEED_VISIBLE + FEED_AFTER_CURSOR + FEED_ORDER)
+    List<VideoResponse> findFeedAfter(@Param("now") LocalDateTime now,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    @Query(FEED_PROJECTION + "WHERE u.id = :userId AND " + FEED_VISIBLE + FEED_ORDER)
+    List<VideoResponse> findUserFeedFirstPage(@Param("userId") Long userId,
+                                              @Param("now") LocalDateTime now,
+                                              Pageable pageable);
+
+    @Query(FEED_PROJECTION + "WHERE u.id = :userId AND " + FEED_VISIBLE + FEED_AFTER_CURSOR + FEED_ORDER)
+    List<VideoResponse> findUserFeedAfter(@Param("userId") Long userId,
+                                          @Param("now") LocalDateTime now,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+
+    @Query("SELECT v.id, t.name FROM Video v JOIN v.tags t WHERE v.id IN :ids")
+    List<Object[]> findTagNamesByVideoIds(@Param("ids") Collection<Long> ids);
+
+    long countByUserId(Long userId);
+
+    @Query("SELECT v FROM Video v JOIN FETCH v.user WHERE v.id IN :ids")
+    List<Video> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
 
     @Modifying
     @Transactional
     @Query("UPDATE Video v SET v.viewCount = v.viewCount + 1 WHERE v.id = :id")
     int incrementViewCount(@Param("id") Long id);
 
+    // NULL (nepopunjen brojač) ostaje NULL, pa ga popunjavanje kasnije ne udvostruči
+    @Modifying
+    @Query("UPDATE Video v SET v.commentCount = v.commentCount + 1 WHERE v.id = :id")
+    int incrementCommentCount(@Param("id") Long id);
+
+    @Query("SELECT v.commentCount FROM Video v WHERE v.id = :id")
+    Long findCommentCount(@Param("id") Long id);
+
+    @Modifying
+    @Query(value = "UPDATE videos v SET comment_count = " +
+            "(SELECT COUNT(*) FROM comments c WHERE c.video_id = v.id) " +
+            "WHERE v.comment_count IS NULL", nativeQuery = true)
+    int initMissingCommentCounts();
+
     @Query("SELECT v FROM Video v WHERE v.latitude IS NOT NULL " +
             "AND v.latitude BETWEEN :minLat AND :maxLat " +
             "AND v.longitude BETWEEN :minLon AND :maxLon")
@@ -33,8 +98,12 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
             @Param("maxLon") double maxLon
     );
 
-    @Query("SELECT v FROM Video v WHERE v.latitude IS NOT NULL AND v.longitude IS NOT NULL")
-    List<Video> findAllWithLocation();
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query(GEO_POINT_PROJECTION)
+    Stream<VideoGeoPoint> streamGeoPoints();
+
+    @Query(GEO_POINT_PROJECTION + "AND v.createdAt >= :since")
+    List<VideoGeoPoint> findGeoPointsCreatedSince(@Param("since") LocalDateTime since);
 
     @Query("SELECT COUNT(v) FROM Video v WHERE v.latitude IS NOT NULL AND v.longitude IS NOT NULL")
     long countVideosWithLocation();
@@ -54,4 +123,33 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
     @Transactional
     @Query("UPDATE Video v SET v.transcodingStatus = :status WHERE v.id = :id")
     void updateTranscodingStatus(@Param("id") Long id, @Param("status") String status);
+
+    // Prelaz statusa koji ne prepisuje otkazivanje; 0 znači da je job u međuvremenu otkazan
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.transcodingStatus = :status WHERE v.id = :id " +
+            "AND (v.transcodingStatus IS NULL OR v.transcodingStatus <> 'CANCELLED')")
+    int updateTranscodingStatusUnlessCancelled(@Param("id") Long id, @Param("status") String status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.transcodedVideoPath = :path WHERE v.id = :id")
+    void updateTranscodedVideoPath(@Param("id") Long id, @Param("path") String path);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.transcodingStatus = 'CANCELLED' WHERE v.id = :id AND v.user.id = :userId " +
+            "AND v.transcodingStatus IN ('PENDING', 'IN_PROGRESS')")
+    int cancelTranscoding(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT v.transcodingStatus FROM Video v WHERE v.id = :id")
+    String findTranscodingStatusById(@Param("id") Long id);
+
+    @Query("SELECT v.id FROM Video v WHERE v.id IN :ids AND v.transcodingStatus = :status")
+    List<Long> findIdsByIdInAndTranscodingStatus(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.hlsMasterPath = :path WHERE v.id = :id")
+    void updateHlsMasterPath(@Param("id") Long id, @Param("path") String path);
 }
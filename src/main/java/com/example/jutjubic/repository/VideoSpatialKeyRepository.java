@@ -0,0 +1,102 @@
+package com.example.jutjubic.repository;
+
+import com.example.jutjubic.dto.VideoGeoPoint;
+import com.example.jutjubic.util.HilbertCurve;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Upiti nad videos.spatial_key: bbox -> nekoliko opsega Hilbertovog ključa (BitmapOr range scan-ova
+// nad idx_videos_spatial_key), pa tačan filter po lat/lon samo nad tim redovima
+@Repository
+public class VideoSpatialKeyRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+    // Najviše ćelija krive po upitu; susedne se spajaju, pa je opsega obično znatno manje
+    private static final int MAX_CELLS = 32;
+
+    public record MissingKey(long id, double latitude, double longitude) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Isti rezultat kao VideoRepository.findByLocationWithinBounds, kao VideoGeoPoint projekcija.
+    // Geotagovani redovi bez ključa (pre backfill-a) ulaze preko IS NULL grane, koju pokriva parcijalni
+    // idx_videos_missing_spatial_key - videi bez lokacije u njega ne ulaze, pa je posle backfill-a prazan.
+    public List<VideoGeoPoint> findGeoPointsWithinBounds(double minLat, double minLon, double maxLat, double maxLon) {
+        List<long[]> ranges = HilbertCurve.ranges(minLat, minLon, maxLat, maxLon, MAX_CELLS);
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT v.id, v.latitude, v.longitude, v.title, v.thumbnail_path, v.created_at, v.view_count, u.username " +
+                "FROM videos v LEFT JOIN users u ON u.id = v.user_id WHERE ((v.spatial_key IS NULL " +
+                "AND v.latitude IS NOT NULL AND v.longitude IS NOT NULL)");
+        List<Object> args = new ArrayList<>(ranges.size() * 2 + 4);
+        for (long[] range : ranges) {
+            sql.append(" OR v.spatial_key BETWEEN ? AND ?");
+            args.add(range[0]);
+            args.add(range[1]);
+        }
+        sql.append(") AND v.latitude BETWEEN ? AND ? AND v.longitude BETWEEN ? AND ?");
+        args.add(minLat);
+        args.add(maxLat);
+        args.add(minLon);
+        args.add(maxLon);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            return new VideoGeoPoint(
+                    rs.getLong("id"),
+                    rs.getDouble("latitude"),
+                    rs.getDouble("longitude"),
+                    rs.getString("title"),
+                    rs.getString("thumbnail_path"),
+                    createdAt != null ? createdAt.toLocalDateTime() : null,
+                    rs.getLong("view_count"),
+                    rs.getString("username"));
+        }, args.toArray());
+    }
+
+    // JPA @Index ne podržava WHERE, pa se parcijalni indeks pravi pri startu
+    public void ensureMissingKeyIndex() {
+        jdbcTemplate.execute(
+                "CREATE INDEX IF NOT EXISTS idx_videos_missing_spatial_key ON videos (latitude, longitude) " +
+                "WHERE spatial_key IS NULL AND latitude IS NOT NULL AND longitude IS NOT NULL");
+    }
+
+    public List<MissingKey> findMissingKeys(int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, latitude, longitude FROM videos " +
+                "WHERE spatial_key IS NULL AND latitude IS NOT NULL AND longitude IS NOT NULL " +
+                "ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new MissingKey(rs.getLong("id"), rs.getDouble("latitude"), rs.getDouble("longitude")),
+                limit);
+    }
+
+    public int updateKeys(Map<Long, Long> keys) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(new TreeMap<>(keys).entrySet());
+        int updated = 0;
+
+        for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_ROWS_PER_STATEMENT, entries.size());
+
+            StringBuilder sql = new StringBuilder("UPDATE videos v SET spatial_key = k.spatial_key FROM (VALUES ");
+            List<Object> args = new ArrayList<>((to - from) * 2);
+            for (int i = from; i < to; i++) {
+                sql.append(i == from ? "(CAST(? AS bigint), CAST(? AS bigint))" : ", (CAST(? AS bigint), CAST(? AS bigint))");
+                args.add(entries.get(i).getKey());
+                args.add(entries.get(i).getValue());
+            }
+            sql.append(") AS k(id, spatial_key) WHERE v.id = k.id AND v.spatial_key IS NULL");
+
+            updated += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.jutjubic.repository;
+
+import com.example.jutjubic.model.VideoViewDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface VideoViewDailyRepository extends JpaRepository<VideoViewDaily, VideoViewDaily.Key> {
+
+    @Modifying
+    @Query(value = "INSERT INTO video_view_daily (video_id, view_date, view_count) " +
+            "SELECT vv.video_id, CAST(vv.viewed_at AS date), COUNT(*) FROM video_views vv " +
+            "WHERE vv.id > :fromId AND vv.id <= :toId " +
+            "GROUP BY vv.video_id, CAST(vv.viewed_at AS date) " +
+            "ON CONFLICT (video_id, view_date) DO UPDATE " +
+            "SET view_count = video_view_daily.view_count + EXCLUDED.view_count", nativeQuery = true)
+    int rollUpViews(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Težina 8 - daysAgo za poslednjih 7 dana, 1 za stariji dan - iste težine kao ranije po pojedinačnom pregledu
+    @Query(value = "SELECT d.video_id, SUM(d.view_count * CASE WHEN CAST(:today AS date) - d.view_date >= 7 THEN 1 " +
+            "ELSE 8 - (CAST(:today AS date) - d.view_date) END) AS score " +
+            "FROM video_view_daily d WHERE d.view_date >= CAST(:since AS date) " +
+            "GROUP BY d.video_id ORDER BY score DESC, d.video_id ASC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findTopScores(@Param("today") LocalDate today, @Param("since") LocalDate since,
+                                 @Param("limit") int limit);
+
+    // Dnevni brojevi od datuma: rollup plus pregledi posle watermark-a, u jednom upitu da bi
+    // oba dela videla isti snapshot baze
+    @Query(value = "SELECT t.video_id, t.view_date, SUM(t.cnt) FROM (" +
+            "SELECT d.video_id, d.view_date, d.view_count AS cnt FROM video_view_daily d " +
+            "WHERE d.view_date >= CAST(:since AS date) " +
+            "UNION ALL " +
+            "SELECT vv.video_id, CAST(vv.viewed_at AS date), COUNT(*) FROM video_views vv " +
+            "WHERE vv.id > COALESCE((SELECT w.last_id FROM etl_watermarks w WHERE w.name = 'video_view_daily'), 0) " +
+            "AND vv.viewed_at >= CAST(:since AS timestamp) " +
+            "GROUP BY vv.video_id, CAST(vv.viewed_at AS date)" +
+            ") t GROUP BY t.video_id, t.view_date", nativeQuery = true)
+    List<Object[]> findDailyCountsSince(@Param("since") LocalDate since);
+
+    @Modifying
+    @Query("DELETE FROM VideoViewDaily d WHERE d.viewDate < :before")
+    int deleteOlderThan(@Param("before") LocalDate before);
+}
@@ -3,15 +3,13 @@ package com.example.jutjubic.repository;
 import com.example.jutjubic.model.VideoView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
-import java.util.List;
-
 @Repository
 public interface VideoViewRepository extends JpaRepository<VideoView, Long> {
 
-    @Query("SELECT vv FROM VideoView vv WHERE vv.viewedAt >= :startDate")
-    List<VideoView> findViewsSince(@Param("startDate") LocalDateTime startDate);
+    // Id-jevi se dodeljuju pri insert-u, a ne pri commit-u, pa ovo nije sigurna granica sama po sebi:
+    // svi manji id-jevi su već dodeljeni, ali njihove transakcije možda još nisu commit-ovane
+    @Query(value = "SELECT COALESCE(MAX(vv.id), 0) FROM video_views vv", nativeQuery = true)
+    Long findMaxVisibleId();
 }
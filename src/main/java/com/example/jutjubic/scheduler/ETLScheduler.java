@@ -16,12 +16,14 @@ public class ETLScheduler {
     private ETLService etlService;
 
 
+    // Popularne video snimke sada računa TrendingService u memoriji; ETL samo održava dnevni
+    // rollup iz kog se trending obnavlja pri startu i resync-u
     @Scheduled(cron = "0 * * * * *")
     public void scheduleETLPipelineForTesting() {
-        logger.info("ETL Scheduler triggered - starting ETL pipeline for testing");
+        logger.info("ETL Scheduler triggered - rolling up new views");
         try {
-            etlService.runETLPipeline();
-            logger.info("ETL Scheduler completed successfully");
+            long rolledUp = etlService.rollUpNewViews();
+            logger.info("ETL Scheduler completed successfully, {} new views", rolledUp);
         } catch (Exception e) {
             logger.error("ETL Scheduler failed: {}", e.getMessage(), e);
         }
@@ -0,0 +1,92 @@
+package com.example.jutjubic.scheduler;
+
+import com.example.jutjubic.service.TranscodingConsumer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+// Broj paralelnih FFmpeg job-ova prema broju jezgara i trenutnom load average-u.
+// Smanjivanje ne prekida job u toku - consumer se gasi tek kad završi poruku.
+@Component
+public class TranscodingConcurrencyScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscodingConcurrencyScheduler.class);
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${transcoding.scheduler.threads-per-job:2}")
+    private int threadsPerJob;
+
+    @Value("${transcoding.scheduler.initial-concurrency:2}")
+    private int initialConcurrency;
+
+    @Value("${transcoding.scheduler.max-concurrency:0}")
+    private int configuredMaxConcurrency;
+
+    @Value("${transcoding.scheduler.load-high:0.9}")
+    private double loadHigh;
+
+    @Value("${transcoding.scheduler.load-low:0.6}")
+    private double loadLow;
+
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private volatile int concurrency;
+
+    @PostConstruct
+    public void init() {
+        concurrency = initialConcurrency;
+        Gauge.builder("transcoding_consumer_concurrency", this, s -> s.concurrency)
+                .description("Trenutni broj paralelnih transcoding consumer-a")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${transcoding.scheduler.tune-interval-ms:15000}",
+            initialDelayString = "${transcoding.scheduler.tune-interval-ms:15000}")
+    public void adjustConcurrency() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(TranscodingConsumer.LISTENER_ID);
+        if (!(container instanceof SimpleMessageListenerContainer simpleContainer)) {
+            return;
+        }
+
+        int ceiling = maxConcurrency();
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        int target = concurrency;
+
+        if (load < 0) {
+            // Load average nije dostupan na svim platformama - oslanjamo se samo na broj jezgara
+            target = ceiling;
+        } else if (load > cores * loadHigh) {
+            target = concurrency - 1;
+        } else if (load < cores * loadLow) {
+            target = concurrency + 1;
+        }
+        target = Math.max(1, Math.min(ceiling, target));
+
+        if (target != concurrency) {
+            logger.info("Transcoding paralelizam {} -> {} (load {}, jezgra {})",
+                    concurrency, target, String.format("%.2f", load), cores);
+            simpleContainer.setConcurrentConsumers(target);
+            concurrency = target;
+        }
+    }
+
+    private int maxConcurrency() {
+        int byCores = Math.max(1, cores / Math.max(1, threadsPerJob));
+        return configuredMaxConcurrency > 0 ? Math.min(configuredMaxConcurrency, byCores) : byCores;
+    }
+}
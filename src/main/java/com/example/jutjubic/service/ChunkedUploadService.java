@@ -0,0 +1,377 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.UploadSession;
+import com.example.jutjubic.dto.UploadSessionRequest;
+import com.example.jutjubic.model.User;
+import com.example.jutjubic.model.Video;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Nastavljiv upload u delovima: chunk-ovi se pišu direktno na disk na svoj offset,
+// a transakcija se otvara tek na complete() samo za INSERT video zapisa
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final String SESSION_FILE = "session.json";
+    private static final String DATA_FILE = "data.part";
+    private static final Pattern UPLOAD_ID = Pattern.compile("^[0-9a-f]{32}$");
+    private static final Pattern SHA256_HEX = Pattern.compile("^[0-9a-fA-F]{64}$");
+    private static final long MIN_CHUNK_SIZE = 256 * 1024;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Value("${uploads.chunked.chunk-size:8388608}")
+    private long defaultChunkSize;
+
+    @Value("${uploads.chunked.max-chunk-size:33554432}")
+    private long maxChunkSize;
+
+    @Value("${uploads.chunked.max-size:209715200}")
+    private long maxUploadSize;
+
+    @Value("${uploads.chunked.expire-minutes:1440}")
+    private long expireMinutes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final ConcurrentHashMap<String, ReentrantLock> sessionLocks = new ConcurrentHashMap<>();
+
+    public UploadSession createSession(User user, UploadSessionRequest request) throws IOException {
+        if (request.getTitle() == null || request.getTitle().isBlank()) {
+            throw new IllegalArgumentException("Naslov je obavezan");
+        }
+        if (request.getFileName() == null || !request.getFileName().toLowerCase().endsWith(".mp4")) {
+            throw new IllegalArgumentException("Only MP4 videos are allowed");
+        }
+        if (request.getTotalSize() == null || request.getTotalSize() <= 0) {
+            throw new IllegalArgumentException("Veličina fajla mora biti veća od 0");
+        }
+        if (request.getTotalSize() > maxUploadSize) {
+            throw new IllegalArgumentException("Video size exceeds " + maxUploadSize / (1024 * 1024) + "MB limit");
+        }
+        if (request.getSha256() != null && !SHA256_HEX.matcher(request.getSha256()).matches()) {
+            throw new IllegalArgumentException("sha256 mora biti heksadecimalni SHA-256");
+        }
+
+        long chunkSize = request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize;
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("Veličina chunk-a mora biti između " + MIN_CHUNK_SIZE
+                    + " i " + maxChunkSize + " bajtova");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setUploadId(UUID.randomUUID().toString().replace("-", ""));
+        session.setUserId(user.getId());
+        session.setTitle(request.getTitle());
+        session.setDescription(request.getDescription());
+        session.setTags(request.getTags());
+        session.setLocation(request.getLocation());
+        session.setLatitude(request.getLatitude());
+        session.setLongitude(request.getLongitude());
+        session.setScheduledDateTime(request.getScheduledDateTime());
+        session.setDurationSeconds(request.getDurationSeconds());
+        session.setFileName(request.getFileName());
+        session.setTotalSize(request.getTotalSize());
+        session.setChunkSize(chunkSize);
+        session.setSha256(request.getSha256() != null ? request.getSha256().toLowerCase() : null);
+        session.setCreatedAt(LocalDateTime.now());
+        session.setLastActivity(LocalDateTime.now());
+
+        Path sessionDir = sessionDir(session.getUploadId());
+        Files.createDirectories(sessionDir);
+
+        // Fajl odmah dobija punu (sparse) veličinu jer transferFrom ne piše iza kraja fajla,
+        // pa chunk-ovi mogu da stižu bilo kojim redosledom
+        try (RandomAccessFile data = new RandomAccessFile(sessionDir.resolve(DATA_FILE).toFile(), "rw")) {
+            data.setLength(session.getTotalSize());
+        }
+        saveSession(session);
+
+        logger.info("Kreirana upload sesija {} ({} bajtova, {} chunk-ova)",
+                session.getUploadId(), session.getTotalSize(), session.getTotalChunks());
+        return session;
+    }
+
+    public UploadSession getSession(String uploadId, User user) throws IOException {
+        UploadSession session = loadSession(uploadId);
+        checkOwner(session, user);
+        return session;
+    }
+
+    public UploadSession writeChunk(String uploadId, User user, int index, long offset,
+                                    InputStream body, long contentLength) throws IOException {
+        UploadSession session = getSession(uploadId, user);
+
+        if (index < 0 || index >= session.getTotalChunks()) {
+            throw new IllegalArgumentException("Chunk " + index + " je van opsega 0-" + (session.getTotalChunks() - 1));
+        }
+        if (offset != (long) index * session.getChunkSize()) {
+            throw new IllegalArgumentException("Offset " + offset + " ne odgovara chunk-u " + index);
+        }
+
+        long expectedLength = session.chunkLength(index);
+        if (contentLength >= 0 && contentLength != expectedLength) {
+            throw new IllegalArgumentException("Chunk " + index + " mora imati " + expectedLength + " bajtova");
+        }
+
+        // Pozicioni upis - paralelni chunk-ovi iste sesije pišu u različite regione istog fajla
+        Path dataFile = sessionDir(uploadId).resolve(DATA_FILE);
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.WRITE)) {
+            ReadableByteChannel source = Channels.newChannel(body);
+            long written = 0;
+            while (written < expectedLength) {
+                long transferred = channel.transferFrom(source, offset + written, expectedLength - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            if (written != expectedLength || body.read() != -1) {
+                throw new IllegalArgumentException("Chunk " + index + " nije kompletan: očekivano "
+                        + expectedLength + " bajtova");
+            }
+        }
+
+        ReentrantLock lock = lockFor(uploadId);
+        lock.lock();
+        try {
+            UploadSession current = loadSession(uploadId);
+            current.getReceivedChunks().add(index);
+            current.setLastActivity(LocalDateTime.now());
+            saveSession(current);
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Video complete(String uploadId, User user, MultipartFile thumbnail) throws IOException {
+        if (thumbnail == null || thumbnail.isEmpty()) {
+            throw new IllegalArgumentException("Thumbnail je obavezan");
+        }
+
+        ReentrantLock lock = lockFor(uploadId);
+        lock.lock();
+        try {
+            UploadSession session = getSession(uploadId, user);
+            if (!session.isComplete()) {
+                throw new IllegalStateException("Nedostaje " + (session.getTotalChunks() - session.getReceivedChunks().size())
+                        + " od " + session.getTotalChunks() + " chunk-ova");
+            }
+
+            Path dataFile = sessionDir(uploadId).resolve(DATA_FILE);
+            if (Files.size(dataFile) != session.getTotalSize()) {
+                throw new IllegalStateException("Veličina sastavljenog fajla ne odgovara najavljenoj");
+            }
+
+            if (session.getSha256() != null && !session.getSha256().equals(sha256(dataFile))) {
+                // Ne znamo koji chunk je oštećen - klijent šalje sve ponovo
+                session.setReceivedChunks(new TreeSet<>());
+                session.setLastActivity(LocalDateTime.now());
+                saveSession(session);
+                throw new IllegalArgumentException("SHA-256 sastavljenog fajla se ne poklapa, pošaljite chunk-ove ponovo");
+            }
+
+            Video savedVideo;
+            byte[] thumbnailBytes;
+            String videoPath = null;
+            try {
+                String thumbnailPath = fileStorageService.storeThumbnail(thumbnail);
+                videoPath = fileStorageService.storeUploadedVideo(dataFile);
+                thumbnailBytes = thumbnail.getBytes();
+
+                savedVideo = videoService.createVideoRecord(
+                        session.getTitle(), session.getDescription(), session.getTags(),
+                        thumbnailPath, videoPath, session.getLocation(), session.getLatitude(),
+                        session.getLongitude(), user, session.getScheduledDateTime(), session.getDurationSeconds()
+                );
+                fileStorageService.clearUploadTracking();
+            } catch (Exception e) {
+                restoreDataFile(session, dataFile, videoPath);
+                fileStorageService.deleteAllFiles();
+                throw new RuntimeException("Video upload failed: " + e.getMessage(), e);
+            }
+
+            deleteSessionDir(sessionDir(uploadId));
+            videoService.publishUploadedVideo(savedVideo, thumbnailBytes, session.getTotalSize());
+
+            logger.info("Upload sesija {} završena, video ID: {}", uploadId, savedVideo.getId());
+            return savedVideo;
+        } finally {
+            lock.unlock();
+            sessionLocks.remove(uploadId, lock);
+        }
+    }
+
+    // Posle neuspelog complete sesija mora ostati upotrebljiva: sastavljeni fajl se vraća na mesto, a ako
+    // ni to ne uspe, pravi se novi prazan i chunk-ovi se šalju ponovo, kao kod pogrešnog SHA-256
+    private void restoreDataFile(UploadSession session, Path dataFile, String movedTo) {
+        if (Files.exists(dataFile)) {
+            return;
+        }
+        if (movedTo != null) {
+            try {
+                Files.move(Path.of(movedTo), dataFile);
+                return;
+            } catch (IOException e) {
+                logger.warn("Sastavljeni fajl sesije {} nije vraćen: {}", session.getUploadId(), e.getMessage());
+            }
+        }
+        try {
+            try (RandomAccessFile data = new RandomAccessFile(dataFile.toFile(), "rw")) {
+                data.setLength(session.getTotalSize());
+            }
+            session.setReceivedChunks(new TreeSet<>());
+            session.setLastActivity(LocalDateTime.now());
+            saveSession(session);
+        } catch (IOException e) {
+            logger.error("Upload sesija {} nije vraćena u početno stanje: {}", session.getUploadId(), e.getMessage());
+        }
+    }
+
+    public void cancel(String uploadId, User user) throws IOException {
+        getSession(uploadId, user);
+        deleteSessionDir(sessionDir(uploadId));
+        sessionLocks.remove(uploadId);
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.chunked.cleanup-interval-ms:600000}")
+    public void expireAbandonedSessions() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(expireMinutes);
+        int expired = 0;
+
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(fileStorageService.getChunkedUploadDir())) {
+            for (Path dir : dirs) {
+                if (!Files.isDirectory(dir)) {
+                    continue;
+                }
+                LocalDateTime lastActivity;
+                try {
+                    lastActivity = readSession(dir.resolve(SESSION_FILE)).getLastActivity();
+                } catch (IOException e) {
+                    lastActivity = null;
+                }
+                if (lastActivity == null || lastActivity.isBefore(threshold)) {
+                    deleteSessionDir(dir);
+                    sessionLocks.remove(dir.getFileName().toString());
+                    expired++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Greška pri čišćenju upload sesija: {}", e.getMessage());
+        }
+
+        if (expired > 0) {
+            logger.info("Obrisano {} napuštenih upload sesija", expired);
+        }
+    }
+
+    private Path sessionDir(String uploadId) throws IOException {
+        if (uploadId == null || !UPLOAD_ID.matcher(uploadId).matches()) {
+            throw new IllegalArgumentException("Upload sesija ne postoji");
+        }
+        return fileStorageService.getChunkedUploadDir().resolve(uploadId);
+    }
+
+    private UploadSession loadSession(String uploadId) throws IOException {
+        Path sessionFile = sessionDir(uploadId).resolve(SESSION_FILE);
+        if (!Files.exists(sessionFile)) {
+            throw new IllegalArgumentException("Upload sesija ne postoji");
+        }
+        return readSession(sessionFile);
+    }
+
+    private UploadSession readSession(Path sessionFile) throws IOException {
+        return objectMapper.readValue(sessionFile.toFile(), UploadSession.class);
+    }
+
+    // Upis preko privremenog fajla - session.json nikad nije polovično upisan
+    private void saveSession(UploadSession session) throws IOException {
+        Path dir = sessionDir(session.getUploadId());
+        Path temp = dir.resolve(SESSION_FILE + ".tmp");
+        objectMapper.writeValue(temp.toFile(), session);
+        Files.move(temp, dir.resolve(SESSION_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void checkOwner(UploadSession session, User user) {
+        if (!session.getUserId().equals(user.getId())) {
+            throw new IllegalArgumentException("Upload sesija ne postoji");
+        }
+    }
+
+    private ReentrantLock lockFor(String uploadId) {
+        return sessionLocks.computeIfAbsent(uploadId, id -> new ReentrantLock());
+    }
+
+    private String sha256(Path file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[1024 * 1024];
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nije dostupan", e);
+        }
+    }
+
+    private void deleteSessionDir(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Ne mogu da obrišem {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Ne mogu da obrišem upload sesiju {}: {}", dir, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.CommentAttemptMessage;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+@Service
+@ConditionalOnProperty(name = "comments.rate-limit.cluster.enabled", havingValue = "true")
+public class CommentRateLimitClusterListener {
+
+    @Autowired
+    private CommentRateLimitService rateLimitService;
+
+    @RabbitListener(queues = "#{commentRateLimitQueue.name}",
+            containerFactory = "commentRateLimitListenerContainerFactory")
+    public void onCommentAttempt(CommentAttemptMessage message) {
+        rateLimitService.recordRemoteAttempt(message);
+    }
+}
@@ -1,120 +1,210 @@
 package com.example.jutjubic.service;
 
-import com.example.jutjubic.model.CommentAttempt;
-import com.example.jutjubic.repository.CommentAttemptRepository;
+import com.example.jutjubic.config.CommentRateLimitClusterConfig;
+import com.example.jutjubic.dto.CommentAttemptMessage;
+import com.example.jutjubic.repository.CommentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+// Klizni prozor bez zaključavanja: po korisniku nepromenljiv sortiran niz vremena (ms) poslednjih
+// najviše MAX_COMMENTS_PER_HOUR komentara iza AtomicReference, a zauzimanje mesta je CAS nove kopije.
+// Niz se pri prvom korišćenju puni iz comments, pa limit važi i posle restarta i za komentare sa
+// druge replike pre tog trenutka; u cluster modu replike razmenjuju i nove komentare preko RabbitMQ-a.
 @Service
 public class CommentRateLimitService {
 
-    private static final int MAX_COMMENTS_PER_HOUR = 60;
-    private static final int TIME_WINDOW_HOURS = 1;
+    private static final Logger logger = LoggerFactory.getLogger(CommentRateLimitService.class);
+
+    public static final long REJECTED = -1;
+    static final int MAX_COMMENTS_PER_HOUR = 60;
+    private static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long[] EMPTY = new long[0];
 
     @Autowired
-    private CommentAttemptRepository commentAttemptRepository;
+    private CommentRepository commentRepository;
 
-    private final ConcurrentHashMap<Long, AtomicInteger> userCommentCounters = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Long, LocalDateTime> userWindowStartTimes = new ConcurrentHashMap<>();
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
 
-    @CacheEvict(value = "commentRateLimit", key = "#userId")
-    public synchronized void recordCommentAttempt(Long userId) {
-        incrementUserCounter(userId);
-        saveAttemptAsync(userId);
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${comments.rate-limit.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    // Poruke sopstvene replike se preskaču po ovom id-ju (INSTANCE_ID nije obavezno jedinstven)
+    private final String origin = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<Long, AtomicReference<long[]>> windows = new ConcurrentHashMap<>();
+
+    private Counter rejected;
+    private Counter publishFailures;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("comment_rate_limit_tracked_users", windows, ConcurrentHashMap::size)
+                .description("Broj korisnika sa kliznim prozorom komentara u memoriji")
+                .register(meterRegistry);
+        rejected = Counter.builder("comment_rate_limit_rejected")
+                .description("Komentari odbijeni zbog limita od 60 po satu")
+                .register(meterRegistry);
+        publishFailures = Counter.builder("comment_rate_limit_publish_failures")
+                .description("Komentari koji nisu javljeni drugoj replici u cluster modu")
+                .register(meterRegistry);
     }
 
-    @Cacheable(value = "commentRateLimit", key = "#userId")
-    public boolean isRateLimited(Long userId) {
-        if (isLimitedByMemoryCounter(userId)) {
-            return true;
+    // Zauzima mesto u prozoru i vraća njegovo vreme (za confirm/release), ili REJECTED kad je limit dostignut
+    public long tryAcquire(Long userId) {
+        AtomicReference<long[]> window = window(userId);
+        while (true) {
+            long now = System.currentTimeMillis();
+            long[] current = window.get();
+            long[] live = trim(current, now - WINDOW_MILLIS);
+            if (live.length >= MAX_COMMENTS_PER_HOUR) {
+                window.compareAndSet(current, live);
+                rejected.increment();
+                return REJECTED;
+            }
+            if (window.compareAndSet(current, insert(live, now))) {
+                return now;
+            }
         }
+    }
 
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(TIME_WINDOW_HOURS);
-        List<CommentAttempt> recentAttempts = commentAttemptRepository
-                .findRecentAttemptsByUser(userId, oneHourAgo);
-
-        if (!recentAttempts.isEmpty()) {
-            userCommentCounters.put(userId, new AtomicInteger(recentAttempts.size()));
-            userWindowStartTimes.put(userId, LocalDateTime.now());
+    // Komentar je sačuvan - u cluster modu javlja se drugoj replici
+    public void confirm(Long userId, long acquiredAt) {
+        if (!clusterEnabled) {
+            return;
+        }
+        try {
+            rabbitTemplate.convertAndSend(CommentRateLimitClusterConfig.EXCHANGE, "",
+                    new CommentAttemptMessage(origin, userId, acquiredAt));
+        } catch (Exception e) {
+            publishFailures.increment();
+            logger.warn("Komentar korisnika {} nije javljen drugoj replici: {}", userId, e.getMessage());
         }
-
-        return recentAttempts.size() >= MAX_COMMENTS_PER_HOUR;
     }
 
-    public int getRemainingComments(Long userId) {
-        if (userCommentCounters.containsKey(userId)) {
-            LocalDateTime windowStart = userWindowStartTimes.get(userId);
-            if (windowStart != null && windowStart.isAfter(LocalDateTime.now().minusHours(TIME_WINDOW_HOURS))) {
-                int used = userCommentCounters.get(userId).get();
-                return Math.max(0, MAX_COMMENTS_PER_HOUR - used);
+    // Komentar nije sačuvan (rollback) - mesto se vraća
+    public void release(Long userId, long acquiredAt) {
+        AtomicReference<long[]> window = windows.get(userId);
+        if (window == null) {
+            return;
+        }
+        while (true) {
+            long[] current = window.get();
+            int index = Arrays.binarySearch(current, acquiredAt);
+            if (index < 0) {
+                return;
+            }
+            long[] next = new long[current.length - 1];
+            System.arraycopy(current, 0, next, 0, index);
+            System.arraycopy(current, index + 1, next, index, next.length - index);
+            if (window.compareAndSet(current, next)) {
+                return;
             }
         }
-
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(TIME_WINDOW_HOURS);
-        List<CommentAttempt> recentAttempts = commentAttemptRepository
-                .findRecentAttemptsByUser(userId, oneHourAgo);
-
-        int used = recentAttempts.size();
-        return Math.max(0, MAX_COMMENTS_PER_HOUR - used);
     }
 
-    private boolean isLimitedByMemoryCounter(Long userId) {
-        if (!userCommentCounters.containsKey(userId)) {
-            return false;
+    // Komentar sa druge replike; korisnik koji još nije u memoriji ga dobija iz baze pri prvom učitavanju
+    public void recordRemoteAttempt(CommentAttemptMessage message) {
+        if (origin.equals(message.getOrigin())) {
+            return;
         }
-
-        LocalDateTime windowStart = userWindowStartTimes.get(userId);
-        if (windowStart == null) {
-            return false;
+        AtomicReference<long[]> window = windows.get(message.getUserId());
+        if (window == null) {
+            return;
         }
-
-        if (windowStart.isBefore(LocalDateTime.now().minusHours(TIME_WINDOW_HOURS))) {
-            userCommentCounters.remove(userId);
-            userWindowStartTimes.remove(userId);
-            return false;
+        while (true) {
+            long[] current = window.get();
+            long[] next = insert(trim(current, System.currentTimeMillis() - WINDOW_MILLIS), message.getAttemptedAt());
+            if (window.compareAndSet(current, next)) {
+                return;
+            }
         }
+    }
 
-        int currentCount = userCommentCounters.get(userId).get();
-        return currentCount >= MAX_COMMENTS_PER_HOUR;
+    public int getRemainingComments(Long userId) {
+        long[] live = trim(window(userId).get(), System.currentTimeMillis() - WINDOW_MILLIS);
+        return Math.max(0, MAX_COMMENTS_PER_HOUR - live.length);
     }
 
-    private void incrementUserCounter(Long userId) {
-        userCommentCounters.computeIfAbsent(userId, k -> new AtomicInteger(0)).incrementAndGet();
-        userWindowStartTimes.putIfAbsent(userId, LocalDateTime.now());
+    // Korisnici bez komentara u poslednjih sat vremena se izbacuju; zauzimanje koje se preklopi sa
+    // izbacivanjem može da se izgubi iz memorije, ali sačuvan komentar se ponovo učita iz baze
+    @Scheduled(fixedRate = 600000)
+    public void evictIdleUsers() {
+        long cutoff = System.currentTimeMillis() - WINDOW_MILLIS;
+        windows.entrySet().removeIf(entry -> trim(entry.getValue().get(), cutoff).length == 0);
     }
 
-    @Transactional
-    protected void saveAttemptAsync(Long userId) {
-        CommentAttempt attempt = new CommentAttempt(userId, LocalDateTime.now());
-        commentAttemptRepository.save(attempt);
+    public void resetCounters() {
+        windows.clear();
     }
 
-    @Scheduled(fixedRate = 3600000)
-    @Transactional
-    public void cleanOldAttempts() {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
-        commentAttemptRepository.deleteByCreatedAtBefore(cutoff);
-
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(TIME_WINDOW_HOURS);
-        userWindowStartTimes.entrySet().removeIf(entry -> entry.getValue().isBefore(oneHourAgo));
-        userWindowStartTimes.keySet().forEach(userId -> {
-            if (!userWindowStartTimes.containsKey(userId)) {
-                userCommentCounters.remove(userId);
-            }
-        });
+    private AtomicReference<long[]> window(Long userId) {
+        AtomicReference<long[]> window = windows.get(userId);
+        if (window != null) {
+            return window;
+        }
+        // Upit je van CHM lock-a; ako dve niti učitaju istovremeno, ostaje prvi upisani prozor
+        AtomicReference<long[]> loaded = new AtomicReference<>(loadRecent(userId));
+        AtomicReference<long[]> existing = windows.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
     }
 
-    public void resetCounters() {
-        userCommentCounters.clear();
-        userWindowStartTimes.clear();
+    private long[] loadRecent(Long userId) {
+        List<LocalDateTime> recent = commentRepository.findRecentCreatedAtByUser(
+                userId, LocalDateTime.now().minusHours(1), PageRequest.of(0, MAX_COMMENTS_PER_HOUR));
+        if (recent.isEmpty()) {
+            return EMPTY;
+        }
+        long[] attempts = new long[recent.size()];
+        ZoneId zone = ZoneId.systemDefault();
+        for (int i = 0; i < attempts.length; i++) {
+            attempts[i] = recent.get(i).atZone(zone).toInstant().toEpochMilli();
+        }
+        Arrays.sort(attempts);
+        return attempts;
+    }
+
+    private static long[] trim(long[] attempts, long cutoff) {
+        int from = 0;
+        while (from < attempts.length && attempts[from] <= cutoff) {
+            from++;
+        }
+        return from == 0 ? attempts : Arrays.copyOfRange(attempts, from, attempts.length);
+    }
+
+    // Sortiran umetak; prozor zadržava samo najnovijih MAX_COMMENTS_PER_HOUR vremena
+    private static long[] insert(long[] attempts, long at) {
+        int index = Arrays.binarySearch(attempts, at);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        long[] next = new long[attempts.length + 1];
+        System.arraycopy(attempts, 0, next, 0, index);
+        next[index] = at;
+        System.arraycopy(attempts, index, next, index + 1, attempts.length - index);
+        return next.length > MAX_COMMENTS_PER_HOUR
+                ? Arrays.copyOfRange(next, next.length - MAX_COMMENTS_PER_HOUR, next.length)
+                : next;
     }
 }
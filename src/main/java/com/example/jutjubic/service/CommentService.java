@@ -1,72 +1,225 @@
 package com.example.jutjubic.service;
 
 import com.example.jutjubic.dto.CommentResponse;
+import com.example.jutjubic.dto.CursorPageResponse;
 import com.example.jutjubic.model.Comment;
 import com.example.jutjubic.model.User;
 import com.example.jutjubic.model.Video;
 import com.example.jutjubic.repository.CommentRepository;
+import com.example.jutjubic.repository.VideoRepository;
+import com.example.jutjubic.util.KeysetCursor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class CommentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CommentService.class);
+    private static final int DEFAULT_PAGE_SIZE = 10;
+
     @Autowired
     private CommentRepository commentRepository;
 
     @Autowired
     private CommentRateLimitService rateLimitService;
 
-    @Cacheable(value = "comments", key = "#video.id + '-' + #page + '-' + #size")
-    public Map<String, Object> getCommentsPaginated(Video video, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Comment> commentPage = commentRepository.findByVideoOrderByCreatedAtDesc(video, pageable);
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("comments", commentPage.getContent().stream()
-                .map(this::toCommentResponse)
-                .toList());
-        response.put("currentPage", commentPage.getNumber());
-        response.put("totalPages", commentPage.getTotalPages());
-        response.put("totalComments", commentPage.getTotalElements());
-        response.put("hasNext", commentPage.hasNext());
-        response.put("hasPrevious", commentPage.hasPrevious());
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private CommentStreamService commentStreamService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${comments.max-page-size:50}")
+    private int maxPageSize;
+
+    @Value("${comments.cache.max-pages:5000}")
+    private long maxCachedPages;
+
+    private Cache<PageKey, CursorPageResponse<CommentResponse>> pageCache;
+
+    // Stranice komentara po verziji videa: verzija je comment_count, pa svaki novi komentar
+    // (i na drugoj instanci) menja ključeve samo stranica tog videa. Stare verzije ističu same.
+    @PostConstruct
+    public void init() {
+        pageCache = Caffeine.newBuilder()
+                .maximumSize(maxCachedPages)
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pageCache, "comment_pages");
+        Gauge.builder("cache_hit_ratio", pageCache, cache -> cache.stats().hitRate())
+                .tag("cache", "comment_pages")
+                .description("Udeo pogodaka u cache-u")
+                .register(meterRegistry);
+    }
+
+    public CursorPageResponse<CommentResponse> getCommentsPage(Video video, String cursor, int size, boolean includeTotal) {
+        int limit = size < 1 ? DEFAULT_PAGE_SIZE : Math.min(size, maxPageSize);
+        String after = cursor == null || cursor.isEmpty() ? null : cursor;
+        Long version = videoRepository.findCommentCount(video.getId());
+
+        CursorPageResponse<CommentResponse> page = version != null
+                ? pageCache.get(new PageKey(video.getId(), version, after, limit),
+                        key -> loadPage(video.getId(), after, limit))
+                : loadPage(video.getId(), after, limit);
 
+        if (!includeTotal) {
+            return page;
+        }
+        CursorPageResponse<CommentResponse> response =
+                new CursorPageResponse<>(page.getItems(), page.getNextCursor(), page.isHasMore());
+        response.setTotal(version != null ? version : commentRepository.countByVideo(video));
         return response;
     }
 
-    @Transactional
-    @CacheEvict(value = "comments", allEntries = true)
-    public CommentResponse addComment(String text, Video video, User user) {
+    private CursorPageResponse<CommentResponse> loadPage(Long videoId, String cursor, int limit) {
+        PageRequest page = PageRequest.of(0, limit + 1);
 
-        if (rateLimitService.isRateLimited(user.getId())) {
-            throw new RuntimeException("Dostigli ste limit od 60 komentara po satu. Pokušajte ponovo kasnije.");
+        List<Comment> rows;
+        if (cursor == null) {
+            rows = commentRepository.findFirstPage(videoId, page);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = commentRepository.findPageAfter(videoId, after.getCreatedAt(), after.getId(), page);
         }
 
+        // Upit vraća jedan red više od traženog da bi se znalo da li postoji sledeća strana
+        boolean hasMore = rows.size() > limit;
+        List<Comment> comments = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            Comment last = comments.get(comments.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPageResponse<>(comments.stream().map(this::toCommentResponse).toList(), nextCursor, hasMore);
+    }
+
+    @Transactional
+    public CommentResponse addComment(String text, Video video, User user) {
+
         if (text == null || text.trim().isEmpty()) {
             throw new RuntimeException("Komentar ne može biti prazan");
         }
 
+        Long userId = user.getId();
+        long permit = rateLimitService.tryAcquire(userId);
+        if (permit == CommentRateLimitService.REJECTED) {
+            throw new RuntimeException("Dostigli ste limit od 60 komentara po satu. Pokušajte ponovo kasnije.");
+        }
+        // Mesto u prozoru važi samo ako se komentar zaista sačuva
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    rateLimitService.confirm(userId, permit);
+                } else {
+                    rateLimitService.release(userId, permit);
+                }
+            }
+        });
+
         Comment comment = new Comment(text, video, user);
         Comment savedComment = commentRepository.save(comment);
+        videoRepository.incrementCommentCount(video.getId());
+        // Red videa je zaključan do commit-a, pa je ovo tačno verzija sa ovim komentarom
+        Long version = videoRepository.findCommentCount(video.getId());
+
+        CommentResponse response = toCommentResponse(savedComment);
+        Long videoId = video.getId();
+        // Pretplatnici dobijaju komentar tek kad je vidljiv i u /comments/since
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (version != null) {
+                    prependToFirstPages(videoId, version, response);
+                }
+                commentStreamService.publish(videoId, response);
+            }
+        });
+        return response;
+    }
 
-        rateLimitService.recordCommentAttempt(user.getId());
+    // Prva stranica prethodne verzije + novi komentar = prva stranica nove verzije, bez upita
+    private void prependToFirstPages(Long videoId, long version, CommentResponse comment) {
+        for (Map.Entry<PageKey, CursorPageResponse<CommentResponse>> entry : pageCache.asMap().entrySet()) {
+            PageKey key = entry.getKey();
+            if (!key.videoId().equals(videoId) || key.version() != version - 1 || key.cursor() != null) {
+                continue;
+            }
+            CursorPageResponse<CommentResponse> previous = entry.getValue();
+            // Stranica učitana posle ovog commit-a, a pod starom verzijom, već sadrži komentar
+            if (previous.getItems().stream().anyMatch(item -> item.getId().equals(comment.getId()))) {
+                pageCache.put(new PageKey(videoId, version, null, key.limit()), previous);
+                continue;
+            }
+            List<CommentResponse> items = new ArrayList<>(previous.getItems().size() + 1);
+            items.add(comment);
+            items.addAll(previous.getItems());
+
+            boolean hasMore = previous.isHasMore();
+            String nextCursor = previous.getNextCursor();
+            if (items.size() > key.limit()) {
+                items.remove(items.size() - 1);
+                CommentResponse last = items.get(items.size() - 1);
+                hasMore = true;
+                nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+            }
+            pageCache.put(new PageKey(videoId, version, null, key.limit()),
+                    new CursorPageResponse<>(List.copyOf(items), nextCursor, hasMore));
+        }
+    }
 
-        return toCommentResponse(savedComment);
+    // Komentari posle afterId, najstariji prvi - nastavak live stream-a posle prekida veze
+    public CursorPageResponse<CommentResponse> getCommentsSince(Long videoId, long afterId, int size) {
+        int limit = size < 1 ? maxPageSize : Math.min(size, maxPageSize);
+        List<Comment> rows = commentRepository.findSince(videoId, afterId, PageRequest.of(0, limit + 1));
+
+        boolean hasMore = rows.size() > limit;
+        List<Comment> comments = hasMore ? rows.subList(0, limit) : rows;
+        // Kursor je id poslednjeg vraćenog komentara, i kad nema više - klijent ga pamti kao poslednji viđen
+        String nextCursor = comments.isEmpty()
+                ? String.valueOf(afterId)
+                : String.valueOf(comments.get(comments.size() - 1).getId());
+        return new CursorPageResponse<>(comments.stream().map(this::toCommentResponse).toList(), nextCursor, hasMore);
     }
 
-    @Cacheable(value = "commentCount", key = "#video.id")
+    // Brojač se menja u istoj transakciji kao i insert komentara; COUNT samo za red koji još nije popunjen
     public long getCommentCount(Video video) {
-        return commentRepository.countByVideo(video);
+        Long count = videoRepository.findCommentCount(video.getId());
+        return count != null ? count : commentRepository.countByVideo(video);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initMissingCommentCounts() {
+        int updated = videoRepository.initMissingCommentCounts();
+        if (updated > 0) {
+            logger.info("Popunjen broj komentara za {} videa", updated);
+        }
     }
 
     private CommentResponse toCommentResponse(Comment comment) {
@@ -78,4 +231,7 @@ public class CommentService {
                 comment.getCreatedAt()
         );
     }
+
+    private record PageKey(Long videoId, long version, String cursor, int limit) {
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.CommentStreamMessage;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+@Service
+@ConditionalOnProperty(name = "comments.stream.cluster.enabled", havingValue = "true")
+public class CommentStreamClusterListener {
+
+    @Autowired
+    private CommentStreamService commentStreamService;
+
+    @RabbitListener(queues = "#{commentStreamQueue.name}",
+            containerFactory = "commentStreamListenerContainerFactory")
+    public void onComment(CommentStreamMessage message) {
+        commentStreamService.receiveRemote(message);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.config.CommentStreamClusterConfig;
+import com.example.jutjubic.dto.CommentResponse;
+import com.example.jutjubic.dto.CommentStreamFrame;
+import com.example.jutjubic.dto.CommentStreamMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Push novih komentara: posle commit-a komentar ulazi u red svog videa, a na svakih flush-interval-ms
+// jedan frame po videu nosi sve nove komentare na /topic/video/{id}/comments. Flush ima svoju nit,
+// da ga duži @Scheduled poslovi ne bi zadržavali. Klijent pamti poslednji id i posle prekida
+// dopunjava propušteno preko /comments/since.
+@Service
+public class CommentStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentStreamService.class);
+
+    public static final String TOPIC_PREFIX = "/topic/video/";
+    public static final String TOPIC_SUFFIX = "/comments";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${comments.stream.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    @Value("${comments.stream.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    // Sopstvene poruke sa fanout-a se preskaču - lokalni komentari su već u redu
+    private final String origin = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<Long, List<CommentResponse>> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+    private Counter framesSent;
+    private Counter commentsSent;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "comment-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("comment_stream_pending_videos", pending, ConcurrentHashMap::size)
+                .description("Broj videa sa komentarima koji čekaju sledeći frame")
+                .register(meterRegistry);
+        framesSent = Counter.builder("comment_stream_frames")
+                .description("Poslati STOMP frame-ovi sa novim komentarima")
+                .register(meterRegistry);
+        commentsSent = Counter.builder("comment_stream_comments")
+                .description("Komentari poslati kroz STOMP frame-ove")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    // Poziva se posle commit-a komentara na ovoj replici
+    public void publish(Long videoId, CommentResponse comment) {
+        enqueue(videoId, comment);
+        if (!clusterEnabled) {
+            return;
+        }
+        try {
+            rabbitTemplate.convertAndSend(CommentStreamClusterConfig.EXCHANGE, "",
+                    new CommentStreamMessage(origin, videoId, comment));
+        } catch (Exception e) {
+            logger.warn("Komentar {} nije prosleđen drugoj replici: {}", comment.getId(), e.getMessage());
+        }
+    }
+
+    public void receiveRemote(CommentStreamMessage message) {
+        if (origin.equals(message.getOrigin())) {
+            return;
+        }
+        enqueue(message.getVideoId(), message.getComment());
+    }
+
+    // compute i remove su atomični po ključu, pa komentar ne može da upadne u listu koja je već poslata
+    private void enqueue(Long videoId, CommentResponse comment) {
+        pending.compute(videoId, (key, comments) -> {
+            List<CommentResponse> target = comments != null ? comments : new ArrayList<>();
+            target.add(comment);
+            return target;
+        });
+    }
+
+    void flush() {
+        for (Long videoId : pending.keySet()) {
+            List<CommentResponse> comments = pending.remove(videoId);
+            if (comments == null || comments.isEmpty()) {
+                continue;
+            }
+            comments.sort(Comparator.comparing(CommentResponse::getId));
+            try {
+                messagingTemplate.convertAndSend(TOPIC_PREFIX + videoId + TOPIC_SUFFIX,
+                        new CommentStreamFrame(videoId, comments));
+                framesSent.increment();
+                commentsSent.increment(comments.size());
+            } catch (Exception e) {
+                logger.warn("Slanje novih komentara za video {} nije uspelo: {}", videoId, e.getMessage());
+            }
+        }
+    }
+}
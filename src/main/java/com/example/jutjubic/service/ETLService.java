@@ -1,20 +1,24 @@
 package com.example.jutjubic.service;
 
 import com.example.jutjubic.dto.PopularVideoResponse;
+import com.example.jutjubic.model.EtlWatermark;
 import com.example.jutjubic.model.PopularVideo;
 import com.example.jutjubic.model.Video;
-import com.example.jutjubic.model.VideoView;
+import com.example.jutjubic.repository.EtlWatermarkRepository;
 import com.example.jutjubic.repository.PopularVideoRepository;
+import com.example.jutjubic.repository.VideoRepository;
+import com.example.jutjubic.repository.VideoViewDailyRepository;
 import com.example.jutjubic.repository.VideoViewRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.*;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,48 +26,64 @@ public class ETLService {
 
     private static final Logger logger = LoggerFactory.getLogger(ETLService.class);
 
+    static final String VIEWS_WATERMARK = "video_view_daily";
+    private static final int SCORE_WINDOW_DAYS = 7;
+    private static final int TOP_N = 3;
+
     @Autowired
     private VideoViewRepository videoViewRepository;
 
+    @Autowired
+    private VideoViewDailyRepository videoViewDailyRepository;
+
+    @Autowired
+    private EtlWatermarkRepository etlWatermarkRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
     @Autowired
     private PopularVideoRepository popularVideoRepository;
 
+    @Value("${etl.rollup.commit-lag-seconds:30}")
+    private long commitLagSeconds;
+
+    @Value("${etl.rollup.retention-days:30}")
+    private int retentionDays;
+
 
     @Transactional
     public void runETLPipeline() {
         logger.info("Starting ETL Pipeline at {}", LocalDateTime.now());
 
         try {
-            LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
-            List<VideoView> recentViews = videoViewRepository.findViewsSince(sevenDaysAgo);
-            logger.info("Extracted {} views from last 7 days", recentViews.size());
+            long rolledUp = rollUpNewViews();
+            logger.info("Rolled up {} new views into daily counts", rolledUp);
+
+            LocalDate today = LocalDate.now();
+            LocalDate since = today.minusDays(SCORE_WINDOW_DAYS);
+            List<Object[]> topScores = videoViewDailyRepository.findTopScores(today, since, TOP_N);
 
-            if (recentViews.isEmpty()) {
+            if (topScores.isEmpty()) {
                 logger.warn("No views found in the last 7 days. Skipping ETL pipeline.");
                 return;
             }
 
-            Map<Video, Double> popularityScores = calculatePopularityScores(recentViews);
-            logger.info("Calculated popularity scores for {} videos", popularityScores.size());
-
-            List<Map.Entry<Video, Double>> sortedVideos = popularityScores.entrySet().stream()
-                    .sorted(Map.Entry.<Video, Double>comparingByValue().reversed())
-                    .limit(3)
-                    .collect(Collectors.toList());
-
             LocalDateTime pipelineRunTime = LocalDateTime.now();
             int rank = 1;
 
-            for (Map.Entry<Video, Double> entry : sortedVideos) {
+            for (Object[] row : topScores) {
+                Long videoId = ((Number) row[0]).longValue();
+                double score = ((Number) row[1]).doubleValue();
+
                 PopularVideo popularVideo = new PopularVideo(
                         pipelineRunTime,
-                        entry.getKey(),
-                        entry.getValue(),
+                        videoRepository.getReferenceById(videoId),
+                        score,
                         rank++
                 );
                 popularVideoRepository.save(popularVideo);
-                logger.info("Saved popular video: {} with score: {} at rank: {}",
-                        entry.getKey().getTitle(), entry.getValue(), rank - 1);
+                logger.info("Saved popular video id {} with score: {} at rank: {}", videoId, score, rank - 1);
             }
 
             logger.info("ETL Pipeline completed successfully at {}", LocalDateTime.now());
@@ -74,28 +94,38 @@ public class ETLService {
         }
     }
 
+    // Čita samo preglede posle watermark-a; zbir i pomeranje watermark-a idu u istoj transakciji.
+    // Granica je MAX(id) zapamćen u prethodnom pokretanju, a koristi se tek posle commit-lag-seconds:
+    // id-jevi ispod nje su tada već bili dodeljeni, pa je i flush koji je kasnije commit-ovao
+    // niže id-jeve (npr. sa druge replike) do sada vidljiv i ne ostaje iza watermark-a
+    @Transactional
+    public long rollUpNewViews() {
+        etlWatermarkRepository.ensureExists(VIEWS_WATERMARK);
+        EtlWatermark watermark = etlWatermarkRepository.findForUpdate(VIEWS_WATERMARK)
+                .orElseThrow(() -> new IllegalStateException("Watermark " + VIEWS_WATERMARK + " ne postoji"));
 
-    private Map<Video, Double> calculatePopularityScores(List<VideoView> views) {
-        Map<Video, Double> scores = new HashMap<>();
         LocalDateTime now = LocalDateTime.now();
-
-        for (VideoView view : views) {
-            Video video = view.getVideo();
-            LocalDateTime viewTime = view.getViewedAt();
-
-            long daysAgo = ChronoUnit.DAYS.between(viewTime.toLocalDate(), now.toLocalDate());
-
-            double weight;
-            if (daysAgo >= 7) {
-                weight = 1.0;
-            } else {
-                weight = 7.0 - daysAgo + 1.0;
+        long fromId = watermark.getLastId();
+        long rolledUp = 0;
+
+        Long pendingId = watermark.getPendingId();
+        if (pendingId != null && !watermark.getPendingAt().isAfter(now.minusSeconds(commitLagSeconds))) {
+            if (pendingId > fromId) {
+                videoViewDailyRepository.rollUpViews(fromId, pendingId);
+                videoViewDailyRepository.deleteOlderThan(LocalDate.now().minusDays(retentionDays));
+                watermark.setLastId(pendingId);
+                rolledUp = pendingId - fromId;
             }
-
-            scores.put(video, scores.getOrDefault(video, 0.0) + weight);
+            pendingId = null;
+        }
+        if (pendingId == null) {
+            watermark.setPendingId(videoViewRepository.findMaxVisibleId());
+            watermark.setPendingAt(now);
         }
 
-        return scores;
+        watermark.setUpdatedAt(now);
+        etlWatermarkRepository.save(watermark);
+        return rolledUp;
     }
 
     public List<PopularVideoResponse> getLatestPopularVideos() {
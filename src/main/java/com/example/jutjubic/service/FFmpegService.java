@@ -1,6 +1,7 @@
 package com.example.jutjubic.service;
 
 import com.example.jutjubic.dto.TranscodingMessage.TranscodingParams;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
@@ -12,7 +13,23 @@ import java.util.List;
 @Service
 public class FFmpegService {
 
+    public static final String HLS_PLAYLIST_NAME = "index.m3u8";
+    public static final String DEFAULT_PRESET = "medium";
+    private static final double MAXRATE_FACTOR = 1.07;
+
+    @Value("${transcoding.hls.segment-seconds:6}")
+    private int hlsSegmentSeconds;
+
+    // 0 = FFmpeg sam bira broj niti; scheduler paralelizam računa iz iste vrednosti
+    @Value("${transcoding.scheduler.threads-per-job:2}")
+    private int threadsPerJob;
+
     public void transcodeVideo(String inputPath, String outputPath, TranscodingParams params) throws Exception {
+        transcodeVideo(inputPath, outputPath, params, null, null);
+    }
+
+    public void transcodeVideo(String inputPath, String outputPath, TranscodingParams params,
+                               ProgressListener listener, TranscodingJobHandle job) throws Exception {
         File inputFile = new File(inputPath);
         if (!inputFile.exists()) {
             throw new IllegalArgumentException("Input video ne postoji: " + inputPath);
@@ -26,31 +43,206 @@ public class FFmpegService {
 
         List<String> command = buildFFmpegCommand(inputPath, outputPath, params);
 
+        runFFmpeg(command, listener, job);
+
+        if (!outputFile.exists()) {
+            throw new RuntimeException("Output video nije kreiran: " + outputPath);
+        }
+
+        System.out.println("✅ FFmpeg transcoding uspešno završen: " + outputPath);
+    }
+
+    public void transcodeHlsRendition(String inputPath, String outputDir, TranscodingParams params,
+                                      ProgressListener listener, TranscodingJobHandle job) throws Exception {
+        File inputFile = new File(inputPath);
+        if (!inputFile.exists()) {
+            throw new IllegalArgumentException("Input video ne postoji: " + inputPath);
+        }
+
+        File dir = new File(outputDir);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+
+        File playlist = new File(dir, HLS_PLAYLIST_NAME);
+        runFFmpeg(buildHlsCommand(inputPath, dir, params), listener, job);
+
+        if (!playlist.exists()) {
+            throw new RuntimeException("HLS playlist nije kreiran: " + playlist.getPath());
+        }
+
+        System.out.println("✅ HLS rendicija " + params.getResolution() + " završena: " + playlist.getPath());
+    }
+
+    // Širina i visina video stream-a preko ffprobe-a, null ako ne mogu da se odrede
+    public int[] probeVideoSize(String inputPath) {
+        String output = probe(inputPath, "-select_streams", "v:0", "-show_entries", "stream=width,height");
+        if (output == null) {
+            return null;
+        }
+        String[] parts = output.split(",");
+        try {
+            int width = Integer.parseInt(parts[0].trim());
+            int height = Integer.parseInt(parts[1].trim());
+            return width > 0 && height > 0 ? new int[] {width, height} : null;
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    // Širina koju scale=-2:height daje za izvor date veličine - zadržava odnos stranica, zaokruženo na paran broj
+    public static int scaledWidth(int sourceWidth, int sourceHeight, int height) {
+        return (int) Math.round((double) sourceWidth * height / sourceHeight / 2) * 2;
+    }
+
+    // Trajanje u sekundama preko ffprobe-a, -1 ako ne može da se odredi
+    public double probeDurationSeconds(String inputPath) {
+        String output = probe(inputPath, "-show_entries", "format=duration");
+        try {
+            return output != null ? Double.parseDouble(output) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String probe(String inputPath, String... selection) {
+        try {
+            List<String> command = new ArrayList<>(List.of("ffprobe", "-v", "error"));
+            command.addAll(List.of(selection));
+            command.addAll(List.of("-of", "csv=p=0", inputPath));
+
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+            String output;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                output = reader.readLine();
+            }
+            if (process.waitFor() != 0 || output == null) {
+                return null;
+            }
+            return output.trim();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public static int heightOf(TranscodingParams params) {
+        String resolution = params.getResolution();
+        return Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+    }
+
+    // Vršni bitrate rendicije u bps za BANDWIDTH atribut master playlist-e
+    public static int estimateBandwidth(TranscodingParams params) {
+        long video = parseBitrate(params.getBitrate());
+        long audio = parseBitrate(params.getAudioBitrate());
+        return (int) ((video * MAXRATE_FACTOR) + audio);
+    }
+
+    private static long parseBitrate(String bitrate) {
+        if (bitrate == null || bitrate.isEmpty()) {
+            return 0;
+        }
+        String value = bitrate.trim().toLowerCase();
+        if (value.endsWith("k")) {
+            return Long.parseLong(value.substring(0, value.length() - 1)) * 1000;
+        }
+        if (value.endsWith("m")) {
+            return Long.parseLong(value.substring(0, value.length() - 1)) * 1_000_000;
+        }
+        return Long.parseLong(value);
+    }
+
+    private void runFFmpeg(List<String> command, ProgressListener listener, TranscodingJobHandle job) throws Exception {
+        // Mašinski čitljiv progres ide na stdout kao key=value blokovi završeni sa progress=...
+        command.addAll(1, List.of("-hide_banner", "-nostats", "-progress", "pipe:1"));
+
         System.out.println("🎥 Pokrećem FFmpeg komandu: " + String.join(" ", command));
 
         ProcessBuilder processBuilder = new ProcessBuilder(command);
         processBuilder.redirectErrorStream(true);
 
         Process process = processBuilder.start();
+        Progress progress = new Progress();
+        if (job != null) {
+            // Otkazivanje ili timeout ubija proces, pa čitanje ispod odmah dobija EOF
+            job.attach(process);
+        }
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                System.out.println("[FFmpeg] " + line);
+                if (!progress.accept(line)) {
+                    System.out.println("[FFmpeg] " + line);
+                } else if (progress.isBlockComplete() && listener != null) {
+                    listener.onProgress(progress);
+                }
             }
         }
 
         int exitCode = process.waitFor();
 
+        if (job != null) {
+            job.detach();
+            job.checkNotStopped();
+        }
+
         if (exitCode != 0) {
             throw new RuntimeException("FFmpeg proces nije uspeo. Exit code: " + exitCode);
         }
+    }
 
-        if (!outputFile.exists()) {
-            throw new RuntimeException("Output video nije kreiran: " + outputPath);
+    private List<String> buildHlsCommand(String inputPath, File outputDir, TranscodingParams params) {
+        long videoBitrate = parseBitrate(params.getBitrate());
+        List<String> command = new ArrayList<>();
+
+        command.add("ffmpeg");
+        command.add("-i");
+        command.add(inputPath);
+
+        command.add("-c:v");
+        command.add(params.getCodec());
+        command.add("-b:v");
+        command.add(params.getBitrate());
+        command.add("-maxrate");
+        command.add((long) (videoBitrate * MAXRATE_FACTOR) / 1000 + "k");
+        command.add("-bufsize");
+        command.add(videoBitrate * 2 / 1000 + "k");
+
+        // Širina se računa iz visine da bi se sačuvao odnos stranica
+        command.add("-vf");
+        command.add("scale=-2:" + heightOf(params));
+
+        command.add("-c:a");
+        command.add(params.getAudioCodec());
+        command.add("-b:a");
+        command.add(params.getAudioBitrate());
+
+        command.add("-preset");
+        command.add(params.getPreset() != null ? params.getPreset() : DEFAULT_PRESET);
+        if (threadsPerJob > 0) {
+            command.add("-threads");
+            command.add(String.valueOf(threadsPerJob));
         }
 
-        System.out.println("✅ FFmpeg transcoding uspešno završen: " + outputPath);
+        // Keyframe na granici svakog segmenta da bi sve rendicije mogle da se menjaju na istom mestu
+        command.add("-force_key_frames");
+        command.add("expr:gte(t,n_forced*" + hlsSegmentSeconds + ")");
+        command.add("-sc_threshold");
+        command.add("0");
+
+        command.add("-f");
+        command.add("hls");
+        command.add("-hls_time");
+        command.add(String.valueOf(hlsSegmentSeconds));
+        command.add("-hls_playlist_type");
+        command.add("vod");
+        command.add("-hls_segment_filename");
+        command.add(new File(outputDir, "segment_%04d.ts").getPath());
+
+        command.add("-y");
+        command.add(new File(outputDir, HLS_PLAYLIST_NAME).getPath());
+
+        return command;
     }
 
     private List<String> buildFFmpegCommand(String inputPath, String outputPath, TranscodingParams params) {
@@ -91,7 +283,11 @@ public class FFmpegService {
         }
 
         command.add("-preset");
-        command.add("medium");
+        command.add(params.getPreset() != null ? params.getPreset() : DEFAULT_PRESET);
+        if (threadsPerJob > 0) {
+            command.add("-threads");
+            command.add(String.valueOf(threadsPerJob));
+        }
 
         command.add("-y");
 
@@ -110,4 +306,75 @@ public class FFmpegService {
             return false;
         }
     }
+
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    // Stanje iz -progress izlaza; jedan blok se završava linijom progress=continue|end
+    public static class Progress {
+        private long frame;
+        private double fps;
+        private double outTimeSeconds;
+        private double speed;
+        private boolean finished;
+        private boolean blockComplete;
+
+        boolean accept(String line) {
+            int eq = line.indexOf('=');
+            if (eq <= 0) {
+                return false;
+            }
+            String key = line.substring(0, eq).trim();
+            String value = line.substring(eq + 1).trim();
+            blockComplete = false;
+
+            try {
+                switch (key) {
+                    case "frame":
+                        frame = Long.parseLong(value);
+                        return true;
+                    case "fps":
+                        fps = Double.parseDouble(value);
+                        return true;
+                    case "out_time_us":
+                    case "out_time_ms":
+                        // out_time_ms je istorijski takođe u mikrosekundama
+                        if (!value.equals("N/A")) {
+                            outTimeSeconds = Long.parseLong(value) / 1_000_000.0;
+                        }
+                        return true;
+                    case "speed":
+                        if (value.endsWith("x")) {
+                            speed = Double.parseDouble(value.substring(0, value.length() - 1));
+                        }
+                        return true;
+                    case "progress":
+                        finished = value.equals("end");
+                        blockComplete = true;
+                        return true;
+                    case "bitrate":
+                    case "total_size":
+                    case "out_time":
+                    case "dup_frames":
+                    case "drop_frames":
+                        return true;
+                    default:
+                        return key.startsWith("stream_");
+                }
+            } catch (NumberFormatException e) {
+                return true;
+            }
+        }
+
+        boolean isBlockComplete() {
+            return blockComplete;
+        }
+
+        public long getFrame() { return frame; }
+        public double getFps() { return fps; }
+        public double getOutTimeSeconds() { return outTimeSeconds; }
+        public double getSpeed() { return speed; }
+        public boolean isFinished() { return finished; }
+    }
 }
@@ -5,6 +5,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -74,6 +75,31 @@ public class FileStorageService {
         return destinationPath.toString();
     }
 
+    public Path getChunkedUploadDir() throws IOException {
+        Path chunkedDir = Paths.get(uploadDir, "chunked").toAbsolutePath().normalize();
+        Files.createDirectories(chunkedDir);
+        return chunkedDir;
+    }
+
+    // Sastavljen chunked upload se samo premešta u videos direktorijum, bez ponovnog kopiranja
+    public String storeUploadedVideo(Path source) throws IOException {
+        String filename = "video_" + UUID.randomUUID() + ".mp4";
+
+        Path videoDir = Paths.get(uploadDir, "videos");
+        Files.createDirectories(videoDir);
+
+        Path destinationPath = videoDir.resolve(filename).toAbsolutePath().normalize();
+        try {
+            Files.move(source, destinationPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, destinationPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        uploadedFiles.get().add(destinationPath.toString());
+
+        return destinationPath.toString();
+    }
+
     public byte[] loadThumbnail(String thumbnailPath) {
         try {
             Path path = Paths.get(thumbnailPath);
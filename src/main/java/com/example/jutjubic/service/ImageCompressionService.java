@@ -20,6 +20,9 @@ public class ImageCompressionService {
     @Autowired
     private VideoRepository videoRepository;
 
+    @Autowired
+    private ThumbnailService thumbnailService;
+
     @Autowired
     private ApplicationContext applicationContext;
 
@@ -118,6 +121,7 @@ public class ImageCompressionService {
         video.setThumbnailCompressedPath(compressedPath);
         video.setThumbnailCompressionDate(LocalDateTime.now());
         videoRepository.save(video);
+        thumbnailService.invalidate(videoId);
     }
 
     private String generateCompressedPath(String originalPath) {
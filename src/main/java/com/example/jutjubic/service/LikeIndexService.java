@@ -0,0 +1,116 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.repository.LikeCounterRepository;
+import com.example.jutjubic.util.CompressedBitmap;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Ko je lajkovao koji video, u memoriji: po videu CompressedBitmap id-jeva korisnika. Video se
+// učitava na prvi zahtev (jedan upit za sve promašaje iz batch-a), a lajkovi ove replike ga menjaju
+// odmah. Promene sa druge replike stižu posle isteka unosa (likes.index.ttl-seconds), pa indeks
+// služi samo za feed; stranica videa čita lajk iz baze.
+@Service
+public class LikeIndexService {
+
+    @Autowired
+    private LikeCounterRepository likeCounterRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${likes.index.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${likes.index.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Cache<Long, CompressedBitmap> index;
+
+    @PostConstruct
+    public void init() {
+        index = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long videoId, CompressedBitmap bitmap) -> bitmap.sizeInBytes())
+                .expireAfter(new LoadTimeExpiry(TimeUnit.SECONDS.toNanos(ttlSeconds)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, index, "like_index");
+    }
+
+    // Videi iz videoIds koje je korisnik lajkovao; video bez lajkova (ili nepostojeći) ima prazan skup
+    public Set<Long> likedAmong(Collection<Long> videoIds, Long userId) {
+        Map<Long, CompressedBitmap> bitmaps = index.getAll(videoIds, this::load);
+
+        Set<Long> liked = new HashSet<>();
+        for (Map.Entry<Long, CompressedBitmap> entry : bitmaps.entrySet()) {
+            CompressedBitmap bitmap = entry.getValue();
+            synchronized (bitmap) {
+                if (bitmap.contains(userId)) {
+                    liked.add(entry.getKey());
+                }
+            }
+        }
+        return liked;
+    }
+
+    // Poziva se posle uspešnog upisa u likes; video koji nije u indeksu se učitava tek kad zatreba.
+    // Bitmap se menja u compute-u, pa Caffeine ponovo izračuna težinu, a LoadTimeExpiry zadrži rok učitavanja.
+    public void recordToggle(Long videoId, Long userId, boolean liked) {
+        index.asMap().computeIfPresent(videoId, (key, bitmap) -> {
+            synchronized (bitmap) {
+                if (liked) {
+                    bitmap.add(userId);
+                } else {
+                    bitmap.remove(userId);
+                }
+            }
+            return bitmap;
+        });
+    }
+
+    private Map<Long, CompressedBitmap> load(Set<? extends Long> videoIds) {
+        Map<Long, List<Long>> userIds = likeCounterRepository.findUserIdsByVideoIds(new ArrayList<>(videoIds));
+        Map<Long, CompressedBitmap> loaded = new LinkedHashMap<>();
+        for (Long videoId : videoIds) {
+            List<Long> users = userIds.getOrDefault(videoId, List.of());
+            loaded.put(videoId, CompressedBitmap.of(users.stream().mapToLong(Long::longValue).toArray()));
+        }
+        return loaded;
+    }
+
+    // Unos ističe ttl posle učitavanja iz baze; izmene ove replike ne produžavaju rok,
+    // da bi se lajkovi sa druge replike i dalje videli najkasnije posle ttl-a
+    private record LoadTimeExpiry(long ttlNanos) implements Expiry<Long, CompressedBitmap> {
+
+        @Override
+        public long expireAfterCreate(Long videoId, CompressedBitmap bitmap, long currentTime) {
+            return ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long videoId, CompressedBitmap bitmap, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(Long videoId, CompressedBitmap bitmap, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.repository.LikeCounterRepository;
+import com.example.jutjubic.repository.LikeRepository;
+import com.example.jutjubic.repository.VideoCounterRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Lajk je jedan INSERT ... ON CONFLICT ili DELETE nad likes, a videos.like_count se menja deltama
+// koje se skupljaju u memoriji (LongAdder po videu) i upisuju jednim batch UPDATE-om. Brojač se
+// periodično poravna sa likes, pa izgubljen flush ili pad replike ne ostavlja trajnu grešku.
+@Service
+public class LikeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LikeService.class);
+
+    public record LikeStatus(boolean liked, long likeCount) {
+    }
+
+    @Autowired
+    private LikeCounterRepository likeCounterRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private VideoCounterRepository videoCounterRepository;
+
+    @Autowired
+    private LikeIndexService likeIndexService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${likes.reconcile.settle-minutes:5}")
+    private long settleMinutes;
+
+    // Zamena mape delti ide pod write lock-om, pa nijedan increment ne ostane u mapi koja se već upisuje
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile ConcurrentHashMap<Long, LongAdder> pendingDeltas = new ConcurrentHashMap<>();
+    // Delte koje se upravo upisuju - čitanje ih i dalje računa dok upis ne uspe
+    private volatile Map<Long, Long> flushingDeltas = Map.of();
+
+    private Timer flushTimer;
+    private Timer reconcileTimer;
+    private Counter reconciledVideos;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("like_buffer_pending_videos", this, s -> s.pendingDeltas.size())
+                .description("Broj videa sa neupisanim promenama broja lajkova")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("like_buffer_flush_duration")
+                .description("Trajanje jednog flush-a delti lajkova u bazu")
+                .register(meterRegistry);
+        reconcileTimer = Timer.builder("like_count_reconcile_duration")
+                .description("Trajanje poravnanja like_count sa tabelom likes")
+                .register(meterRegistry);
+        reconciledVideos = Counter.builder("like_count_reconciled_videos")
+                .description("Broj videa čiji je like_count ispravljen rekoncilijacijom")
+                .register(meterRegistry);
+    }
+
+    public LikeStatus toggleLike(Long videoId, Long userId) {
+        boolean liked;
+        long delta;
+        if (likeCounterRepository.deleteLike(videoId, userId) > 0) {
+            liked = false;
+            delta = -1;
+        } else {
+            try {
+                delta = likeCounterRepository.insertLike(videoId, userId);
+            } catch (DataIntegrityViolationException e) {
+                throw new IllegalArgumentException("Video not found with id: " + videoId);
+            }
+            liked = true;
+        }
+
+        if (delta != 0) {
+            addPending(videoId, delta);
+        }
+        likeIndexService.recordToggle(videoId, userId, liked);
+        return new LikeStatus(liked, getLikeCount(videoId));
+    }
+
+    // Upisani brojač + delte ove replike koje još nisu u bazi; delte druge replike stižu posle njenog flush-a
+    public long getLikeCount(Long videoId) {
+        long stored = likeCounterRepository.findLikeCount(videoId)
+                .orElseThrow(() -> new IllegalArgumentException("Video not found with id: " + videoId));
+        return withPending(videoId, stored);
+    }
+
+    // Stanje za stranicu videa: liked iz baze, jer se posle lajka na drugoj replici ovde sledeći klik
+    // ne sme protumačiti kao novi lajk
+    public LikeStatus getLikeStatus(Long videoId, Long userId) {
+        long likeCount = getLikeCount(videoId);
+        boolean liked = userId != null && likeRepository.existsByVideoIdAndUserId(videoId, userId);
+        return new LikeStatus(liked, likeCount);
+    }
+
+    // Stanje za feed, u redosledu ulaznih id-jeva: broj iz istog izvora kao getLikeCount, a liked iz
+    // LikeIndexService-a (lajk sa druge replike se vidi posle isteka unosa). Nepostojeći video ima 0 lajkova.
+    public Map<Long, LikeStatus> getLikeStatuses(Collection<Long> videoIds, Long userId) {
+        Set<Long> ids = new LinkedHashSet<>(videoIds);
+        Map<Long, Long> stored = likeCounterRepository.findLikeCounts(new ArrayList<>(ids));
+        Set<Long> liked = userId != null ? likeIndexService.likedAmong(ids, userId) : Set.of();
+
+        Map<Long, LikeStatus> result = new LinkedHashMap<>();
+        for (Long videoId : ids) {
+            Long count = stored.get(videoId);
+            result.put(videoId, new LikeStatus(liked.contains(videoId), count != null ? withPending(videoId, count) : 0L));
+        }
+        return result;
+    }
+
+    private long withPending(Long videoId, long stored) {
+        LongAdder pending = pendingDeltas.get(videoId);
+        long count = stored + flushingDeltas.getOrDefault(videoId, 0L) + (pending != null ? pending.sum() : 0L);
+        return Math.max(0, count);
+    }
+
+    @Scheduled(fixedDelayString = "${likes.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("Gašenje aplikacije - upisujem delte lajkova za {} videa", pendingDeltas.size());
+        flush();
+    }
+
+    public int flush() {
+        flushLock.lock();
+        try {
+            ConcurrentHashMap<Long, LongAdder> drained;
+            swapLock.writeLock().lock();
+            try {
+                if (pendingDeltas.isEmpty()) {
+                    return 0;
+                }
+                drained = pendingDeltas;
+                pendingDeltas = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            Map<Long, Long> deltas = new HashMap<>(drained.size());
+            drained.forEach((videoId, adder) -> {
+                long delta = adder.sum();
+                if (delta != 0) {
+                    deltas.put(videoId, delta);
+                }
+            });
+            flushingDeltas = deltas;
+
+            long start = System.nanoTime();
+            try {
+                return videoCounterRepository.addLikeCounts(deltas);
+            } catch (Exception e) {
+                logger.error("Flush delti lajkova za {} videa nije uspeo, vraćam ih u buffer: {}",
+                        deltas.size(), e.getMessage());
+                deltas.forEach(this::addPending);
+                return 0;
+            } finally {
+                flushingDeltas = Map.of();
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    // Redovi promenjeni u poslednjih settleMinutes se preskaču - njihove delte možda još nisu upisane
+    @Scheduled(fixedDelayString = "${likes.reconcile-interval-ms:900000}",
+            initialDelayString = "${likes.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        long start = System.nanoTime();
+        try {
+            flush();
+            int fixed = likeCounterRepository.reconcile(LocalDateTime.now().minusMinutes(settleMinutes));
+            reconciledVideos.increment(fixed);
+            if (fixed > 0) {
+                logger.info("Rekoncilijacija lajkova: ispravljen like_count za {} videa", fixed);
+            }
+        } catch (Exception e) {
+            logger.error("Rekoncilijacija lajkova nije uspela: {}", e.getMessage(), e);
+        } finally {
+            reconcileTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void addPending(Long videoId, long delta) {
+        swapLock.readLock().lock();
+        try {
+            pendingDeltas.computeIfAbsent(videoId, k -> new LongAdder()).add(delta);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+}
@@ -1,44 +1,155 @@
 package com.example.jutjubic.service;
 
 import com.example.jutjubic.model.LoginAttempt;
+import com.example.jutjubic.repository.LoginAttemptBatchRepository;
 import com.example.jutjubic.repository.LoginAttemptRepository;
+import com.example.jutjubic.util.CountMinSketch;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+// Praćenje neuspešnih prijava u memoriji: po IP adresi vremena poslednjih MAX_ATTEMPTS neuspeha u
+// Caffeine cache-u ograničene veličine. Kad talas sa mnogo adresa počne da izbacuje iz cache-a,
+// adrese van njega se procenjuju count-min sketch-om po podprozorima, pa memorija ostaje fiksna.
+// Od procene se oduzima granica greške sketch-a, pa pod talasom ne blokira adrese koje to nisu zaslužile.
+// Pokušaji idu u login_attempts asinhrono u paketima, samo za audit.
 @Service
 public class LoginAttemptService {
 
+    private static final Logger logger = LoggerFactory.getLogger(LoginAttemptService.class);
+
     private static final int MAX_ATTEMPTS = 5;
-    private static final int ATTEMPT_WINDOW_MINUTES = 1;
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // Sketch prozor je podeljen na SKETCH_SLICES delova; čuva se i jedan više, pa procena pokriva ceo minut
+    private static final int SKETCH_SLICES = 6;
+    private static final long SLICE_MILLIS = WINDOW_MILLIS / SKETCH_SLICES;
 
     @Autowired
     private LoginAttemptRepository loginAttemptRepository;
 
+    @Autowired
+    private LoginAttemptBatchRepository loginAttemptBatchRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${login.tracker.max-ips:100000}")
+    private long maxTrackedIps;
+
+    @Value("${login.tracker.sketch-width:65536}")
+    private int sketchWidth;
+
+    @Value("${login.tracker.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${login.audit.capacity:10000}")
+    private int auditCapacity;
+
+    @Value("${login.audit.batch-size:1000}")
+    private int auditBatchSize;
+
+    private Cache<String, FailureWindow> windows;
+    private SketchSlice[] slices;
+    private volatile long lastSizeEviction;
+    private BlockingQueue<LoginAttempt> auditQueue;
+
+    private Counter blockedAttempts;
+    private Counter droppedAudits;
+
+    @PostConstruct
+    public void init() {
+        windows = Caffeine.newBuilder()
+                .maximumSize(maxTrackedIps)
+                .expireAfterAccess(WINDOW_MILLIS, TimeUnit.MILLISECONDS)
+                .removalListener((String ip, FailureWindow window, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        lastSizeEviction = System.currentTimeMillis();
+                    }
+                })
+                .build();
+        slices = new SketchSlice[SKETCH_SLICES + 1];
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new SketchSlice(new CountMinSketch(sketchDepth, sketchWidth));
+        }
+        auditQueue = new ArrayBlockingQueue<>(auditCapacity);
+
+        Gauge.builder("login_tracker_ips", windows, Cache::estimatedSize)
+                .description("Broj IP adresa sa tačnim prozorom neuspešnih prijava")
+                .register(meterRegistry);
+        Gauge.builder("login_audit_queue_depth", auditQueue, BlockingQueue::size)
+                .description("Pokušaji prijave koji čekaju audit upis")
+                .register(meterRegistry);
+        blockedAttempts = Counter.builder("login_blocked_attempts")
+                .description("Prijave odbijene zbog previše neuspešnih pokušaja")
+                .register(meterRegistry);
+        droppedAudits = Counter.builder("login_audit_dropped")
+                .description("Pokušaji prijave koji nisu upisani u audit jer je red bio pun")
+                .register(meterRegistry);
+    }
+
     public void recordLoginAttempt(String ipAddress, boolean successful) {
-        LoginAttempt attempt = new LoginAttempt(
-                ipAddress,
-                LocalDateTime.now(),
-                successful
-        );
-        loginAttemptRepository.save(attempt);
+        if (!successful) {
+            long now = System.currentTimeMillis();
+            windows.get(ipAddress, k -> new FailureWindow()).record(now);
+            slice(now).sketch.add(ipAddress);
+        }
+
+        if (!auditQueue.offer(new LoginAttempt(ipAddress, LocalDateTime.now(), successful))) {
+            droppedAudits.increment();
+        }
     }
 
     public boolean isBlocked(String ipAddress) {
-        LocalDateTime oneMinuteAgo = LocalDateTime.now()
-                .minusMinutes(ATTEMPT_WINDOW_MINUTES);
-
-        List<LoginAttempt> recentAttempts = loginAttemptRepository
-                .findRecentAttemptsByIp(ipAddress, oneMinuteAgo);
+        long now = System.currentTimeMillis();
+        FailureWindow window = windows.getIfPresent(ipAddress);
+        boolean blocked;
+        if (window != null) {
+            blocked = window.countSince(now - WINDOW_MILLIS) >= MAX_ATTEMPTS;
+        } else {
+            // Sketch se pita samo za adrese kojih nema u cache-u, i samo dok cache izbacuje zbog veličine
+            blocked = now - lastSizeEviction < WINDOW_MILLIS && sketchLowerBound(ipAddress, now) >= MAX_ATTEMPTS;
+        }
+        if (blocked) {
+            blockedAttempts.increment();
+        }
+        return blocked;
+    }
 
-        long failedAttempts = recentAttempts.stream()
-                .filter(attempt -> !attempt.isSuccessful())
-                .count();
+    @Scheduled(fixedDelayString = "${login.audit.flush-interval-ms:2000}")
+    public void flushAudit() {
+        List<LoginAttempt> batch = new ArrayList<>(Math.min(auditBatchSize, auditCapacity));
+        while (auditQueue.drainTo(batch, auditBatchSize) > 0) {
+            try {
+                loginAttemptBatchRepository.insertAttempts(batch);
+            } catch (Exception e) {
+                logger.error("Audit upis {} pokušaja prijave nije uspeo: {}", batch.size(), e.getMessage());
+                droppedAudits.increment(batch.size());
+            }
+            batch.clear();
+        }
+    }
 
-        return failedAttempts >= MAX_ATTEMPTS;
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushAudit();
     }
 
     @Scheduled(fixedRate = 3600000)
@@ -47,4 +158,62 @@ public class LoginAttemptService {
         LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
         loginAttemptRepository.deleteByAttemptTimeBefore(cutoff);
     }
+
+    // Procena umanjena za granicu precenjivanja svakog podprozora - tačan broj nije manji od nje
+    // (sa verovatnoćom 1 - e^-depth), pa talas sa mnogo adresa ne podiže procenu iznad praga
+    private int sketchLowerBound(String ipAddress, long now) {
+        long current = now / SLICE_MILLIS;
+        int total = 0;
+        for (SketchSlice slice : slices) {
+            if (slice.id >= current - SKETCH_SLICES) {
+                total += Math.max(0, slice.sketch.estimate(ipAddress) - slice.sketch.maxOverestimate());
+            }
+        }
+        return total;
+    }
+
+    // Slot najstarijeg podprozora se briše i preuzima novi; dodavanje uporedo sa brisanjem može da se izgubi
+    private SketchSlice slice(long now) {
+        long id = now / SLICE_MILLIS;
+        SketchSlice slice = slices[(int) (id % slices.length)];
+        if (slice.id != id) {
+            synchronized (slice) {
+                if (slice.id != id) {
+                    slice.sketch.clear();
+                    slice.id = id;
+                }
+            }
+        }
+        return slice;
+    }
+
+    private static final class SketchSlice {
+        final CountMinSketch sketch;
+        volatile long id = Long.MIN_VALUE;
+
+        SketchSlice(CountMinSketch sketch) {
+            this.sketch = sketch;
+        }
+    }
+
+    // Prsten poslednjih MAX_ATTEMPTS neuspeha - dovoljan da se odluči da li ih je bilo MAX_ATTEMPTS u prozoru
+    private static final class FailureWindow {
+        private final long[] failures = new long[MAX_ATTEMPTS];
+        private int next;
+
+        synchronized void record(long at) {
+            failures[next] = at;
+            next = (next + 1) % MAX_ATTEMPTS;
+        }
+
+        synchronized int countSince(long cutoff) {
+            int count = 0;
+            for (long failure : failures) {
+                if (failure > cutoff) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.VideoGeoPoint;
+import com.example.jutjubic.dto.MapTileContent;
+import com.example.jutjubic.dto.VideoMap;
+import com.example.jutjubic.enums.TimePeriod;
+import com.example.jutjubic.repository.MapTileGenerationRepository;
+import com.example.jutjubic.repository.MapTileGenerationRepository.TileRow;
+import com.example.jutjubic.repository.VideoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Noćna regeneracija tile cache-a u jednom prolazu: videi se čitaju jednim streaming upitom,
+// klasteri se grade jednom odozdo, a tile-ovi svih zoom nivoa se grupišu i kodiraju paralelno.
+// Nova generacija se upisuje u paketima pored stare i uključuje se tek kad je kompletna.
+@Service
+public class MapTileRegenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MapTileRegenerationService.class);
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private MapTileGenerationRepository generationRepository;
+
+    @Autowired
+    private MapTileService mapTileService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${map.tile-regeneration.max-zoom:9}")
+    private int maxZoom;
+
+    @Value("${map.tile-regeneration.parallelism:0}")
+    private int parallelism;
+
+    @Value("${map.tile-regeneration.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${map.tile-regeneration.lease-minutes:60}")
+    private long leaseMinutes;
+
+    private final Timer regenerationTimer;
+
+    public MapTileRegenerationService(MeterRegistry meterRegistry) {
+        regenerationTimer = Timer.builder("map_tile_regeneration_duration")
+                .description("Trajanje noćne regeneracije tile cache-a")
+                .register(meterRegistry);
+    }
+
+    public void regenerate() {
+        LocalDateTime buildStart = LocalDateTime.now();
+        Long generation = transactionTemplate.execute(status ->
+                generationRepository.reserveGeneration(buildStart.minusMinutes(leaseMinutes)));
+        if (generation == null) {
+            logger.info("Regeneracija tile cache-a već radi na drugoj instanci - preskačem");
+            return;
+        }
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        try {
+            List<VideoGeoPoint> points = transactionTemplate.execute(status -> {
+                try (Stream<VideoGeoPoint> stream = videoRepository.streamGeoPoints()) {
+                    return stream.collect(Collectors.toList());
+                }
+            });
+            logger.info("Generacija {}: učitano {} video snimaka sa lokacijom", generation, points.size());
+
+            VideoClusterIndex clusters = new VideoClusterIndex((minLat, minLon, maxLat, maxLon) -> List.of());
+            clusters.load(points);
+
+            int totalTiles = 0;
+            for (int zoom = 0; zoom <= Math.min(maxZoom, MapTileService.MAX_ZOOM); zoom++) {
+                List<TileRow> tiles = buildZoomLevel(pool, zoom, points, clusters);
+                for (int from = 0; from < tiles.size(); from += batchSize) {
+                    List<TileRow> batch = tiles.subList(from, Math.min(from + batchSize, tiles.size()));
+                    transactionTemplate.executeWithoutResult(status ->
+                            generationRepository.insertTiles(generation, batch));
+                }
+                totalTiles += tiles.size();
+                logger.info("Generacija {}: zoom {} - {} tile-ova", generation, zoom, tiles.size());
+                renewLease(generation);
+            }
+
+            // Provera zakupa zaključava njegov red do commit-a, pa ga niko ne može preuzeti pre uključivanja
+            Integer removed = transactionTemplate.execute(status -> {
+                renewLease(generation);
+                return generationRepository.publish(generation);
+            });
+            logger.info("Generacija {} uključena: {} tile-ova, obrisano {} starih redova", generation, totalTiles, removed);
+
+            // Upload-i tokom izgradnje nisu u novoj generaciji - njihovi tile-ovi se grade ponovo na zahtev
+            for (VideoGeoPoint point : videoRepository.findGeoPointsCreatedSince(buildStart)) {
+                mapTileService.markTilesStale(point.getLatitude(), point.getLongitude());
+            }
+        } catch (Exception e) {
+            // Delimično upisana generacija nije vidljiva; briše je sledeća uspešna regeneracija
+            logger.error("Regeneracija tile cache-a (generacija {}) nije uspela: {}", generation, e.getMessage(), e);
+        } finally {
+            pool.shutdown();
+            transactionTemplate.executeWithoutResult(status -> generationRepository.releaseLease(generation));
+            regenerationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void renewLease(long generation) {
+        if (!generationRepository.renewLease(generation)) {
+            throw new IllegalStateException("zakup regeneracije je istekao i preuzela ga je druga instanca");
+        }
+    }
+
+    // Do MAX_CLUSTER_ZOOM tile dobija klastere čiji je centroid u njemu (kao živi upit), iznad toga tačke.
+    // Svaki period se grupiše posebno; tile bez sadržaja u nekom periodu dobija praznu sekciju.
+    private List<TileRow> buildZoomLevel(ForkJoinPool pool, int zoom, List<VideoGeoPoint> points,
+                                         VideoClusterIndex clusters) throws InterruptedException, ExecutionException {
+        return pool.submit(() -> {
+            Map<TimePeriod, Map<Long, List<VideoMap>>> byPeriod = new EnumMap<>(TimePeriod.class);
+            for (TimePeriod period : TimePeriod.values()) {
+                List<VideoMap> items = zoom <= VideoClusterIndex.MAX_CLUSTER_ZOOM
+                        ? clusters.all(zoom, period)
+                        : points.parallelStream()
+                                .filter(point -> clusters.includes(period, point))
+                                .map(VideoGeoPoint::toVideoMap)
+                                .collect(Collectors.toList());
+                byPeriod.put(period, items.parallelStream()
+                        .collect(Collectors.groupingByConcurrent(item -> tileKey(zoom, item))));
+            }
+            return byPeriod.get(TimePeriod.ALL_TIME).keySet().parallelStream()
+                    .map(key -> toRow(zoom, key, byPeriod))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }).get();
+    }
+
+    private long tileKey(int zoom, VideoMap item) {
+        int[] coords = mapTileService.getTileCoordinates(item.getLatitude(), item.getLongitude(), zoom);
+        return ((long) coords[0] << 32) | (coords[1] & 0xffffffffL);
+    }
+
+    private static TileRow toRow(int zoom, long key, Map<TimePeriod, Map<Long, List<VideoMap>>> byPeriod) {
+        Map<TimePeriod, List<VideoMap>> videosByPeriod = new EnumMap<>(TimePeriod.class);
+        byPeriod.forEach((period, tiles) -> videosByPeriod.put(period, tiles.getOrDefault(key, List.of())));
+        MapTileContent content = MapTileContent.of(videosByPeriod);
+        return new TileRow(zoom, (int) (key >> 32), (int) key, content.getBytes(), content.getVideoCount());
+    }
+}
@@ -1,23 +1,42 @@
 package com.example.jutjubic.service;
 
+import com.example.jutjubic.dto.MapTileContent;
+import com.example.jutjubic.dto.MapViewportRequest;
+import com.example.jutjubic.dto.MapViewportTile;
+import com.example.jutjubic.dto.VideoGeoPoint;
 import com.example.jutjubic.dto.VideoMap;
 import com.example.jutjubic.enums.TimePeriod;
 import com.example.jutjubic.model.MapTileCache;
 import com.example.jutjubic.model.Video;
 import com.example.jutjubic.repository.MapTileCacheRepository;
-import com.example.jutjubic.repository.VideoRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.example.jutjubic.repository.VideoSpatialKeyRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,153 +44,304 @@ public class MapTileService {
 
     private static final Logger logger = LoggerFactory.getLogger(MapTileService.class);
 
-    @Autowired
-    private VideoRepository videoRepository;
-
     @Autowired
     private MapTileCacheRepository tileCacheRepository;
 
-    private static final int[] ZOOM_LEVELS = {3, 6, 9};
-    private static final double BASE_TILE_SIZE = 10.0;
-
-    private static final double SEGMENT_SIZE_ZOOM_3 = 15.0;
+    @Autowired
+    private VideoSpatialKeyRepository spatialKeyRepository;
 
-    private static final double SEGMENT_SIZE_ZOOM_6 = 3.0;
+    @Autowired
+    private VideoSpatialIndex spatialIndex;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    private final ObjectMapper objectMapper;
+    @Value("${map.tile-cache.l1-max-tiles:20000}")
+    private long l1MaxTiles;
 
-    public MapTileService() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-    }
+    @Value("${map.tile-cache.refresh-seconds:60}")
+    private long refreshSeconds;
 
-    public List<VideoMap> getVideosForTile(int zoomLevel, int tileX, int tileY, TimePeriod period) {
-        logger.info("Zahtev za tile: zoom={}, x={}, y={}, period={}", zoomLevel, tileX, tileY, period);
+    @Value("${map.tile-cache.l2-ttl-minutes:60}")
+    private long l2TtlMinutes;
 
-        Optional<MapTileCache> cached = tileCacheRepository
-                .findByZoomLevelAndTileXAndTileY(zoomLevel, tileX, tileY);
+    @Value("${map.viewport.max-tiles:256}")
+    private int viewportMaxTiles;
 
-        if (cached.isPresent() &&
-                cached.get().getLastUpdated().isAfter(LocalDateTime.now().minusHours(1))) {
+    @Value("${map.viewport.parallelism:8}")
+    private int viewportParallelism;
 
-            logger.info("Korišćenje cache-a za tile zoom={}, x={}, y={}", zoomLevel, tileX, tileY);
-            List<VideoMap> videos = parseVideoData(cached.get().getVideoData());
-            return filterByPeriod(videos, period);
-        }
+    public static final int MAX_ZOOM = 18;
+    private static final double BASE_TILE_SIZE = 10.0;
 
-        logger.info("Cache miss - učitavanje iz baze za tile zoom={}, x={}, y={}", zoomLevel, tileX, tileY);
-        return loadAndCacheTile(zoomLevel, tileX, tileY, period);
+    // L1: dekodirani tile-ovi u memoriji. Jedan load po ključu (ostali čekaju isti rezultat),
+    // a posle refresh-seconds zastareli tile se i dalje servira dok se osvežava u pozadini.
+    // L2: map_tile_cache u bazi, deljen između instanci - čita se samo kad tile nije u L1;
+    // osvežavanje gradi tile iz prostornog indeksa i upisuje ga u L2 samo ako se promenio.
+    private LoadingCache<TileKey, MapTileContent> tileCache;
+    private Counter l2Hits;
+    private Counter l2Misses;
+    // Paralelno učitavanje promašaja viewport-a (čitanje L2 i izgradnja tile-a blokiraju)
+    private ExecutorService viewportExecutor;
+
+    @PostConstruct
+    public void init() {
+        tileCache = Caffeine.newBuilder()
+                .maximumSize(l1MaxTiles)
+                .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(new CacheLoader<TileKey, MapTileContent>() {
+                    @Override
+                    public MapTileContent load(TileKey key) {
+                        return loadTile(key);
+                    }
+
+                    @Override
+                    public MapTileContent reload(TileKey key, MapTileContent oldValue) {
+                        return rebuildTile(key, oldValue);
+                    }
+                });
+
+        AtomicInteger threadCount = new AtomicInteger();
+        viewportExecutor = Executors.newFixedThreadPool(viewportParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "map-viewport-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CaffeineCacheMetrics.monitor(meterRegistry, tileCache, "map_tiles");
+        Gauge.builder("cache_hit_ratio", tileCache, cache -> cache.stats().hitRate())
+                .tag("cache", "map_tiles")
+                .description("Udeo pogodaka u cache-u")
+                .register(meterRegistry);
+        l2Hits = Counter.builder("map_tile_l2_requests")
+                .tag("result", "hit")
+                .description("Učitavanja tile-a iz baze")
+                .register(meterRegistry);
+        l2Misses = Counter.builder("map_tile_l2_requests")
+                .tag("result", "miss")
+                .description("Učitavanja tile-a iz baze")
+                .register(meterRegistry);
+
+        // Upload-i sa druge instance stižu kroz sinhronizaciju indeksa
+        spatialIndex.onSyncedPoint(point -> refreshTilesAt(point.getLatitude(), point.getLongitude()));
     }
 
-    @Transactional
-    public List<VideoMap> loadAndCacheTile(int zoomLevel, int tileX, int tileY, TimePeriod period) {
-        double[] bounds = calculateTileBounds(zoomLevel, tileX, tileY);
-
-        logger.info("Učitavanje tile-a - bounds: lat[{}, {}], lon[{}, {}]",
-                bounds[0], bounds[2], bounds[1], bounds[3]);
-
-        List<Video> videos = videoRepository.findByLocationWithinBounds(
-                bounds[0], bounds[1], bounds[2], bounds[3]
-        );
-
-        logger.info("Pronađeno {} video snimaka u tile-u", videos.size());
-
-        List<VideoMap> dtos = aggregateVideosForZoom(videos, zoomLevel);
+    public List<VideoMap> getVideosForTile(int zoomLevel, int tileX, int tileY, TimePeriod period) {
+        logger.debug("Zahtev za tile: zoom={}, x={}, y={}, period={}", zoomLevel, tileX, tileY, period);
+        return getTile(zoomLevel, tileX, tileY).getVideos(period);
+    }
 
-        saveTileCache(zoomLevel, tileX, tileY, dtos);
+    public MapTileContent getTile(int zoomLevel, int tileX, int tileY) {
+        validateTile(zoomLevel, tileX, tileY);
+        return tileCache.get(new TileKey(zoomLevel, tileX, tileY));
+    }
 
-        return filterByPeriod(dtos, period);
+    // Tile-ovi koje bounding box seče na datom zoom-u
+    public List<MapViewportRequest.TileRef> tilesInBounds(int zoom, double minLat, double minLon,
+                                                          double maxLat, double maxLon) {
+        validateZoom(zoom);
+        int[] min = getTileCoordinates(Math.max(-90, minLat), Math.max(-180, minLon), zoom);
+        int[] max = getTileCoordinates(Math.min(90, maxLat), Math.min(180, maxLon), zoom);
+        // Ivica 180°/90° pada tačno na granicu poslednjeg tile-a
+        max[0] = Math.min(max[0], tilesAcross(zoom, 360) - 1);
+        max[1] = Math.min(max[1], tilesAcross(zoom, 180) - 1);
+        long count = (long) (max[0] - min[0] + 1) * (max[1] - min[1] + 1);
+        if (count > viewportMaxTiles) {
+            throw new IllegalArgumentException("Viewport ima " + count + " tile-ova, dozvoljeno je " + viewportMaxTiles);
+        }
+        List<MapViewportRequest.TileRef> tiles = new ArrayList<>();
+        for (int x = min[0]; x <= max[0]; x++) {
+            for (int y = min[1]; y <= max[1]; y++) {
+                tiles.add(new MapViewportRequest.TileRef(x, y));
+            }
+        }
+        return tiles;
     }
 
-    private List<VideoMap> filterByPeriod(List<VideoMap> videos, TimePeriod period) {
-        LocalDateTime cutoffDate = getCutoffDate(period);
+    // Poziva se pre slanja odgovora: kad NDJSON stream jednom krene, greška više ne može da bude 400
+    public void validateViewport(int zoom, Collection<MapViewportRequest.TileRef> tiles) {
+        validateZoom(zoom);
+        Set<TileKey> keys = new HashSet<>();
+        for (MapViewportRequest.TileRef tile : tiles) {
+            validateTile(zoom, tile.getX(), tile.getY());
+            keys.add(new TileKey(zoom, tile.getX(), tile.getY()));
+        }
+        if (keys.size() > viewportMaxTiles) {
+            throw new IllegalArgumentException("Viewport ima " + keys.size() + " tile-ova, dozvoljeno je " + viewportMaxTiles);
+        }
+    }
 
-        if (cutoffDate == null) {
-            return videos;
+    // Tile-ovi viewport-a (već provereni sa validateViewport) bez duplikata: oni iz L1 se šalju odmah,
+    // promašaji se učitavaju paralelno i šalju redom kojim stižu. Ako se ETag poklapa sa klijentovim,
+    // šalje se samo ETag.
+    public void streamViewport(int zoom, Collection<MapViewportRequest.TileRef> tiles, TimePeriod period,
+                               Map<String, String> knownETags, Consumer<MapViewportTile> sink) throws InterruptedException {
+        Set<TileKey> keys = new LinkedHashSet<>();
+        for (MapViewportRequest.TileRef tile : tiles) {
+            keys.add(new TileKey(zoom, tile.getX(), tile.getY()));
+        }
+        Map<String, String> eTags = knownETags != null ? knownETags : Map.of();
+
+        ExecutorCompletionService<MapViewportTile> misses = new ExecutorCompletionService<>(viewportExecutor);
+        int pending = 0;
+        for (TileKey key : keys) {
+            MapTileContent content = tileCache.getIfPresent(key);
+            if (content != null) {
+                sink.accept(toViewportTile(key, content, period, eTags));
+            } else {
+                misses.submit(() -> loadViewportTile(key, period, eTags));
+                pending++;
+            }
         }
 
-        return videos.stream()
-                .filter(v -> v.getUploadDate() != null && v.getUploadDate().isAfter(cutoffDate))
-                .collect(Collectors.toList());
+        for (; pending > 0; pending--) {
+            try {
+                sink.accept(misses.take().get());
+            } catch (ExecutionException e) {
+                logger.error("Greška pri učitavanju tile-a u viewport-u: ", e.getCause());
+            }
+        }
     }
 
-    private LocalDateTime getCutoffDate(TimePeriod period) {
-        return switch (period) {
-            case LAST_30_DAYS -> LocalDateTime.now().minusDays(30);
-            case CURRENT_YEAR -> LocalDateTime.of(LocalDate.now().getYear(), 1, 1, 0, 0);
-            case ALL_TIME -> null;
-        };
+    private MapViewportTile loadViewportTile(TileKey key, TimePeriod period, Map<String, String> knownETags) {
+        try {
+            return toViewportTile(key, tileCache.get(key), period, knownETags);
+        } catch (Exception e) {
+            logger.error("Greška pri učitavanju tile-a zoom={}, x={}, y={}: ", key.zoom(), key.x(), key.y(), e);
+            MapViewportTile tile = new MapViewportTile(key.zoom(), key.x(), key.y());
+            tile.setError("Tile nije dostupan");
+            return tile;
+        }
     }
 
-    private List<VideoMap> aggregateVideosForZoom(List<Video> videos, int zoomLevel) {
-        if (videos.isEmpty()) {
-            return new ArrayList<>();
+    private MapViewportTile toViewportTile(TileKey key, MapTileContent content, TimePeriod period,
+                                           Map<String, String> knownETags) {
+        MapViewportTile tile = new MapViewportTile(key.zoom(), key.x(), key.y());
+        tile.setEtag(content.getETag(period));
+        if (tile.getEtag().equals(knownETags.get(key.x() + "," + key.y()))) {
+            tile.setNotModified(true);
+        } else {
+            tile.setVideos(content.getVideos(period));
         }
+        return tile;
+    }
 
-        if (zoomLevel >= 9) {
-            logger.info("★★★ ZOOM {} (BLIZU) - Prikazujem SVE {} snimke ★★★", zoomLevel, videos.size());
-            return videos.stream()
-                    .map(this::toDTO)
-                    .collect(Collectors.toList());
-
-        } else if (zoomLevel >= 6) {
-            logger.info("★★★ ZOOM {} (REGION) - Segmenti {}° ★★★", zoomLevel, SEGMENT_SIZE_ZOOM_6);
-            return clusterToSingleRepresentative(videos, SEGMENT_SIZE_ZOOM_6);
+    private static void validateZoom(int zoom) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom mora biti između 0 i " + MAX_ZOOM);
+        }
+    }
 
-        } else {
-            logger.info("★★★ ZOOM {} (KONTINENT) - Segmenti {}° ★★★", zoomLevel, SEGMENT_SIZE_ZOOM_3);
-            return clusterToSingleRepresentative(videos, SEGMENT_SIZE_ZOOM_3);
+    // Koordinate van mreže bi napunile L1 i map_tile_cache praznim tile-ovima
+    private static void validateTile(int zoom, int tileX, int tileY) {
+        validateZoom(zoom);
+        if (tileX < 0 || tileX >= tilesAcross(zoom, 360) || tileY < 0 || tileY >= tilesAcross(zoom, 180)) {
+            throw new IllegalArgumentException("Tile " + tileX + "," + tileY + " ne postoji na zoom-u " + zoom);
         }
     }
 
-    private List<VideoMap> clusterToSingleRepresentative(List<Video> videos, double segmentSize) {
+    // Broj tile-ova po osi; poslednji može da prelazi 180°/90° kad veličina tile-a ne deli opseg
+    private static int tilesAcross(int zoom, double degrees) {
+        return (int) Math.ceil(degrees / (BASE_TILE_SIZE / Math.pow(2, zoom / 3.0)));
+    }
 
-        Map<String, List<Video>> segments = new HashMap<>();
+    @PreDestroy
+    public void shutdown() {
+        viewportExecutor.shutdownNow();
+    }
 
-        for (Video video : videos) {
-            if (video.getLatitude() == null || video.getLongitude() == null) {
-                continue;
+    // Loader za L1: svež red iz L2 ako postoji, inače se tile gradi ponovo
+    private MapTileContent loadTile(TileKey key) {
+        Optional<MapTileCache> cached = tileCacheRepository.findCurrent(key.zoom(), key.x(), key.y());
+
+        if (cached.isPresent() && cached.get().getTileData() != null
+                && cached.get().getLastUpdated().isAfter(LocalDateTime.now().minusMinutes(l2TtlMinutes))) {
+            try {
+                MapTileContent content = MapTileContent.fromBytes(cached.get().getTileData());
+                l2Hits.increment();
+                return content;
+            } catch (IllegalArgumentException e) {
+                logger.warn("Oštećen tile u cache-u zoom={}, x={}, y={} - gradim ponovo", key.zoom(), key.x(), key.y());
             }
+        }
 
-            int segmentX = (int) Math.floor(video.getLongitude() / segmentSize);
-            int segmentY = (int) Math.floor(video.getLatitude() / segmentSize);
-            String segmentKey = segmentX + "_" + segmentY;
+        l2Misses.increment();
+        logger.info("Cache miss - gradim tile zoom={}, x={}, y={}", key.zoom(), key.x(), key.y());
+        MapTileContent content = buildTile(key.zoom(), key.x(), key.y());
+        saveTileCache(key.zoom(), key.x(), key.y(), content);
+        return content;
+    }
 
-            segments.computeIfAbsent(segmentKey, k -> new ArrayList<>()).add(video);
+    private MapTileContent rebuildTile(TileKey key, MapTileContent oldValue) {
+        MapTileContent content = buildTile(key.zoom(), key.x(), key.y());
+        if (!Arrays.equals(oldValue.getBytes(), content.getBytes())) {
+            saveTileCache(key.zoom(), key.x(), key.y(), content);
         }
+        return content;
+    }
 
-        List<VideoMap> result = new ArrayList<>();
+    private void refreshTilesAt(double lat, double lon) {
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+            int[] tileCoords = getTileCoordinates(lat, lon, zoom);
+            TileKey key = new TileKey(zoom, tileCoords[0], tileCoords[1]);
+            // Tile-ovi koji nisu u L1 pročitaće nov red iz L2 pri sledećem zahtevu
+            if (tileCache.asMap().containsKey(key)) {
+                tileCache.refresh(key);
+            }
+        }
+    }
 
-        for (Map.Entry<String, List<Video>> entry : segments.entrySet()) {
-            List<Video> segmentVideos = entry.getValue();
+    // Sve sekcije perioda odjednom - iz indeksa je to nekoliko lookup-a
+    private MapTileContent buildTile(int zoomLevel, int tileX, int tileY) {
+        double[] bounds = calculateTileBounds(zoomLevel, tileX, tileY);
 
-            Video mostViewed = segmentVideos.stream()
-                    .max(Comparator.comparingLong(v -> v.getViewCount() != null ? v.getViewCount() : 0L))
-                    .orElse(segmentVideos.get(0));
+        logger.debug("Učitavanje tile-a - bounds: lat[{}, {}], lon[{}, {}]",
+                bounds[0], bounds[2], bounds[1], bounds[3]);
 
-            double centerLat = segmentVideos.stream()
-                    .mapToDouble(Video::getLatitude)
-                    .average()
-                    .orElse(mostViewed.getLatitude());
+        Map<TimePeriod, List<VideoMap>> videosByPeriod = spatialIndex.isReady()
+                ? buildTileFromIndex(zoomLevel, bounds)
+                : buildTileFromDatabase(zoomLevel, bounds);
 
-            double centerLon = segmentVideos.stream()
-                    .mapToDouble(Video::getLongitude)
-                    .average()
-                    .orElse(mostViewed.getLongitude());
+        logger.info("Tile zoom={}, x={}, y={}: {} markera", zoomLevel, tileX, tileY,
+                videosByPeriod.get(TimePeriod.ALL_TIME).size());
 
-            VideoMap dto = toDTO(mostViewed);
-            dto.setClusterSize(segmentVideos.size());
-            dto.setLatitude(centerLat);
-            dto.setLongitude(centerLon);
+        return MapTileContent.of(videosByPeriod);
+    }
 
-            result.add(dto);
+    private Map<TimePeriod, List<VideoMap>> buildTileFromIndex(int zoomLevel, double[] bounds) {
+        Map<TimePeriod, List<VideoMap>> result = new EnumMap<>(TimePeriod.class);
+        for (TimePeriod period : TimePeriod.values()) {
+            result.put(period, spatialIndex.tile(zoomLevel, period, bounds[0], bounds[1], bounds[2], bounds[3]));
         }
+        return result;
+    }
 
+    // Samo dok se prostorni indeks ne učita pri startu: klasteri samo za videe iz ovog tile-a
+    private Map<TimePeriod, List<VideoMap>> buildTileFromDatabase(int zoomLevel, double[] bounds) {
+        List<VideoGeoPoint> videos = spatialKeyRepository
+                .findGeoPointsWithinBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+
+        VideoClusterIndex clusters = new VideoClusterIndex((minLat, minLon, maxLat, maxLon) -> videos);
+        clusters.load(videos);
+
+        Map<TimePeriod, List<VideoMap>> result = new EnumMap<>(TimePeriod.class);
+        for (TimePeriod period : TimePeriod.values()) {
+            if (zoomLevel > VideoClusterIndex.MAX_CLUSTER_ZOOM) {
+                result.put(period, videos.stream()
+                        .filter(video -> VideoSpatialIndex.contains(video, bounds[0], bounds[1], bounds[2], bounds[3]))
+                        .filter(video -> clusters.includes(period, video))
+                        .map(VideoGeoPoint::toVideoMap)
+                        .collect(Collectors.toList()));
+            } else {
+                result.put(period, clusters.query(zoomLevel, period, bounds[0], bounds[1], bounds[2], bounds[3]));
+            }
+        }
         return result;
     }
 
-    private double[] calculateTileBounds(int zoomLevel, int tileX, int tileY) {
+    // {minLat, minLon, maxLat, maxLon}
+    public double[] calculateTileBounds(int zoomLevel, int tileX, int tileY) {
         double tileSize = BASE_TILE_SIZE / Math.pow(2, zoomLevel / 3.0);
 
         double minLon = tileX * tileSize - 180;
@@ -190,20 +360,35 @@ public class MapTileService {
 
         logger.info("Ažuriranje tile-ova za novi video: {}", video.getId());
 
-        for (int zoom : ZOOM_LEVELS) {
-            int[] tileCoords = getTileCoordinates(
-                    video.getLatitude(),
-                    video.getLongitude(),
-                    zoom
-            );
+        // Indeks i L1 tek posle commit-a, da rollback upload-a ne ostavi tačku na mapi.
+        // L1 se osvežava u pozadini - do tada se servira stari tile.
+        VideoGeoPoint point = VideoGeoPoint.of(video);
+        markTilesStale(video.getLatitude(), video.getLongitude());
 
-            Optional<MapTileCache> tile = tileCacheRepository
-                    .findByZoomLevelAndTileXAndTileY(zoom, tileCoords[0], tileCoords[1]);
+        Runnable publish = () -> {
+            spatialIndex.add(point);
+            refreshTilesAt(point.getLatitude(), point.getLongitude());
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
 
-            if (tile.isPresent()) {
-                MapTileCache cache = tile.get();
-                cache.setLastUpdated(LocalDateTime.now().minusHours(2));
-                tileCacheRepository.save(cache);
+    // L2 redovi svih generacija, da i generacija koja se upravo gradi dobije invalidaciju
+    @Transactional
+    public void markTilesStale(double lat, double lon) {
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+            int[] tileCoords = getTileCoordinates(lat, lon, zoom);
+
+            if (tileCacheRepository.markStale(zoom, tileCoords[0], tileCoords[1],
+                    LocalDateTime.now().minusMinutes(l2TtlMinutes + 1)) > 0) {
                 logger.info("Invalidiran cache za tile: zoom={}, x={}, y={}",
                         zoom, tileCoords[0], tileCoords[1]);
             }
@@ -217,41 +402,19 @@ public class MapTileService {
         return new int[] {tileX, tileY};
     }
 
-    private VideoMap toDTO(Video video) {
-        String uploaderName = video.getUser() != null ? video.getUser().getUsername() : "Unknown";
-
-        Long id = video.getId();
-        String title = video.getTitle();
-        String thumbnailUrl = video.getThumbnailPath();
-        double latitude = video.getLatitude() != null ? video.getLatitude() : 0.0;
-        double longitude = video.getLongitude() != null ? video.getLongitude() : 0.0;
-        LocalDateTime uploadDate = video.getCreatedAt();
-        long viewCount = video.getViewCount() != null ? video.getViewCount() : 0L;
-
-        return new VideoMap(
-                id,
-                title,
-                thumbnailUrl,
-                latitude,
-                longitude,
-                uploadDate,
-                viewCount,
-                1,
-                uploaderName
-        );
-    }
-
-    private void saveTileCache(int zoomLevel, int tileX, int tileY, List<VideoMap> videos) {
+    private void saveTileCache(int zoomLevel, int tileX, int tileY, MapTileContent content) {
         try {
-            String jsonData = objectMapper.writeValueAsString(videos);
-
             MapTileCache cache = tileCacheRepository
-                    .findByZoomLevelAndTileXAndTileY(zoomLevel, tileX, tileY)
-                    .orElse(new MapTileCache(zoomLevel, tileX, tileY));
-
-            cache.setVideoData(jsonData);
+                    .findCurrent(zoomLevel, tileX, tileY)
+                    .orElseGet(() -> {
+                        MapTileCache created = new MapTileCache(zoomLevel, tileX, tileY);
+                        created.setGeneration(tileCacheRepository.currentGeneration());
+                        return created;
+                    });
+
+            cache.setTileData(content.getBytes());
             cache.setLastUpdated(LocalDateTime.now());
-            cache.setVideoCount(videos.size());
+            cache.setVideoCount(content.getVideoCount());
 
             tileCacheRepository.save(cache);
 
@@ -260,19 +423,10 @@ public class MapTileService {
         }
     }
 
-    private List<VideoMap> parseVideoData(String jsonData) {
-        try {
-            return objectMapper.readValue(jsonData,
-                    new TypeReference<List<VideoMap>>() {});
-        } catch (Exception e) {
-            logger.error("Greška pri parsiranju video podataka: ", e);
-            return new ArrayList<>();
-        }
-    }
-
     @Transactional
     public void clearAllCache() {
         tileCacheRepository.deleteAll();
+        tileCache.invalidateAll();
         logger.info("Ceo tile cache obrisan");
     }
 
@@ -282,4 +436,7 @@ public class MapTileService {
         tileCacheRepository.deleteOlderThan(cutoff);
         logger.info("Obrisan cache stariji od {}", cutoff);
     }
+
+    private record TileKey(int zoom, int x, int y) {
+    }
 }
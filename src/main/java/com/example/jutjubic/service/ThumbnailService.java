@@ -0,0 +1,174 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.model.Video;
+import com.example.jutjubic.repository.VideoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+// Keš thumbnail-a ograničen ukupnim brojem bajtova, ne brojem unosa.
+// Svaki unos nosi jak ETag (SHA-256 sadržaja) i content type prepoznat iz zaglavlja fajla.
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    // Približan overhead objekta unosa, da i mali thumbnail-i imaju realnu težinu
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${thumbnails.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${thumbnails.cache.max-entry-bytes:2097152}")
+    private int maxEntryBytes;
+
+    @Value("${thumbnails.cache.expire-minutes:60}")
+    private long expireMinutes;
+
+    private Cache<Long, Thumbnail> cache;
+    private Counter oversizeCounter;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long videoId, Thumbnail thumbnail) -> thumbnail.getBytes().length + ENTRY_OVERHEAD_BYTES)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "thumbnails");
+        Gauge.builder("thumbnail_cache_bytes", this, ThumbnailService::getCachedBytes)
+                .description("Ukupna veličina thumbnail-a u kešu")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("thumbnail_cache_max_bytes", this, s -> s.maxBytes)
+                .description("Budžet thumbnail keša")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        oversizeCounter = Counter.builder("thumbnail_cache_oversize")
+                .description("Thumbnail-i preveliki za keš, servirani direktno sa diska")
+                .register(meterRegistry);
+    }
+
+    public Thumbnail getThumbnail(Long videoId) {
+        Thumbnail cached = cache.getIfPresent(videoId);
+        if (cached != null) {
+            return cached;
+        }
+
+        Video video = videoRepository.findById(videoId)
+                .orElseThrow(() -> new IllegalArgumentException("Video not found"));
+        Thumbnail thumbnail = Thumbnail.of(fileStorageService.loadThumbnail(resolvePath(video)));
+        store(videoId, thumbnail);
+        return thumbnail;
+    }
+
+    public void put(Long videoId, byte[] bytes) {
+        store(videoId, Thumbnail.of(bytes));
+    }
+
+    public void invalidate(Long videoId) {
+        cache.invalidate(videoId);
+    }
+
+    public long getCachedBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private void store(Long videoId, Thumbnail thumbnail) {
+        if (thumbnail.getBytes().length > maxEntryBytes) {
+            oversizeCounter.increment();
+            logger.debug("Thumbnail za video {} ima {} bajtova, ne kešira se", videoId, thumbnail.getBytes().length);
+            return;
+        }
+        cache.put(videoId, thumbnail);
+    }
+
+    // Kompresovana verzija ima prednost kad postoji na disku
+    private String resolvePath(Video video) {
+        if (Boolean.TRUE.equals(video.getThumbnailCompressed()) && video.getThumbnailCompressedPath() != null
+                && new File(video.getThumbnailCompressedPath()).isFile()) {
+            return video.getThumbnailCompressedPath();
+        }
+        return video.getThumbnailPath();
+    }
+
+    public static class Thumbnail {
+        private final byte[] bytes;
+        private final String eTag;
+        private final MediaType contentType;
+
+        private Thumbnail(byte[] bytes, String eTag, MediaType contentType) {
+            this.bytes = bytes;
+            this.eTag = eTag;
+            this.contentType = contentType;
+        }
+
+        static Thumbnail of(byte[] bytes) {
+            return new Thumbnail(bytes, computeETag(bytes), detectContentType(bytes));
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public MediaType getContentType() {
+            return contentType;
+        }
+
+        private static String computeETag(byte[] bytes) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+                return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 nije dostupan", e);
+            }
+        }
+
+        private static MediaType detectContentType(byte[] bytes) {
+            if (bytes.length >= 8 && (bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+                return MediaType.IMAGE_PNG;
+            }
+            if (bytes.length >= 6 && bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F') {
+                return MediaType.IMAGE_GIF;
+            }
+            if (bytes.length >= 12 && bytes[0] == 'R' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == 'F'
+                    && bytes[8] == 'W' && bytes[9] == 'E' && bytes[10] == 'B' && bytes[11] == 'P') {
+                return MediaType.parseMediaType("image/webp");
+            }
+            return MediaType.IMAGE_JPEG;
+        }
+    }
+}
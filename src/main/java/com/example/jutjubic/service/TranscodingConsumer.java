@@ -2,6 +2,9 @@ package com.example.jutjubic.service;
 
 import com.example.jutjubic.config.RabbitMQConfig;
 import com.example.jutjubic.dto.TranscodingMessage;
+import com.example.jutjubic.dto.TranscodingMessage.TranscodingParams;
+import com.example.jutjubic.model.VideoRendition;
+import com.example.jutjubic.repository.VideoRenditionRepository;
 import com.example.jutjubic.repository.VideoRepository;
 import com.rabbitmq.client.Channel;
 import org.springframework.amqp.core.Message;
@@ -9,53 +12,253 @@ import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 @Service
 public class TranscodingConsumer {
 
+    public static final String HLS_MASTER_NAME = "master.m3u8";
+    public static final String LISTENER_ID = "transcodingConsumer";
+
     @Autowired
     private FFmpegService ffmpegService;
 
     @Autowired
     private VideoRepository videoRepository;
 
+    @Autowired
+    private VideoRenditionRepository videoRenditionRepository;
+
+    @Autowired
+    private TranscodingProgressService progressService;
+
+    @Autowired
+    private TranscodingJobService jobService;
+
     @RabbitListener(
-            queues = RabbitMQConfig.VIDEO_TRANSCODING_QUEUE,
-            concurrency = "2-4",
+            id = LISTENER_ID,
+            queues = {RabbitMQConfig.VIDEO_TRANSCODING_PRIORITY_QUEUE, RabbitMQConfig.VIDEO_TRANSCODING_QUEUE},
+            concurrency = "${transcoding.scheduler.initial-concurrency:2}",
             containerFactory = "rabbitListenerContainerFactory"
     )
     public void processTranscodingJob(TranscodingMessage message, Channel channel, Message amqpMessage) throws Exception {
         long deliveryTag = amqpMessage.getMessageProperties().getDeliveryTag();
         String consumerId = Thread.currentThread().getName();
+        Long videoId = message.getVideoId();
 
-        System.out.println("🎬 [" + consumerId + "] Primljena poruka za transcoding video ID: " + message.getVideoId());
+        System.out.println("🎬 [" + consumerId + "] Primljena poruka za transcoding video ID: " + videoId);
 
-        videoRepository.updateTranscodingStatus(message.getVideoId(), "IN_PROGRESS");
+        if (jobService.isCancelled(videoId)) {
+            System.out.println("⏭️ [" + consumerId + "] Transcoding otkazan pre početka za video ID: " + videoId);
+            channel.basicAck(deliveryTag, false);
+            return;
+        }
+
+        if (videoRepository.updateTranscodingStatusUnlessCancelled(videoId, "IN_PROGRESS") == 0) {
+            System.out.println("⏭️ [" + consumerId + "] Transcoding otkazan pre početka za video ID: " + videoId);
+            channel.basicAck(deliveryTag, false);
+            return;
+        }
+
+        double durationSeconds = resolveDuration(message);
+        int[] sourceSize = ffmpegService.probeVideoSize(message.getOriginalVideoPath());
+        List<String> ladder = planHlsLadder(message, sourceSize);
+        int stages = 1 + ladder.size();
+        // Faza 0 je MP4, zatim po jedna faza za svaku HLS rendiciju koja se zaista enkoduje
+        progressService.start(videoId, stages, durationSeconds);
+        TranscodingJobHandle job = jobService.begin(message, stages, durationSeconds,
+                amqpMessage.getMessageProperties().getTimestamp());
+        String preset = jobService.presetFor(durationSeconds);
+        message.getParams().setPreset(preset);
 
         try {
             ffmpegService.transcodeVideo(
                     message.getOriginalVideoPath(),
                     message.getOutputVideoPath(),
-                    message.getParams()
+                    message.getParams(),
+                    progress -> progressService.update(videoId, 0, "mp4", progress),
+                    job
             );
 
-            videoRepository.updateTranscodingResult(
-                    message.getVideoId(),
-                    message.getOutputVideoPath(),
-                    "COMPLETED"
-            );
+            // Video ostaje IN_PROGRESS dok se ne završe i HLS rendicije, pa otkazivanje važi za ceo job
+            videoRepository.updateTranscodedVideoPath(videoId, message.getOutputVideoPath());
 
-            System.out.println("✅ [" + consumerId + "] Transcoding završen za video ID: " + message.getVideoId()
+            System.out.println("✅ [" + consumerId + "] MP4 transcoding završen za video ID: " + videoId
                     + " -> " + message.getOutputVideoPath());
 
+            transcodeHlsLadder(message, ladder, sourceSize, preset, job, consumerId);
+
+            // Lestvica ne baca izuzetak: otkazivanje važi za ceo job, a istek roka posle gotovog MP4
+            // ostavlja video COMPLETED - nedovršene rendicije su FAILED, master playlist-a je od gotovih
+            if (job.getStopReason() == TranscodingJobHandle.StopReason.CANCELLED
+                    || videoRepository.updateTranscodingStatusUnlessCancelled(videoId, "COMPLETED") == 0) {
+                job.stop(TranscodingJobHandle.StopReason.CANCELLED);
+                finishCancelled(videoId, job, channel, deliveryTag, consumerId);
+                return;
+            }
+
+            if (job.isStopped()) {
+                System.out.println("⏱️ [" + consumerId + "] Rok istekao tokom HLS rendicija, video ID: " + videoId
+                        + " ostaje dostupan kao MP4 i sa gotovim rendicijama");
+            }
+            progressService.finish(videoId, "COMPLETED");
+            jobService.end(job, job.isStopped() ? "completed_partial" : "completed");
             channel.basicAck(deliveryTag, false);
 
         } catch (Exception e) {
-            System.err.println("❌ [" + consumerId + "] Greška pri transcodingu za video ID: " + message.getVideoId()
+            if (job.getStopReason() == TranscodingJobHandle.StopReason.CANCELLED) {
+                finishCancelled(videoId, job, channel, deliveryTag, consumerId);
+                return;
+            }
+
+            System.err.println("❌ [" + consumerId + "] Greška pri transcodingu za video ID: " + videoId
                     + " - " + e.getMessage());
 
-            videoRepository.updateTranscodingStatus(message.getVideoId(), "FAILED");
+            videoRepository.updateTranscodingStatusUnlessCancelled(videoId, "FAILED");
+            progressService.finish(videoId, "FAILED");
+            jobService.end(job, job.isStopped() ? "timed_out" : "failed");
 
             channel.basicNack(deliveryTag, false, false);
         }
     }
+
+    private void finishCancelled(Long videoId, TranscodingJobHandle job, Channel channel, long deliveryTag,
+                                 String consumerId) throws IOException {
+        System.out.println("🛑 [" + consumerId + "] Transcoding otkazan za video ID: " + videoId);
+        videoRepository.updateTranscodingStatus(videoId, "CANCELLED");
+        progressService.finish(videoId, "CANCELLED");
+        jobService.end(job, "cancelled");
+        channel.basicAck(deliveryTag, false);
+    }
+
+    private double resolveDuration(TranscodingMessage message) {
+        if (message.getDurationSeconds() != null && message.getDurationSeconds() > 0) {
+            return message.getDurationSeconds();
+        }
+        return ffmpegService.probeDurationSeconds(message.getOriginalVideoPath());
+    }
+
+    // Rendicije koje će se enkodovati, od najniže; preskočene odmah dobijaju status SKIPPED
+    private List<String> planHlsLadder(TranscodingMessage message, int[] sourceSize) {
+        List<String> planned = new ArrayList<>();
+        if (message.getHlsOutputDir() == null || message.getRenditions() == null || message.getRenditions().isEmpty()) {
+            return planned;
+        }
+
+        List<String> ladder = new ArrayList<>(message.getRenditions());
+        ladder.sort(Comparator.comparingInt(name -> FFmpegService.heightOf(TranscodingParams.forRendition(name))));
+
+        int sourceHeight = sourceSize != null ? sourceSize[1] : -1;
+
+        for (int i = 0; i < ladder.size(); i++) {
+            String name = ladder.get(i);
+
+            // Nema smisla povećavati rezoluciju izvora; najniža rendicija se pravi uvek
+            if (i > 0 && sourceHeight > 0
+                    && FFmpegService.heightOf(TranscodingParams.forRendition(name)) > sourceHeight) {
+                videoRenditionRepository.updateStatus(message.getVideoId(), name, "SKIPPED", LocalDateTime.now());
+                continue;
+            }
+            planned.add(name);
+        }
+        return planned;
+    }
+
+    // Svaka rendicija ima svoj status - neuspeh jedne ne obara ostale ni MP4 izlaz
+    private void transcodeHlsLadder(TranscodingMessage message, List<String> ladder, int[] sourceSize, String preset,
+                                    TranscodingJobHandle job, String consumerId) {
+        if (ladder.isEmpty()) {
+            return;
+        }
+
+        Long videoId = message.getVideoId();
+
+        for (int i = 0; i < ladder.size(); i++) {
+            String name = ladder.get(i);
+            TranscodingParams params = TranscodingParams.forRendition(name);
+            params.setPreset(preset);
+            int stage = i + 1;
+
+            // MP4 je već gotov; posle isteka roka preostale rendicije se samo označe kao neuspele
+            if (job.isStopped()) {
+                videoRenditionRepository.updateStatus(videoId, name, "FAILED", LocalDateTime.now());
+                continue;
+            }
+
+            String renditionDir = message.getHlsOutputDir() + File.separator + name;
+            videoRenditionRepository.updateStatus(videoId, name, "IN_PROGRESS", LocalDateTime.now());
+
+            try {
+                ffmpegService.transcodeHlsRendition(message.getOriginalVideoPath(), renditionDir, params,
+                        progress -> progressService.update(videoId, stage, "hls_" + name, progress), job);
+                String playlistPath = renditionDir + File.separator + FFmpegService.HLS_PLAYLIST_NAME;
+                videoRenditionRepository.updateResult(videoId, name, "COMPLETED", playlistPath,
+                        outputResolution(playlistPath, params, sourceSize), LocalDateTime.now());
+
+                System.out.println("✅ [" + consumerId + "] HLS " + name + " završen za video ID: " + videoId);
+            } catch (Exception e) {
+                System.err.println("❌ [" + consumerId + "] HLS " + name + " nije uspeo za video ID: " + videoId
+                        + " - " + e.getMessage());
+                videoRenditionRepository.updateStatus(videoId, name, "FAILED", LocalDateTime.now());
+            }
+        }
+
+        // MP4 je već gotov, pa neuspela master playlist-a obara samo HLS izlaz
+        try {
+            writeMasterPlaylist(videoId, message.getHlsOutputDir());
+        } catch (Exception e) {
+            System.err.println("❌ [" + consumerId + "] HLS master playlist-a nije upisana za video ID: " + videoId
+                    + " - " + e.getMessage());
+        }
+    }
+
+    // RESOLUTION mora da odgovara stvarnom izlazu: scale=-2:H zadržava odnos stranica izvora,
+    // pa nominalna širina iz lestvice (npr. 1280 za 720p) važi samo za 16:9 izvor
+    private String outputResolution(String playlistPath, TranscodingParams params, int[] sourceSize) {
+        int[] output = ffmpegService.probeVideoSize(playlistPath);
+        if (output != null) {
+            return output[0] + "x" + output[1];
+        }
+        int height = FFmpegService.heightOf(params);
+        if (sourceSize != null) {
+            return FFmpegService.scaledWidth(sourceSize[0], sourceSize[1], height) + "x" + height;
+        }
+        return params.getResolution();
+    }
+
+    private void writeMasterPlaylist(Long videoId, String hlsOutputDir) throws IOException {
+        List<VideoRendition> completed = videoRenditionRepository.findByVideoIdOrderByBandwidthAsc(videoId)
+                .stream()
+                .filter(r -> "COMPLETED".equals(r.getStatus()))
+                .toList();
+
+        if (completed.isEmpty()) {
+            System.err.println("⚠️ Nijedna HLS rendicija nije uspela za video ID: " + videoId);
+            return;
+        }
+
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n");
+        for (VideoRendition rendition : completed) {
+            playlist.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(rendition.getBandwidth())
+                    .append(",RESOLUTION=").append(rendition.getResolution()).append('\n')
+                    .append(rendition.getName()).append('/').append(FFmpegService.HLS_PLAYLIST_NAME).append('\n');
+        }
+
+        // Upis preko privremenog fajla da klijent nikad ne dobije polovičnu playlist-u
+        Path master = Path.of(hlsOutputDir, HLS_MASTER_NAME);
+        Path temp = Path.of(hlsOutputDir, HLS_MASTER_NAME + ".tmp");
+        Files.writeString(temp, playlist.toString(), StandardCharsets.UTF_8);
+        Files.move(temp, master, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        videoRepository.updateHlsMasterPath(videoId, master.toString());
+    }
 }
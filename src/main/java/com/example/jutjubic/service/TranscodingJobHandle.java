@@ -0,0 +1,62 @@
+package com.example.jutjubic.service;
+
+import java.time.Instant;
+
+// Kontrola jednog transcoding job-a: rok izvršavanja i FFmpeg proces koji trenutno radi
+public class TranscodingJobHandle {
+
+    public enum StopReason { CANCELLED, TIMED_OUT }
+
+    private final Long videoId;
+    private final long startedNanos;
+    private final Instant deadline;
+    private Process process;
+    private volatile StopReason stopReason;
+
+    public TranscodingJobHandle(Long videoId, Instant deadline) {
+        this.videoId = videoId;
+        this.startedNanos = System.nanoTime();
+        this.deadline = deadline;
+    }
+
+    synchronized void attach(Process process) {
+        this.process = process;
+        if (stopReason != null) {
+            process.destroyForcibly();
+        }
+    }
+
+    synchronized void detach() {
+        process = null;
+    }
+
+    public synchronized boolean stop(StopReason reason) {
+        if (stopReason != null) {
+            return false;
+        }
+        stopReason = reason;
+        if (process != null) {
+            process.destroyForcibly();
+        }
+        return true;
+    }
+
+    public void checkNotStopped() {
+        if (stopReason != null) {
+            throw new IllegalStateException("Transcoding prekinut za video " + videoId + ": " + stopReason);
+        }
+    }
+
+    public boolean isExpired(Instant now) {
+        return now.isAfter(deadline);
+    }
+
+    public boolean isStopped() {
+        return stopReason != null;
+    }
+
+    public StopReason getStopReason() { return stopReason; }
+    public Long getVideoId() { return videoId; }
+    public long getStartedNanos() { return startedNanos; }
+    public Instant getDeadline() { return deadline; }
+}
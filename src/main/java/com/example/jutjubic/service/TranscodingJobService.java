@@ -0,0 +1,198 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.config.RabbitMQConfig;
+import com.example.jutjubic.dto.TranscodingMessage;
+import com.example.jutjubic.model.User;
+import com.example.jutjubic.repository.VideoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Cena, prioritet, rok i otkazivanje transcoding job-ova, plus metrike čekanja i izvršavanja
+@Service
+public class TranscodingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscodingJobService.class);
+
+    // Procena trajanja kad ga nemamo: ~2 Mbit/s tipičan bitrate upload-a
+    private static final double ASSUMED_BYTES_PER_SECOND = 250_000;
+    // Job od 30s medija po fazi je referentna "jedinica" za log skalu prioriteta
+    private static final double COST_UNIT_SECONDS = 30;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Value("${transcoding.job.timeout-base-seconds:300}")
+    private long timeoutBaseSeconds;
+
+    @Value("${transcoding.job.timeout-factor:3.0}")
+    private double timeoutFactor;
+
+    @Value("${transcoding.job.timeout-max-seconds:14400}")
+    private long timeoutMaxSeconds;
+
+    @Value("${transcoding.ffmpeg.long-video-seconds:1800}")
+    private long longVideoSeconds;
+
+    @Value("${transcoding.ffmpeg.long-video-preset:veryfast}")
+    private String longVideoPreset;
+
+    @Value("${transcoding.job.watchdog-interval-ms:2000}")
+    private long watchdogIntervalMs;
+
+    private final Map<Long, TranscodingJobHandle> running = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWaitTimer;
+    private ScheduledExecutorService watchdog;
+
+    public TranscodingJobService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.queueWaitTimer = Timer.builder("transcoding_queue_wait")
+                .description("Vreme od slanja job-a do početka obrade")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Rok i otkazivanje se proveravaju na sopstvenoj niti - deljeni scheduler zauzimaju dugi poslovi
+    @PostConstruct
+    public void startWatchdog() {
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transcoding-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::enforceDeadlines, watchdogIntervalMs, watchdogIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopWatchdog() {
+        watchdog.shutdownNow();
+    }
+
+    // Sekunde medija koje treba enkodovati (MP4 + sve HLS rendicije)
+    public static double estimateCost(TranscodingMessage message) {
+        double mediaSeconds;
+        if (message.getDurationSeconds() != null && message.getDurationSeconds() > 0) {
+            mediaSeconds = message.getDurationSeconds();
+        } else if (message.getFileSizeBytes() != null && message.getFileSizeBytes() > 0) {
+            mediaSeconds = message.getFileSizeBytes() / ASSUMED_BYTES_PER_SECOND;
+        } else {
+            return -1;
+        }
+        int stages = 1 + (message.getRenditions() != null ? message.getRenditions().size() : 0);
+        return mediaSeconds * stages;
+    }
+
+    // Jeftiniji job = veći prioritet; log skala da i dugi video dobije redosled među sličnima
+    public static int priorityFor(double cost) {
+        int max = RabbitMQConfig.TRANSCODING_MAX_PRIORITY;
+        if (cost < 0) {
+            return max / 2;
+        }
+        int bucket = (int) (Math.log(1 + cost / COST_UNIT_SECONDS) / Math.log(2));
+        return Math.max(0, max - 1 - bucket);
+    }
+
+    public TranscodingJobHandle begin(TranscodingMessage message, int stages, double durationSeconds, Date enqueuedAt) {
+        if (enqueuedAt != null) {
+            long waitMillis = System.currentTimeMillis() - enqueuedAt.getTime();
+            queueWaitTimer.record(Math.max(0, waitMillis), TimeUnit.MILLISECONDS);
+        }
+
+        TranscodingJobHandle job = new TranscodingJobHandle(message.getVideoId(),
+                Instant.now().plus(timeoutFor(durationSeconds, stages)));
+        running.put(message.getVideoId(), job);
+        return job;
+    }
+
+    public void end(TranscodingJobHandle job, String outcome) {
+        running.remove(job.getVideoId(), job);
+        Timer.builder("transcoding_job_duration")
+                .description("Trajanje obrade transcoding job-a")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - job.getStartedNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    Duration timeoutFor(double durationSeconds, int stages) {
+        if (durationSeconds <= 0) {
+            return Duration.ofSeconds(timeoutMaxSeconds);
+        }
+        long seconds = timeoutBaseSeconds + (long) (durationSeconds * stages * timeoutFactor);
+        return Duration.ofSeconds(Math.min(seconds, timeoutMaxSeconds));
+    }
+
+    public String presetFor(double durationSeconds) {
+        return durationSeconds > longVideoSeconds ? longVideoPreset : FFmpegService.DEFAULT_PRESET;
+    }
+
+    public boolean isCancelled(Long videoId) {
+        return "CANCELLED".equals(videoRepository.findTranscodingStatusById(videoId));
+    }
+
+    // Status u bazi je izvor istine, pa otkazivanje radi i kad job izvršava druga instanca
+    public void cancel(Long videoId, User user) {
+        int updated = videoRepository.cancelTranscoding(videoId, user.getId());
+        if (updated == 0) {
+            throw new IllegalStateException("Transcoding za video " + videoId + " ne može da se otkaže");
+        }
+
+        TranscodingJobHandle job = running.get(videoId);
+        if (job != null) {
+            job.stop(TranscodingJobHandle.StopReason.CANCELLED);
+        }
+        logger.info("Transcoding za video {} otkazan", videoId);
+    }
+
+    void enforceDeadlines() {
+        if (running.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        for (TranscodingJobHandle job : running.values()) {
+            if (job.isExpired(now) && job.stop(TranscodingJobHandle.StopReason.TIMED_OUT)) {
+                logger.warn("Transcoding za video {} prekoračio rok {}, prekidam", job.getVideoId(), job.getDeadline());
+                Counter.builder("transcoding_job_timeouts")
+                        .description("Job-ovi prekinuti zbog prekoračenja roka")
+                        .register(meterRegistry)
+                        .increment();
+            }
+        }
+
+        try {
+            List<Long> cancelled = videoRepository.findIdsByIdInAndTranscodingStatus(running.keySet(), "CANCELLED");
+            for (Long videoId : cancelled) {
+                TranscodingJobHandle job = running.get(videoId);
+                if (job != null && job.stop(TranscodingJobHandle.StopReason.CANCELLED)) {
+                    logger.info("Transcoding za video {} otkazan sa druge instance", videoId);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Provera otkazanih job-ova nije uspela: {}", e.getMessage());
+        }
+    }
+
+    public int getRunningCount() {
+        return running.size();
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+
 @Service
 public class TranscodingProducer {
 
@@ -13,8 +15,15 @@ public class TranscodingProducer {
     private RabbitTemplate rabbitTemplate;
 
     public void sendTranscodingJob(TranscodingMessage message) {
-        System.out.println("Šaljem transcoding job u queue: " + message);
-        rabbitTemplate.convertAndSend(RabbitMQConfig.VIDEO_TRANSCODING_QUEUE, message);
+        int priority = TranscodingJobService.priorityFor(TranscodingJobService.estimateCost(message));
+
+        System.out.println("Šaljem transcoding job u queue (prioritet " + priority + "): " + message);
+        rabbitTemplate.convertAndSend(RabbitMQConfig.VIDEO_TRANSCODING_PRIORITY_QUEUE, message, amqpMessage -> {
+            amqpMessage.getMessageProperties().setPriority(priority);
+            // Timestamp služi za merenje vremena čekanja u queue-u
+            amqpMessage.getMessageProperties().setTimestamp(new Date());
+            return amqpMessage;
+        });
         System.out.println("Poruka uspešno poslata u queue");
     }
 }
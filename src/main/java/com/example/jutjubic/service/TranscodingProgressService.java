@@ -0,0 +1,181 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.TranscodingProgress;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Progres transcoding job-ova u memoriji: izvor za REST, Micrometer gauge-ove i STOMP push
+// na /topic/transcoding/{videoId} (najviše jednom u push-interval-ms po videu)
+@Service
+public class TranscodingProgressService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscodingProgressService.class);
+
+    public static final String TOPIC_PREFIX = "/topic/transcoding/";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${transcoding.progress.push-interval-ms:1000}")
+    private long pushIntervalMs;
+
+    @Value("${transcoding.progress.retention-minutes:10}")
+    private long retentionMinutes;
+
+    private final Map<Long, JobState> jobs = new ConcurrentHashMap<>();
+
+    public TranscodingProgressService(MeterRegistry registry) {
+        Gauge.builder("transcoding_active_jobs", this, TranscodingProgressService::countActive)
+                .description("Broj transcoding job-ova koji se trenutno izvršavaju")
+                .register(registry);
+        Gauge.builder("transcoding_encode_speed_avg", this, TranscodingProgressService::averageSpeed)
+                .description("Prosečna brzina enkodovanja aktivnih job-ova (x realtime)")
+                .register(registry);
+        Gauge.builder("transcoding_eta_seconds_max", this, TranscodingProgressService::maxEtaSeconds)
+                .description("Najduže preostalo vreme među aktivnim job-ovima")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    public void start(Long videoId, int totalStages, double durationSeconds) {
+        JobState state = new JobState(new TranscodingProgress(videoId, totalStages), durationSeconds);
+        jobs.put(videoId, state);
+        push(state, true);
+    }
+
+    public void update(Long videoId, int stage, String phase, FFmpegService.Progress ffmpeg) {
+        JobState state = jobs.get(videoId);
+        if (state == null) {
+            return;
+        }
+
+        boolean phaseChanged;
+        synchronized (state) {
+            TranscodingProgress progress = state.progress;
+            phaseChanged = stage != progress.getStage() || !phase.equals(progress.getPhase());
+
+            double phaseFraction = state.durationSeconds > 0
+                    ? Math.min(1.0, ffmpeg.getOutTimeSeconds() / state.durationSeconds)
+                    : 0;
+            if (ffmpeg.isFinished()) {
+                phaseFraction = 1.0;
+            }
+
+            progress.setStage(stage);
+            progress.setPhase(phase);
+            progress.setFrame(ffmpeg.getFrame());
+            progress.setFps(ffmpeg.getFps());
+            progress.setSpeed(ffmpeg.getSpeed());
+            progress.setPhasePercent(round(phaseFraction * 100));
+            progress.setPercent(round((stage + phaseFraction) / progress.getTotalStages() * 100));
+
+            // Preostali deo tekuće faze plus cele preostale faze, pri trenutnoj brzini
+            if (state.durationSeconds > 0 && ffmpeg.getSpeed() > 0) {
+                double remainingMedia = (1.0 - phaseFraction) * state.durationSeconds
+                        + (progress.getTotalStages() - stage - 1) * state.durationSeconds;
+                progress.setEtaSeconds(Math.round(remainingMedia / ffmpeg.getSpeed()));
+            } else {
+                progress.setEtaSeconds(null);
+            }
+            progress.setUpdatedAt(LocalDateTime.now());
+        }
+
+        push(state, phaseChanged || ffmpeg.isFinished());
+    }
+
+    public void finish(Long videoId, String status) {
+        JobState state = jobs.get(videoId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.progress.setStatus(status);
+            state.progress.setEtaSeconds(0L);
+            if ("COMPLETED".equals(status)) {
+                state.progress.setPercent(100);
+                state.progress.setPhasePercent(100);
+            }
+            state.progress.setUpdatedAt(LocalDateTime.now());
+        }
+        push(state, true);
+    }
+
+    public TranscodingProgress getProgress(Long videoId) {
+        JobState state = jobs.get(videoId);
+        return state != null ? state.progress : null;
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void removeFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.entrySet().removeIf(entry -> !entry.getValue().isActive()
+                && entry.getValue().progress.getUpdatedAt().isBefore(threshold));
+    }
+
+    private void push(JobState state, boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - state.lastPushMillis < pushIntervalMs) {
+            return;
+        }
+        state.lastPushMillis = now;
+
+        try {
+            messagingTemplate.convertAndSend(TOPIC_PREFIX + state.progress.getVideoId(), state.progress);
+        } catch (Exception e) {
+            logger.warn("Slanje progresa za video {} nije uspelo: {}", state.progress.getVideoId(), e.getMessage());
+        }
+    }
+
+    private double countActive() {
+        return jobs.values().stream().filter(JobState::isActive).count();
+    }
+
+    private double averageSpeed() {
+        return jobs.values().stream()
+                .filter(JobState::isActive)
+                .mapToDouble(state -> state.progress.getSpeed())
+                .filter(speed -> speed > 0)
+                .average()
+                .orElse(0);
+    }
+
+    private double maxEtaSeconds() {
+        return jobs.values().stream()
+                .filter(JobState::isActive)
+                .map(state -> state.progress.getEtaSeconds())
+                .filter(eta -> eta != null)
+                .mapToDouble(Long::doubleValue)
+                .max()
+                .orElse(0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static class JobState {
+        final TranscodingProgress progress;
+        final double durationSeconds;
+        volatile long lastPushMillis;
+
+        JobState(TranscodingProgress progress, double durationSeconds) {
+            this.progress = progress;
+            this.durationSeconds = durationSeconds;
+        }
+
+        boolean isActive() {
+            return "IN_PROGRESS".equals(progress.getStatus());
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.PopularVideoResponse;
+import com.example.jutjubic.model.PopularVideo;
+import com.example.jutjubic.model.Video;
+import com.example.jutjubic.repository.PopularVideoRepository;
+import com.example.jutjubic.repository.VideoRepository;
+import com.example.jutjubic.repository.VideoViewDailyRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Popularnost u memoriji: po videu prsten od 8 dnevnih bucket-a (danas + 7 prethodnih) i
+// tačan top-K koji se ažurira pri svakom pregledu. Težine su iste kao u ETL-u: 8 - daysAgo,
+// najstariji dan 1. Skor između dve promene dana samo raste, pa je top-K tačan bez ponovnog
+// sortiranja; pri promeni dana i resync-u iz baze računa se ponovo.
+@Service
+public class TrendingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingService.class);
+
+    static final int WINDOW_DAYS = 8;
+
+    @Autowired
+    private VideoViewDailyRepository videoViewDailyRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private PopularVideoRepository popularVideoRepository;
+
+    @Value("${trending.top-k:10}")
+    private int topK;
+
+    @Value("${trending.snapshot-size:3}")
+    private int snapshotSize;
+
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile Map<Long, VideoTrend> trends = new ConcurrentHashMap<>();
+    private volatile long currentDay = LocalDate.now().toEpochDay();
+    private volatile boolean ready;
+    private volatile TopK top;
+
+    private final Timer resyncTimer;
+
+    public TrendingService(MeterRegistry meterRegistry) {
+        Gauge.builder("trending_tracked_videos", this, s -> s.trends.size())
+                .description("Broj videa sa pregledima u prozoru popularnosti")
+                .register(meterRegistry);
+        resyncTimer = Timer.builder("trending_resync_duration")
+                .description("Trajanje obnove trending stanja iz baze")
+                .register(meterRegistry);
+    }
+
+    static long weight(long daysAgo) {
+        return daysAgo >= WINDOW_DAYS - 1 ? 1 : WINDOW_DAYS - daysAgo;
+    }
+
+    private static int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) WINDOW_DAYS);
+    }
+
+    public void recordView(Long videoId, LocalDateTime viewedAt) {
+        long day = viewedAt.toLocalDate().toEpochDay();
+        if (day > currentDay) {
+            rollover(day);
+        }
+
+        stateLock.readLock().lock();
+        try {
+            long daysAgo = currentDay - day;
+            if (daysAgo < 0 || daysAgo >= WINDOW_DAYS) {
+                return;
+            }
+
+            VideoTrend trend = trends.computeIfAbsent(videoId, k -> new VideoTrend());
+            long score;
+            synchronized (trend) {
+                trend.counts[slot(day)]++;
+                trend.score += weight(daysAgo);
+                score = trend.score;
+            }
+            if (top != null) {
+                top.offer(videoId, score);
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<PopularVideoResponse> getTopVideos(int limit) {
+        List<TopEntry> entries = top != null ? top.snapshot(Math.min(limit, topK)) : List.of();
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Video> videos = videoRepository.findAllWithUserByIdIn(
+                        entries.stream().map(e -> e.videoId).toList())
+                .stream()
+                .collect(Collectors.toMap(Video::getId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<PopularVideoResponse> result = new ArrayList<>(entries.size());
+        int rank = 1;
+        for (TopEntry entry : entries) {
+            Video video = videos.get(entry.videoId);
+            if (video == null) {
+                continue;
+            }
+            PopularVideoResponse response = new PopularVideoResponse();
+            response.setId(video.getId());
+            response.setTitle(video.getTitle());
+            response.setDescription(video.getDescription());
+            response.setThumbnailPath(video.getThumbnailPath());
+            response.setVideoPath(video.getVideoPath());
+            response.setUsername(video.getUser().getUsername());
+            response.setViewCount(video.getViewCount());
+            response.setPopularityScore((double) entry.score);
+            response.setRankPosition(rank++);
+            response.setPipelineRunAt(now);
+            result.add(response);
+        }
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        resync();
+    }
+
+    // Druga replika vidi samo svoje preglede u memoriji, pa se stanje periodično poravna sa bazom.
+    // Pregledi zabeleženi dok upit traje mogu da se izgube ili uračunaju dvaput do sledećeg resync-a.
+    @Scheduled(fixedDelayString = "${trending.resync-interval-ms:300000}",
+            initialDelayString = "${trending.resync-interval-ms:300000}")
+    public void resync() {
+        long start = System.nanoTime();
+        try {
+            long today = LocalDate.now().toEpochDay();
+            List<Object[]> rows = videoViewDailyRepository.findDailyCountsSince(
+                    LocalDate.ofEpochDay(today - (WINDOW_DAYS - 1)));
+
+            Map<Long, VideoTrend> rebuilt = new ConcurrentHashMap<>();
+            for (Object[] row : rows) {
+                Long videoId = ((Number) row[0]).longValue();
+                long day = toEpochDay(row[1]);
+                long count = ((Number) row[2]).longValue();
+                if (today - day < 0 || today - day >= WINDOW_DAYS) {
+                    continue;
+                }
+                rebuilt.computeIfAbsent(videoId, k -> new VideoTrend()).counts[slot(day)] += count;
+            }
+
+            stateLock.writeLock().lock();
+            try {
+                trends = rebuilt;
+                currentDay = today;
+                recomputeScores();
+                ready = true;
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            logger.info("Trending stanje obnovljeno iz baze: {} videa", rebuilt.size());
+        } catch (Exception e) {
+            logger.error("Obnova trending stanja nije uspela: {}", e.getMessage(), e);
+        } finally {
+            resyncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Scheduled(cron = "0 * * * * *")
+    public void checkDayRollover() {
+        long today = LocalDate.now().toEpochDay();
+        if (today > currentDay) {
+            rollover(today);
+        }
+    }
+
+    // Istorija ide u popular_videos periodično; živi odgovor ne zavisi od ovih upisa
+    @Scheduled(fixedDelayString = "${trending.snapshot-interval-ms:900000}",
+            initialDelayString = "${trending.snapshot-interval-ms:900000}")
+    @Transactional
+    public void publishSnapshot() {
+        if (!ready || top == null) {
+            return;
+        }
+        List<TopEntry> entries = top.snapshot(snapshotSize);
+        LocalDateTime runAt = LocalDateTime.now();
+        int rank = 1;
+        for (TopEntry entry : entries) {
+            popularVideoRepository.save(new PopularVideo(
+                    runAt, videoRepository.getReferenceById(entry.videoId), (double) entry.score, rank++));
+        }
+        logger.info("Trending snapshot sačuvan: {} videa", entries.size());
+    }
+
+    private void rollover(long newDay) {
+        stateLock.writeLock().lock();
+        try {
+            if (newDay <= currentDay) {
+                return;
+            }
+            // Slotovi novih dana sadrže podatke od pre WINDOW_DAYS dana - brišu se
+            long clearFrom = Math.max(currentDay + 1, newDay - WINDOW_DAYS + 1);
+            for (VideoTrend trend : trends.values()) {
+                for (long day = clearFrom; day <= newDay; day++) {
+                    trend.counts[slot(day)] = 0;
+                }
+            }
+            currentDay = newDay;
+            recomputeScores();
+            logger.info("Trending prozor pomeren na {}", LocalDate.ofEpochDay(newDay));
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // Poziva se samo pod write lock-om
+    private void recomputeScores() {
+        TopK rebuilt = new TopK(topK);
+        trends.entrySet().removeIf(entry -> {
+            VideoTrend trend = entry.getValue();
+            long score = 0;
+            for (int daysAgo = 0; daysAgo < WINDOW_DAYS; daysAgo++) {
+                score += trend.counts[slot(currentDay - daysAgo)] * weight(daysAgo);
+            }
+            trend.score = score;
+            if (score == 0) {
+                return true;
+            }
+            rebuilt.offer(entry.getKey(), score);
+            return false;
+        });
+        top = rebuilt;
+    }
+
+    private static long toEpochDay(Object value) {
+        if (value instanceof Date date) {
+            return date.toLocalDate().toEpochDay();
+        }
+        return ((LocalDate) value).toEpochDay();
+    }
+
+    private static final class VideoTrend {
+        final long[] counts = new long[WINDOW_DAYS];
+        long score;
+    }
+
+    private static final class TopEntry {
+        final long videoId;
+        final long score;
+
+        TopEntry(long videoId, long score) {
+            this.videoId = videoId;
+            this.score = score;
+        }
+    }
+
+    // Top-K pod skorovima koji samo rastu: video van skupa može da uđe samo kad mu skor
+    // pređe trenutni minimum, pa je provera bez lock-a dovoljna za većinu pregleda
+    private static final class TopK {
+        private static final Comparator<TopEntry> ORDER = Comparator
+                .comparingLong((TopEntry e) -> e.score).reversed()
+                .thenComparingLong(e -> e.videoId);
+
+        private final int capacity;
+        private final TreeSet<TopEntry> ordered = new TreeSet<>(ORDER);
+        private final Map<Long, TopEntry> members = new HashMap<>();
+        private volatile long threshold = Long.MIN_VALUE;
+
+        TopK(int capacity) {
+            this.capacity = Math.max(1, capacity);
+        }
+
+        void offer(long videoId, long score) {
+            if (score < threshold) {
+                return;
+            }
+            synchronized (this) {
+                TopEntry candidate = new TopEntry(videoId, score);
+                TopEntry existing = members.get(videoId);
+                if (existing != null) {
+                    if (score <= existing.score) {
+                        return;
+                    }
+                    ordered.remove(existing);
+                } else if (members.size() >= capacity) {
+                    TopEntry last = ordered.last();
+                    if (ORDER.compare(candidate, last) >= 0) {
+                        return;
+                    }
+                    ordered.pollLast();
+                    members.remove(last.videoId);
+                }
+                ordered.add(candidate);
+                members.put(videoId, candidate);
+                threshold = members.size() >= capacity ? ordered.last().score : Long.MIN_VALUE;
+            }
+        }
+
+        synchronized List<TopEntry> snapshot(int limit) {
+            List<TopEntry> result = new ArrayList<>(Math.min(limit, ordered.size()));
+            for (TopEntry entry : ordered) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(entry);
+            }
+            return result;
+        }
+    }
+}
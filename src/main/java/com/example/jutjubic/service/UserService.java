@@ -20,7 +20,7 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Korisnik nije pronađen"));
 
-        Long videoCount = (long) videoRepository.findByUserIdOrderByCreatedAtDesc(userId).size();
+        Long videoCount = videoRepository.countByUserId(userId);
 
         return new UserProfileResponse(
                 user.getId(),
@@ -0,0 +1,299 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.VideoGeoPoint;
+import com.example.jutjubic.dto.VideoMap;
+import com.example.jutjubic.enums.TimePeriod;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hijerarhijski klasteri za zoom 0..MAX_CLUSTER_ZOOM: na nivou z mreža ćelija od
+// CLUSTER_BASE_DEGREES / 2^z stepeni, pa svaka ćelija tačno pokriva 4 ćelije nivoa z+1.
+// Klaster čuva broj tačaka, zbir koordinata (centroid) i najgledaniji video kao predstavnika,
+// posebno za svaki TimePeriod; dodavanje i uklanjanje menjaju po jednu ćeliju na svakom nivou.
+// Granice perioda se računaju pri izgradnji (na dan), pa se indeks gradi ponovo svakog dana.
+public class VideoClusterIndex {
+
+    public static final int MAX_CLUSTER_ZOOM = 8;
+    static final double CLUSTER_BASE_DEGREES = 120.0;
+    private static final TimePeriod[] PERIODS = TimePeriod.values();
+
+    // Izvor tačaka za ponovni izbor predstavnika kad se trenutni ukloni
+    public interface PointSource {
+        List<VideoGeoPoint> query(double minLat, double minLon, double maxLat, double maxLon);
+    }
+
+    private final PointSource pointSource;
+    private final LocalDateTime[] cutoffs = new LocalDateTime[PERIODS.length];
+    private final List<Map<Long, Cluster>> levels = new ArrayList<>(MAX_CLUSTER_ZOOM + 1);
+
+    public VideoClusterIndex(PointSource pointSource) {
+        this(pointSource, LocalDate.now());
+    }
+
+    public VideoClusterIndex(PointSource pointSource, LocalDate today) {
+        this.pointSource = pointSource;
+        for (TimePeriod period : PERIODS) {
+            cutoffs[period.ordinal()] = cutoff(period, today);
+        }
+        for (int zoom = 0; zoom <= MAX_CLUSTER_ZOOM; zoom++) {
+            levels.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    public static LocalDateTime cutoff(TimePeriod period, LocalDate today) {
+        return switch (period) {
+            case LAST_30_DAYS -> today.minusDays(30).atStartOfDay();
+            case CURRENT_YEAR -> LocalDate.of(today.getYear(), 1, 1).atStartOfDay();
+            case ALL_TIME -> null;
+        };
+    }
+
+    public static double cellDegrees(int zoom) {
+        return CLUSTER_BASE_DEGREES / (1 << zoom);
+    }
+
+    public boolean includes(TimePeriod period, VideoGeoPoint point) {
+        LocalDateTime cutoff = cutoffs[period.ordinal()];
+        return cutoff == null || (point.getUploadDate() != null && !point.getUploadDate().isBefore(cutoff));
+    }
+
+    // Početna izgradnja odozdo: najfiniji nivo iz tačaka, svaki grublji spajanjem 4 podćelije.
+    // Ako indeks već ima sadržaj, tačke se dodaju pojedinačno.
+    public void load(Collection<VideoGeoPoint> points) {
+        if (!levels.get(MAX_CLUSTER_ZOOM).isEmpty()) {
+            points.forEach(this::add);
+            return;
+        }
+
+        Map<Long, Cluster> finest = levels.get(MAX_CLUSTER_ZOOM);
+        for (VideoGeoPoint point : points) {
+            finest.computeIfAbsent(cellKey(MAX_CLUSTER_ZOOM, point.getLatitude(), point.getLongitude()),
+                    k -> new Cluster()).add(point, this);
+        }
+
+        for (int zoom = MAX_CLUSTER_ZOOM - 1; zoom >= 0; zoom--) {
+            Map<Long, Cluster> parents = levels.get(zoom);
+            int childColumns = columns(zoom + 1);
+            int columns = columns(zoom);
+            for (Map.Entry<Long, Cluster> child : levels.get(zoom + 1).entrySet()) {
+                long childRow = child.getKey() / childColumns;
+                long childCol = child.getKey() % childColumns;
+                parents.computeIfAbsent((childRow / 2) * columns + childCol / 2, k -> new Cluster())
+                        .merge(child.getValue());
+            }
+        }
+    }
+
+    // compute drži ključ zaključanim, pa se dodavanje ne može izgubiti u klasteru koji se upravo briše
+    public void add(VideoGeoPoint point) {
+        for (int zoom = 0; zoom <= MAX_CLUSTER_ZOOM; zoom++) {
+            levels.get(zoom).compute(cellKey(zoom, point.getLatitude(), point.getLongitude()), (key, cluster) -> {
+                Cluster target = cluster != null ? cluster : new Cluster();
+                target.add(point, this);
+                return target;
+            });
+        }
+    }
+
+    // Tačka mora već biti uklonjena iz izvora, da ne bude ponovo izabrana za predstavnika
+    public void remove(VideoGeoPoint point) {
+        for (int zoom = 0; zoom <= MAX_CLUSTER_ZOOM; zoom++) {
+            long key = cellKey(zoom, point.getLatitude(), point.getLongitude());
+            Cluster cluster = levels.get(zoom).computeIfPresent(key, (k, c) -> c.remove(point, this) ? null : c);
+            if (cluster != null && cluster.isRepresentedBy(point)) {
+                cluster.electRepresentatives(pointsInCell(zoom, key), this);
+            }
+        }
+    }
+
+    // Poziva se posle promene broja pregleda tačke - može da postane novi predstavnik
+    public void viewsChanged(VideoGeoPoint point) {
+        for (int zoom = 0; zoom <= MAX_CLUSTER_ZOOM; zoom++) {
+            Cluster cluster = levels.get(zoom).get(cellKey(zoom, point.getLatitude(), point.getLongitude()));
+            if (cluster != null) {
+                cluster.offerRepresentative(point, this);
+            }
+        }
+    }
+
+    // Klasteri čiji je centroid u [minLat, maxLat) x [minLon, maxLon); centroid je uvek unutar
+    // svoje ćelije, pa je dovoljno proći ćelije koje seku opseg
+    public List<VideoMap> query(int zoom, TimePeriod period, double minLat, double minLon, double maxLat, double maxLon) {
+        Map<Long, Cluster> level = levels.get(zoom);
+        int columns = columns(zoom);
+        int minRow = row(zoom, minLat);
+        int maxRow = row(zoom, maxLat);
+        int minCol = column(zoom, minLon);
+        int maxCol = column(zoom, maxLon);
+
+        List<VideoMap> result = new ArrayList<>();
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                Cluster cluster = level.get((long) r * columns + c);
+                if (cluster == null) {
+                    continue;
+                }
+                VideoMap dto = cluster.toVideoMap(period.ordinal());
+                if (dto != null && dto.getLatitude() >= minLat && dto.getLatitude() < maxLat
+                        && dto.getLongitude() >= minLon && dto.getLongitude() < maxLon) {
+                    result.add(dto);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<VideoMap> all(int zoom, TimePeriod period) {
+        List<VideoMap> result = new ArrayList<>(levels.get(zoom).size());
+        for (Cluster cluster : levels.get(zoom).values()) {
+            VideoMap dto = cluster.toVideoMap(period.ordinal());
+            if (dto != null) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    public int clusterCount(int zoom) {
+        return levels.get(zoom).size();
+    }
+
+    private List<VideoGeoPoint> pointsInCell(int zoom, long key) {
+        int columns = columns(zoom);
+        double cell = cellDegrees(zoom);
+        double minLat = (key / columns) * cell - 90;
+        double minLon = (key % columns) * cell - 180;
+        List<VideoGeoPoint> result = new ArrayList<>();
+        for (VideoGeoPoint point : pointSource.query(minLat, minLon, minLat + cell, minLon + cell)) {
+            if (cellKey(zoom, point.getLatitude(), point.getLongitude()) == key) {
+                result.add(point);
+            }
+        }
+        return result;
+    }
+
+    private static long cellKey(int zoom, double lat, double lon) {
+        return (long) row(zoom, lat) * columns(zoom) + column(zoom, lon);
+    }
+
+    private static int columns(int zoom) {
+        return (int) Math.ceil(360 / cellDegrees(zoom));
+    }
+
+    private static int rows(int zoom) {
+        return (int) Math.ceil(180 / cellDegrees(zoom));
+    }
+
+    private static int row(int zoom, double lat) {
+        return clamp((int) Math.floor((lat + 90) / cellDegrees(zoom)), rows(zoom));
+    }
+
+    private static int column(int zoom, double lon) {
+        return clamp((int) Math.floor((lon + 180) / cellDegrees(zoom)), columns(zoom));
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    // Agregati po periodu (indeks = TimePeriod.ordinal()); ALL_TIME broj određuje da li klaster postoji
+    private static final class Cluster {
+        private final int[] count = new int[PERIODS.length];
+        private final double[] sumLat = new double[PERIODS.length];
+        private final double[] sumLon = new double[PERIODS.length];
+        private final VideoGeoPoint[] representative = new VideoGeoPoint[PERIODS.length];
+
+        synchronized void add(VideoGeoPoint point, VideoClusterIndex index) {
+            for (TimePeriod period : PERIODS) {
+                if (!index.includes(period, point)) {
+                    continue;
+                }
+                int p = period.ordinal();
+                count[p]++;
+                sumLat[p] += point.getLatitude();
+                sumLon[p] += point.getLongitude();
+                offer(p, point);
+            }
+        }
+
+        synchronized void merge(Cluster child) {
+            for (int p = 0; p < PERIODS.length; p++) {
+                count[p] += child.count[p];
+                sumLat[p] += child.sumLat[p];
+                sumLon[p] += child.sumLon[p];
+                if (child.representative[p] != null) {
+                    offer(p, child.representative[p]);
+                }
+            }
+        }
+
+        // Vraća true kad je klaster ostao prazan
+        synchronized boolean remove(VideoGeoPoint point, VideoClusterIndex index) {
+            for (TimePeriod period : PERIODS) {
+                if (!index.includes(period, point)) {
+                    continue;
+                }
+                int p = period.ordinal();
+                count[p]--;
+                sumLat[p] -= point.getLatitude();
+                sumLon[p] -= point.getLongitude();
+                if (count[p] <= 0) {
+                    count[p] = 0;
+                    sumLat[p] = 0;
+                    sumLon[p] = 0;
+                    representative[p] = null;
+                }
+            }
+            return count[TimePeriod.ALL_TIME.ordinal()] == 0;
+        }
+
+        synchronized boolean isRepresentedBy(VideoGeoPoint point) {
+            for (VideoGeoPoint current : representative) {
+                if (current == point) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void offerRepresentative(VideoGeoPoint point, VideoClusterIndex index) {
+            for (TimePeriod period : PERIODS) {
+                if (index.includes(period, point) && count[period.ordinal()] > 0) {
+                    offer(period.ordinal(), point);
+                }
+            }
+        }
+
+        synchronized void electRepresentatives(List<VideoGeoPoint> points, VideoClusterIndex index) {
+            for (int p = 0; p < PERIODS.length; p++) {
+                representative[p] = null;
+            }
+            for (VideoGeoPoint point : points) {
+                offerRepresentative(point, index);
+            }
+        }
+
+        private void offer(int p, VideoGeoPoint point) {
+            if (representative[p] == null || point.getViewCount() > representative[p].getViewCount()) {
+                representative[p] = point;
+            }
+        }
+
+        synchronized VideoMap toVideoMap(int p) {
+            if (count[p] == 0 || representative[p] == null) {
+                return null;
+            }
+            VideoMap dto = representative[p].toVideoMap();
+            dto.setClusterSize(count[p]);
+            dto.setLatitude(sumLat[p] / count[p]);
+            dto.setLongitude(sumLon[p] / count[p]);
+            return dto;
+        }
+    }
+}
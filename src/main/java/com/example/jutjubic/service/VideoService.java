@@ -1,5 +1,6 @@
 package com.example.jutjubic.service;
 
+import com.example.jutjubic.dto.CursorPageResponse;
 import com.example.jutjubic.dto.TranscodingMessage;
 import com.example.jutjubic.dto.UploadEvent;
 import com.example.jutjubic.dto.VideoResponse;
@@ -7,27 +8,34 @@ import com.example.jutjubic.proto.UploadEventProto;
 import com.example.jutjubic.model.Tag;
 import com.example.jutjubic.model.User;
 import com.example.jutjubic.model.Video;
-import com.example.jutjubic.model.VideoView;
+import com.example.jutjubic.model.VideoRendition;
 import com.example.jutjubic.repository.TagRepository;
+import com.example.jutjubic.repository.VideoRenditionRepository;
 import com.example.jutjubic.repository.VideoRepository;
-import com.example.jutjubic.repository.VideoViewRepository;
+import com.example.jutjubic.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class VideoService {
 
+    private static final int DEFAULT_FEED_PAGE_SIZE = 20;
+
     @Autowired
     private VideoRepository videoRepository;
 
@@ -38,17 +46,29 @@ public class VideoService {
     private FileStorageService fileStorageService;
 
     @Autowired
-    private CacheService cacheService;
+    private ThumbnailService thumbnailService;
 
     @Autowired
     private MapTileService mapTileService;
 
     @Autowired
-    private VideoViewRepository videoViewRepository;
+    private ViewCountBufferService viewCountBufferService;
 
     @Autowired
     private TranscodingProducer transcodingProducer;
 
+    @Autowired
+    private VideoRenditionRepository videoRenditionRepository;
+
+    @Value("${videos.feed.max-page-size:50}")
+    private int feedMaxPageSize;
+
+    @Value("${videos.list.max-size:200}")
+    private int listMaxSize;
+
+    @Value("${transcoding.hls.ladder:240p,480p,720p,1080p}")
+    private String[] hlsLadder;
+
     @Autowired
     private UploadEventProducer uploadEventProducer;
 
@@ -63,91 +83,166 @@ public class VideoService {
                              MultipartFile thumbnail, MultipartFile video,
                              String location, Double latitude, Double longitude, User user, LocalDateTime scheduledDateTime, Long durationSeconds) {
         long videoSize = video.getSize();
-        Video savedVideo = self().saveVideoTransactional(
-                title, description, tagNames, thumbnail, video,
-                location, latitude, longitude, user, scheduledDateTime, durationSeconds
-        );
+        Video savedVideo;
+        byte[] thumbnailBytes;
 
-        sendTranscodingJob(savedVideo);
-        sendUploadEvents(savedVideo, videoSize);
+        // Kopiranje fajlova ide van transakcije - konekcija se uzima tek za INSERT
+        try {
+            String thumbnailPath = fileStorageService.storeThumbnail(thumbnail);
+            String videoPath = fileStorageService.storeVideo(video);
+            thumbnailBytes = thumbnail.getBytes();
+
+            savedVideo = self().createVideoRecord(
+                    title, description, tagNames, thumbnailPath, videoPath,
+                    location, latitude, longitude, user, scheduledDateTime, durationSeconds
+            );
+            fileStorageService.clearUploadTracking();
+        } catch (Exception e) {
+            fileStorageService.deleteAllFiles();
+            throw new RuntimeException("Video upload failed: " + e.getMessage(), e);
+        }
 
+        publishUploadedVideo(savedVideo, thumbnailBytes, videoSize);
         return savedVideo;
     }
 
-    @Transactional(timeout = 300)
-    public Video saveVideoTransactional(String title, String description, List<String> tagNames,
-                                        MultipartFile thumbnail, MultipartFile video,
-                                        String location, Double latitude, Double longitude, User user,
-                                        LocalDateTime scheduledDateTime, Long durationSeconds) {
-        try {
-            String thumbnailPath = fileStorageService.storeThumbnail(thumbnail);
-            String videoPath = fileStorageService.storeVideo(video);
+    public void publishUploadedVideo(Video savedVideo, byte[] thumbnailBytes, long videoSize) {
+        thumbnailService.put(savedVideo.getId(), thumbnailBytes);
+        sendTranscodingJob(savedVideo);
+        sendUploadEvents(savedVideo, videoSize);
+    }
 
-            Video videoEntity = new Video();
-            videoEntity.setTitle(title);
-            videoEntity.setDescription(description);
-            videoEntity.setThumbnailPath(thumbnailPath);
-            videoEntity.setVideoPath(videoPath);
-            videoEntity.setLocation(location);
-            videoEntity.setLatitude(latitude);
-            videoEntity.setLongitude(longitude);
-            videoEntity.setUser(user);
-            videoEntity.setViewCount(0L);
-            videoEntity.setTranscodingStatus("PENDING");
-
-            if (scheduledDateTime != null) {
-                videoEntity.setScheduledDateTime(scheduledDateTime);
-                videoEntity.setIsScheduled(true);
-            } else {
-                videoEntity.setIsScheduled(false);
-            }
+    @Transactional(timeout = 30)
+    public Video createVideoRecord(String title, String description, List<String> tagNames,
+                                   String thumbnailPath, String videoPath,
+                                   String location, Double latitude, Double longitude, User user,
+                                   LocalDateTime scheduledDateTime, Long durationSeconds) {
+        Video videoEntity = new Video();
+        videoEntity.setTitle(title);
+        videoEntity.setDescription(description);
+        videoEntity.setThumbnailPath(thumbnailPath);
+        videoEntity.setVideoPath(videoPath);
+        videoEntity.setLocation(location);
+        videoEntity.setLatitude(latitude);
+        videoEntity.setLongitude(longitude);
+        videoEntity.setUser(user);
+        videoEntity.setViewCount(0L);
+        videoEntity.setTranscodingStatus("PENDING");
+
+        if (scheduledDateTime != null) {
+            videoEntity.setScheduledDateTime(scheduledDateTime);
+            videoEntity.setIsScheduled(true);
+        } else {
+            videoEntity.setIsScheduled(false);
+        }
 
-            if (durationSeconds != null) {
-                videoEntity.setDurationSeconds(durationSeconds);
-            }
+        if (durationSeconds != null) {
+            videoEntity.setDurationSeconds(durationSeconds);
+        }
 
-            Set<Tag> tags = new HashSet<>();
-            if (tagNames != null) {
-                for (String tagName : tagNames) {
-                    String trimmedTag = tagName.trim();
-                    if (!trimmedTag.isEmpty()) {
-                        Tag tag = tagRepository.findByName(trimmedTag)
-                                .orElseGet(() -> {
-                                    Tag newTag = new Tag(trimmedTag);
-                                    return tagRepository.save(newTag);
-                                });
-                        tags.add(tag);
-                    }
+        Set<Tag> tags = new HashSet<>();
+        if (tagNames != null) {
+            for (String tagName : tagNames) {
+                String trimmedTag = tagName.trim();
+                if (!trimmedTag.isEmpty()) {
+                    Tag tag = tagRepository.findByName(trimmedTag)
+                            .orElseGet(() -> {
+                                Tag newTag = new Tag(trimmedTag);
+                                return tagRepository.save(newTag);
+                            });
+                    tags.add(tag);
                 }
             }
-            videoEntity.setTags(tags);
+        }
+        videoEntity.setTags(tags);
 
-            Video savedVideo = videoRepository.save(videoEntity);
+        Video savedVideo = videoRepository.save(videoEntity);
+        mapTileService.updateTileForNewVideo(savedVideo);
 
-            cacheService.cacheThumbnail(savedVideo.getId(), thumbnail);
-            mapTileService.updateTileForNewVideo(savedVideo);
-            fileStorageService.clearUploadTracking();
+        return savedVideo;
+    }
 
-            return savedVideo;
+    // Stari endpoint ostaje, ali vraća najviše videos.list.max-size najnovijih videa
+    public List<VideoResponse> getAllVideos() {
+        return loadFeed(null, listMaxSize).getItems();
+    }
 
-        } catch (Exception e) {
-            fileStorageService.deleteAllFiles();
-            throw new RuntimeException("Video upload failed: " + e.getMessage(), e);
+    public CursorPageResponse<VideoResponse> getFeed(String cursor, int size) {
+        return loadFeed(cursor, clampPageSize(size));
+    }
+
+    public CursorPageResponse<VideoResponse> getUserFeed(Long userId, String cursor, int size) {
+        return loadUserFeed(userId, cursor, clampPageSize(size));
+    }
+
+    private CursorPageResponse<VideoResponse> loadFeed(String cursor, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        PageRequest page = PageRequest.of(0, limit + 1);
+
+        List<VideoResponse> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = videoRepository.findFeedFirstPage(now, page);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = videoRepository.findFeedAfter(now, after.getCreatedAt(), after.getId(), page);
         }
+        return toFeedPage(rows, limit);
     }
 
-    public List<VideoResponse> getAllVideos() {
-        return videoRepository.findAllByOrderByCreatedAtDesc()
-                .stream()
-                .filter(video -> {
-                    if (video.getIsScheduled() != null && video.getIsScheduled()) {
-                        return video.getScheduledDateTime() != null &&
-                               LocalDateTime.now().isAfter(video.getScheduledDateTime());
-                    }
-                    return true;
-                })
-                .map(this::toVideoResponse)
-                .collect(Collectors.toList());
+    private CursorPageResponse<VideoResponse> loadUserFeed(Long userId, String cursor, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        PageRequest page = PageRequest.of(0, limit + 1);
+
+        List<VideoResponse> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = videoRepository.findUserFeedFirstPage(userId, now, page);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = videoRepository.findUserFeedAfter(userId, now, after.getCreatedAt(), after.getId(), page);
+        }
+        return toFeedPage(rows, limit);
+    }
+
+    private int clampPageSize(int size) {
+        if (size < 1) {
+            return DEFAULT_FEED_PAGE_SIZE;
+        }
+        return Math.min(size, feedMaxPageSize);
+    }
+
+    // Upit vraća jedan red više od traženog da bi se znalo da li postoji sledeća strana
+    private CursorPageResponse<VideoResponse> toFeedPage(List<VideoResponse> rows, int limit) {
+        boolean hasMore = rows.size() > limit;
+        List<VideoResponse> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+
+        attachTags(items);
+        for (VideoResponse item : items) {
+            long viewCount = item.getViewCount() != null ? item.getViewCount() : 0L;
+            item.setViewCount(viewCount + viewCountBufferService.getPendingCount(item.getId()));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            VideoResponse last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPageResponse<>(items, nextCursor, hasMore);
+    }
+
+    private void attachTags(List<VideoResponse> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<String>> tagsByVideo = new HashMap<>();
+        List<Long> ids = items.stream().map(VideoResponse::getId).collect(Collectors.toList());
+        for (Object[] row : videoRepository.findTagNamesByVideoIds(ids)) {
+            tagsByVideo.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        for (VideoResponse item : items) {
+            item.setTags(tagsByVideo.getOrDefault(item.getId(), new ArrayList<>()));
+        }
     }
 
     public VideoResponse getVideoById(Long id) {
@@ -165,23 +260,8 @@ public class VideoService {
     }
 
     public void incrementViewCount(Long videoId) {
-        int rowsAffected = videoRepository.incrementViewCount(videoId);
-
-        if (rowsAffected == 0) {
-            throw new IllegalArgumentException("Video not found with id: " + videoId);
-        }
-
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new IllegalArgumentException("Video not found with id: " + videoId));
-        VideoView videoView = new VideoView(video, LocalDateTime.now());
-        videoViewRepository.save(videoView);
-    }
-
-    @Cacheable(value = "thumbnails", key = "#videoId")
-    public byte[] getThumbnail(Long videoId) {
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new IllegalArgumentException("Video not found"));
-        return fileStorageService.loadThumbnail(video.getThumbnailPath());
+        // Pregled ide u write-behind buffer, baza se ažurira batch flush-om
+        viewCountBufferService.recordView(videoId);
     }
 
     private VideoResponse toVideoResponse(Video video) {
@@ -193,7 +273,8 @@ public class VideoService {
         response.setVideoPath(video.getVideoPath());
         response.setUsername(video.getUser().getUsername());
         response.setCreatedAt(video.getCreatedAt());
-        response.setViewCount(video.getViewCount());
+        long viewCount = video.getViewCount() != null ? video.getViewCount() : 0L;
+        response.setViewCount(viewCount + viewCountBufferService.getPendingCount(video.getId()));
         response.setLocation(video.getLocation());
         response.setTags(video.getTags().stream()
                 .map(Tag::getName)
@@ -204,21 +285,12 @@ public class VideoService {
         response.setDurationSeconds(video.getDurationSeconds());
         response.setTranscodedVideoPath(video.getTranscodedVideoPath());
         response.setTranscodingStatus(video.getTranscodingStatus());
+        response.setHlsMasterPath(video.getHlsMasterPath());
         return response;
     }
 
     public List<VideoResponse> getVideosByUserId(Long userId) {
-        return videoRepository.findByUserIdOrderByCreatedAtDesc(userId)
-                .stream()
-                .filter(video -> {
-                    if (video.getIsScheduled() != null && video.getIsScheduled()) {
-                        return video.getScheduledDateTime() != null &&
-                               LocalDateTime.now().isAfter(video.getScheduledDateTime());
-                    }
-                    return true;
-                })
-                .map(this::toVideoResponse)
-                .collect(Collectors.toList());
+        return loadUserFeed(userId, null, listMaxSize).getItems();
     }
 
     private void sendTranscodingJob(Video video) {
@@ -234,6 +306,10 @@ public class VideoService {
                     outputPath,
                     params
             );
+            message.setHlsOutputDir(generateHlsOutputDir(originalPath));
+            message.setRenditions(createRenditions(video));
+            message.setDurationSeconds(video.getDurationSeconds());
+            message.setFileSizeBytes(new File(originalPath).length());
 
             transcodingProducer.sendTranscodingJob(message);
 
@@ -272,6 +348,35 @@ public class VideoService {
         }
     }
 
+    public List<VideoRendition> getRenditions(Long videoId) {
+        return videoRenditionRepository.findByVideoIdOrderByBandwidthAsc(videoId);
+    }
+
+    private List<String> createRenditions(Video video) {
+        List<String> names = new ArrayList<>();
+        for (String rawName : hlsLadder) {
+            String name = rawName.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            TranscodingMessage.TranscodingParams params = TranscodingMessage.TranscodingParams.forRendition(name);
+            if (videoRenditionRepository.findByVideoIdAndName(video.getId(), name).isEmpty()) {
+                videoRenditionRepository.save(new VideoRendition(
+                        video, name, params.getResolution(), FFmpegService.estimateBandwidth(params)));
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    private String generateHlsOutputDir(String originalPath) {
+        File originalFile = new File(originalPath);
+        String fileName = originalFile.getName();
+        String nameWithoutExt = fileName.substring(0, fileName.lastIndexOf('.'));
+
+        return originalFile.getParent() + File.separator + "hls" + File.separator + nameWithoutExt;
+    }
+
     private String generateTranscodedVideoPath(String originalPath) {
         File originalFile = new File(originalPath);
         String parentPath = originalFile.getParent();
@@ -0,0 +1,365 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.VideoGeoPoint;
+import com.example.jutjubic.dto.VideoMap;
+import com.example.jutjubic.enums.TimePeriod;
+import com.example.jutjubic.repository.VideoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Prostorni indeks svih geo-tagovanih videa u memoriji: gusta mreža ćelija od CELL_DEGREES stepeni,
+// svaka ćelija drži niz tačaka (copy-on-write), pa upit za tile ne ide u bazu.
+// Uz njega se održavaju i klasteri za niže zoom nivoe (VideoClusterIndex).
+@Service
+public class VideoSpatialIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoSpatialIndex.class);
+
+    static final double CELL_DEGREES = 0.25;
+    private static final int COLUMNS = (int) (360 / CELL_DEGREES);
+    private static final int ROWS = (int) (180 / CELL_DEGREES);
+    private static final VideoGeoPoint[] EMPTY = new VideoGeoPoint[0];
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Ćelija je niz koji se samo zamenjuje (copy-on-write), pa čitanje ne zaključava;
+    // upisi se serijalizuju po grupi ćelija
+    private final AtomicReferenceArray<VideoGeoPoint[]> cells = new AtomicReferenceArray<>(COLUMNS * ROWS);
+    private final Object[] locks = createLocks(256);
+    private final Map<Long, VideoGeoPoint> byId = new ConcurrentHashMap<>();
+    // Klasteri se grade ponovo svakog dana (granice perioda). Izgradnja ide van lock-a; izmene indeksa
+    // drže read lock i dok ona traje beleže se u dnevnik, koji se pod kratkim write lock-om primeni
+    // na novi indeks pre zamene
+    private final ReentrantReadWriteLock clusterLock = new ReentrantReadWriteLock();
+    private volatile VideoClusterIndex clusters = new VideoClusterIndex(this::query);
+    private volatile Queue<Consumer<VideoClusterIndex>> rebuildJournal;
+    private final List<Consumer<VideoGeoPoint>> syncListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean ready;
+    private volatile LocalDateTime lastSync;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("spatial_index_videos", byId, Map::size)
+                .description("Broj geo-tagovanih videa u prostornom indeksu")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        LocalDateTime syncStart = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<VideoGeoPoint> points = videoRepository.streamGeoPoints()) {
+                    load(points);
+                }
+            });
+            lastSync = syncStart;
+            ready = true;
+            logger.info("Prostorni indeks učitan: {} videa za {} ms", byId.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Učitavanje prostornog indeksa nije uspelo, tile-ovi idu iz baze: {}", e.getMessage(), e);
+        }
+    }
+
+    // Upload-i na drugoj replici stižu ovde; dodavanje je idempotentno pa se prozor preklapa
+    @Scheduled(fixedDelayString = "${map.spatial-index.sync-interval-ms:30000}",
+            initialDelayString = "${map.spatial-index.sync-interval-ms:30000}")
+    public void syncRecentUploads() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime syncStart = LocalDateTime.now();
+        try {
+            List<VideoGeoPoint> recent = videoRepository.findGeoPointsCreatedSince(lastSync.minusMinutes(1));
+            int added = 0;
+            for (VideoGeoPoint point : recent) {
+                if (!byId.containsKey(point.getId())) {
+                    add(point);
+                    syncListeners.forEach(listener -> listener.accept(point));
+                    added++;
+                }
+            }
+            lastSync = syncStart;
+            if (added > 0) {
+                logger.info("Prostorni indeks: dodato {} novih videa sa drugih instanci", added);
+            }
+        } catch (Exception e) {
+            logger.warn("Sinhronizacija prostornog indeksa nije uspela: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public synchronized void rebuildClusters() {
+        long start = System.currentTimeMillis();
+        List<VideoGeoPoint> snapshot;
+        Queue<Consumer<VideoClusterIndex>> journal = new ConcurrentLinkedQueue<>();
+        clusterLock.writeLock().lock();
+        try {
+            snapshot = new ArrayList<>(byId.values());
+            rebuildJournal = journal;
+        } finally {
+            clusterLock.writeLock().unlock();
+        }
+
+        VideoClusterIndex rebuilt = new VideoClusterIndex(this::query, LocalDate.now());
+        try {
+            rebuilt.load(snapshot);
+        } catch (RuntimeException e) {
+            rebuildJournal = null;
+            throw e;
+        }
+
+        int replayed = 0;
+        clusterLock.writeLock().lock();
+        try {
+            for (Consumer<VideoClusterIndex> change : journal) {
+                change.accept(rebuilt);
+                replayed++;
+            }
+            clusters = rebuilt;
+            rebuildJournal = null;
+        } finally {
+            clusterLock.writeLock().unlock();
+        }
+        logger.info("Klasteri mape ponovo izgrađeni za {} videa za {} ms ({} izmena tokom izgradnje)",
+                snapshot.size(), System.currentTimeMillis() - start, replayed);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Obaveštenje o tačkama koje je dodala sinhronizacija (upload-i sa drugih instanci)
+    public void onSyncedPoint(Consumer<VideoGeoPoint> listener) {
+        syncListeners.add(listener);
+    }
+
+    // Bulk punjenje: tačke se prvo grupišu po ćeliji, pa se svaka ćelija postavi jednim nizom
+    public void load(Stream<VideoGeoPoint> points) {
+        clusterLock.readLock().lock();
+        try {
+            loadPoints(points);
+        } finally {
+            clusterLock.readLock().unlock();
+        }
+    }
+
+    private void loadPoints(Stream<VideoGeoPoint> points) {
+        Map<Integer, List<VideoGeoPoint>> grouped = new HashMap<>();
+        List<VideoGeoPoint> loaded = new ArrayList<>();
+        points.forEach(point -> {
+            byId.put(point.getId(), point);
+            loaded.add(point);
+            grouped.computeIfAbsent(cellIndex(point.getLatitude(), point.getLongitude()),
+                    k -> new ArrayList<>()).add(point);
+        });
+        for (Map.Entry<Integer, List<VideoGeoPoint>> entry : grouped.entrySet()) {
+            int index = entry.getKey();
+            synchronized (lockFor(index)) {
+                VideoGeoPoint[] existing = cellAt(index);
+                VideoGeoPoint[] merged = Arrays.copyOf(existing, existing.length + entry.getValue().size());
+                int i = existing.length;
+                for (VideoGeoPoint point : entry.getValue()) {
+                    merged[i++] = point;
+                }
+                cells.set(index, merged);
+            }
+        }
+        updateClusters(target -> target.load(loaded));
+    }
+
+    public void add(VideoGeoPoint point) {
+        clusterLock.readLock().lock();
+        try {
+            addPoint(point);
+        } finally {
+            clusterLock.readLock().unlock();
+        }
+    }
+
+    private void addPoint(VideoGeoPoint point) {
+        VideoGeoPoint previous = byId.put(point.getId(), point);
+        if (previous != null) {
+            removeFromCell(previous);
+            updateClusters(target -> target.remove(previous));
+        }
+        int index = cellIndex(point.getLatitude(), point.getLongitude());
+        synchronized (lockFor(index)) {
+            VideoGeoPoint[] existing = cellAt(index);
+            VideoGeoPoint[] updated = Arrays.copyOf(existing, existing.length + 1);
+            updated[existing.length] = point;
+            cells.set(index, updated);
+        }
+        updateClusters(target -> target.add(point));
+    }
+
+    public void remove(long videoId) {
+        clusterLock.readLock().lock();
+        try {
+            VideoGeoPoint point = byId.remove(videoId);
+            if (point != null) {
+                removeFromCell(point);
+                updateClusters(target -> target.remove(point));
+            }
+        } finally {
+            clusterLock.readLock().unlock();
+        }
+    }
+
+    public void addViews(Map<Long, Long> deltas) {
+        clusterLock.readLock().lock();
+        try {
+            deltas.forEach((videoId, delta) -> {
+                VideoGeoPoint point = byId.get(videoId);
+                if (point != null) {
+                    point.addViews(delta);
+                    updateClusters(target -> target.viewsChanged(point));
+                }
+            });
+        } finally {
+            clusterLock.readLock().unlock();
+        }
+    }
+
+    // Poziva se pod read lock-om; tokom ponovne izgradnje izmena ide i u dnevnik za novi indeks
+    private void updateClusters(Consumer<VideoClusterIndex> change) {
+        change.accept(clusters);
+        Queue<Consumer<VideoClusterIndex>> journal = rebuildJournal;
+        if (journal != null) {
+            journal.add(change);
+        }
+    }
+
+    public VideoGeoPoint get(long videoId) {
+        return byId.get(videoId);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    // Sadržaj tile-a: do MAX_CLUSTER_ZOOM gotovi klasteri tog nivoa, iznad toga pojedinačni videi
+    public List<VideoMap> tile(int zoom, TimePeriod period, double minLat, double minLon, double maxLat, double maxLon) {
+        VideoClusterIndex current = clusters;
+        if (zoom <= VideoClusterIndex.MAX_CLUSTER_ZOOM) {
+            return current.query(Math.max(0, zoom), period, minLat, minLon, maxLat, maxLon);
+        }
+        List<VideoMap> result = new ArrayList<>();
+        for (VideoGeoPoint point : query(minLat, minLon, maxLat, maxLon)) {
+            if (current.includes(period, point)) {
+                result.add(point.toVideoMap());
+            }
+        }
+        return result;
+    }
+
+    public List<VideoGeoPoint> query(double minLat, double minLon, double maxLat, double maxLon) {
+        List<VideoGeoPoint> result = new ArrayList<>();
+        int minRow = row(minLat);
+        int maxRow = row(maxLat);
+        int minCol = column(minLon);
+        int maxCol = column(maxLon);
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                VideoGeoPoint[] cell = cellAt(r * COLUMNS + c);
+                // Unutrašnje ćelije su cele u opsegu; proverava se samo ivica
+                boolean edge = r == minRow || r == maxRow || c == minCol || c == maxCol;
+                for (VideoGeoPoint point : cell) {
+                    if (!edge || contains(point, minLat, minLon, maxLat, maxLon)) {
+                        result.add(point);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Poluotvoren opseg [min, max) kao kod klastera, pa tačka na zajedničkoj ivici pripada samo jednom tile-u
+    static boolean contains(VideoGeoPoint point, double minLat, double minLon, double maxLat, double maxLon) {
+        return point.getLatitude() >= minLat && point.getLatitude() < maxLat
+                && point.getLongitude() >= minLon && point.getLongitude() < maxLon;
+    }
+
+    private void removeFromCell(VideoGeoPoint point) {
+        int index = cellIndex(point.getLatitude(), point.getLongitude());
+        synchronized (lockFor(index)) {
+            VideoGeoPoint[] existing = cellAt(index);
+            for (int i = 0; i < existing.length; i++) {
+                if (existing[i] == point) {
+                    VideoGeoPoint[] updated = new VideoGeoPoint[existing.length - 1];
+                    System.arraycopy(existing, 0, updated, 0, i);
+                    System.arraycopy(existing, i + 1, updated, i, existing.length - i - 1);
+                    cells.set(index, updated.length > 0 ? updated : null);
+                    return;
+                }
+            }
+        }
+    }
+
+    private VideoGeoPoint[] cellAt(int index) {
+        VideoGeoPoint[] cell = cells.get(index);
+        return cell != null ? cell : EMPTY;
+    }
+
+    private static Object[] createLocks(int count) {
+        Object[] result = new Object[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new Object();
+        }
+        return result;
+    }
+
+    private Object lockFor(int cellIndex) {
+        return locks[cellIndex & (locks.length - 1)];
+    }
+
+    private static int cellIndex(double lat, double lon) {
+        return row(lat) * COLUMNS + column(lon);
+    }
+
+    private static int row(double lat) {
+        return clamp((int) Math.floor((lat + 90) / CELL_DEGREES), ROWS);
+    }
+
+    private static int column(double lon) {
+        return clamp((int) Math.floor((lon + 180) / CELL_DEGREES), COLUMNS);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.repository.VideoSpatialKeyRepository;
+import com.example.jutjubic.repository.VideoSpatialKeyRepository.MissingKey;
+import com.example.jutjubic.util.HilbertCurve;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Popunjava spatial_key za videe sačuvane pre uvođenja kolone; novi i izmenjeni videi ga dobijaju
+// pri čuvanju (Video @PrePersist/@PreUpdate). Obe instance mogu da rade istovremeno - upis je idempotentan.
+@Service
+public class VideoSpatialKeyBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoSpatialKeyBackfillService.class);
+
+    @Autowired
+    private VideoSpatialKeyRepository spatialKeyRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${map.spatial-key.backfill-batch-size:5000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            spatialKeyRepository.ensureMissingKeyIndex();
+        } catch (Exception e) {
+            // Druga replika ga možda pravi u istom trenutku
+            logger.warn("Parcijalni indeks za videe bez spatial_key nije napravljen: {}", e.getMessage());
+        }
+
+        long start = System.currentTimeMillis();
+        int total = 0;
+        try {
+            while (true) {
+                List<MissingKey> batch = spatialKeyRepository.findMissingKeys(batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                Map<Long, Long> keys = new HashMap<>(batch.size() * 2);
+                for (MissingKey missing : batch) {
+                    keys.put(missing.id(), HilbertCurve.key(missing.latitude(), missing.longitude()));
+                }
+                transactionTemplate.executeWithoutResult(status -> spatialKeyRepository.updateKeys(keys));
+                total += batch.size();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                logger.info("Backfill spatial_key: {} videa za {} ms", total, System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            logger.error("Backfill spatial_key nije uspeo posle {} videa: {}", total, e.getMessage(), e);
+        }
+    }
+}
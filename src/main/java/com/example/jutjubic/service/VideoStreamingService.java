@@ -0,0 +1,329 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.dto.VideoResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+// Striming video fajlova po RFC 7233: single i multi-range (206), If-Range/ETag validacija i
+// zero-copy slanje (Tomcat sendfile kad je podržan, inače FileChannel.transferTo)
+@Service
+public class VideoStreamingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoStreamingService.class);
+
+    static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String CONTENT_TYPE = "video/mp4";
+    private static final int MAX_RANGE_SPECS = 64;
+    private static final int MAX_RANGE_PARTS = 16;
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    @Value("${video.streaming.sendfile:true}")
+    private boolean sendfileEnabled = true;
+
+    public File resolveVideoFile(VideoResponse video) {
+        if ("COMPLETED".equals(video.getTranscodingStatus()) && video.getTranscodedVideoPath() != null) {
+            File transcoded = locate(video.getTranscodedVideoPath(), "./uploads/videos/transcoded/");
+            if (transcoded != null) {
+                return transcoded;
+            }
+            logger.warn("Transkodirani fajl ne postoji ({}), šaljem original", video.getTranscodedVideoPath());
+        }
+        return locate(video.getVideoPath(), "./uploads/videos/");
+    }
+
+    private File locate(String storedPath, String fallbackDir) {
+        if (storedPath == null) {
+            return null;
+        }
+        File file = new File(storedPath);
+        if (file.isFile()) {
+            return file;
+        }
+        String filename = storedPath.replace('\\', '/');
+        filename = filename.substring(filename.lastIndexOf('/') + 1);
+        file = new File(fallbackDir + filename);
+        return file.isFile() ? file : null;
+    }
+
+    public void stream(File file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long size = file.length();
+        long lastModified = file.lastModified();
+        String etag = buildETag(size, lastModified);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getName() + "\"");
+
+        if (matchesIfNoneMatch(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && !ifRangeAllows(request, etag, lastModified)) {
+            rangeHeader = null;
+        }
+
+        List<ByteRange> ranges = rangeHeader != null ? parseRanges(rangeHeader, size) : null;
+        boolean headOnly = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(CONTENT_TYPE);
+            response.setContentLengthLong(size);
+            if (!headOnly) {
+                sendRegion(file, 0, size, request, response);
+            }
+            return;
+        }
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setContentLength(0);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setContentType(CONTENT_TYPE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(size));
+            response.setContentLengthLong(range.length());
+            if (!headOnly) {
+                sendRegion(file, range.start, range.length(), request, response);
+            }
+            return;
+        }
+
+        sendMultipart(file, ranges, size, headOnly, response);
+    }
+
+    static String buildETag(long size, long lastModified) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private boolean matchesIfNoneMatch(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            // If-None-Match koristi slabo poređenje
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean ifRangeAllows(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range zahteva jako poređenje - slab ETag nikad ne prolazi
+            return ifRange.equals(etag);
+        }
+        try {
+            // Datum mora tačno da se poklapa sa Last-Modified (RFC 7233, 3.2)
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return date != -1 && lastModified / 1000 == date / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // null = Range zaglavlje se ignoriše (šalje se ceo fajl), prazna lista = 416
+    static List<ByteRange> parseRanges(String header, long size) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGE_SPECS) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String rawSpec : specs) {
+            String spec = rawSpec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+
+            try {
+                if (first.isEmpty()) {
+                    if (last.isEmpty()) {
+                        return null;
+                    }
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix > 0 && size > 0) {
+                        ranges.add(new ByteRange(Math.max(0, size - suffix), size - 1));
+                    }
+                } else {
+                    long start = Long.parseLong(first);
+                    long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start < size) {
+                        ranges.add(new ByteRange(start, Math.min(end, size - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        List<ByteRange> coalesced = coalesce(ranges);
+        return coalesced.size() > MAX_RANGE_PARTS ? null : coalesced;
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(r -> r.start));
+
+        List<ByteRange> result = new ArrayList<>();
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.start <= current.end + 1) {
+                current = new ByteRange(current.start, Math.max(current.end, next.end));
+            } else {
+                result.add(current);
+                current = next;
+            }
+        }
+        result.add(current);
+        return result;
+    }
+
+    private void sendMultipart(File file, List<ByteRange> ranges, long size, boolean headOnly,
+                               HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+
+        for (ByteRange range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + CONTENT_TYPE + "\r\n"
+                    + "Content-Range: " + range.contentRange(size) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headOnly) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders.get(i));
+                transfer(channel, ranges.get(i).start, ranges.get(i).length(), target);
+            }
+        }
+        out.write(closing);
+        out.flush();
+    }
+
+    private void sendRegion(File file, long start, long length, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        if (length == 0) {
+            return;
+        }
+
+        if (sendfileEnabled && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // Tomcat šalje region direktno iz page cache-a u socket nakon što handler završi
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            return;
+        }
+
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            transfer(channel, start, length, target);
+        }
+        response.getOutputStream().flush();
+    }
+
+    private void transfer(FileChannel channel, long start, long length, WritableByteChannel target) throws IOException {
+        long position = start;
+        long remaining = length;
+        while (remaining > 0) {
+            long sent = channel.transferTo(position, Math.min(remaining, TRANSFER_CHUNK), target);
+            if (sent <= 0) {
+                throw new IOException("Fajl je skraćen tokom slanja na poziciji " + position);
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+
+    static final class ByteRange {
+        final long start;
+        final long end;
+
+        ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+    }
+}
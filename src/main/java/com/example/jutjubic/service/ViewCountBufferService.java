@@ -0,0 +1,278 @@
+package com.example.jutjubic.service;
+
+import com.example.jutjubic.repository.VideoCounterRepository;
+import com.example.jutjubic.repository.VideoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind brojanje pregleda: pregled se samo upiše u memoriju, a baza se ažurira
+// periodično jednim batch UPDATE-om za view_count i jednim multi-row INSERT-om u video_views.
+@Service
+public class ViewCountBufferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViewCountBufferService.class);
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private VideoCounterRepository videoCounterRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private VideoSpatialIndex spatialIndex;
+
+    @Value("${views.buffer.capacity:100000}")
+    private int capacity;
+
+    @Value("${views.buffer.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${views.buffer.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${views.buffer.max-retry-backoff-ms:60000}")
+    private long maxRetryBackoffMs;
+
+    private final ConcurrentHashMap<Long, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Cache<Long, Boolean> knownVideos = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    private BlockingQueue<ViewEvent> events;
+
+    // Posle neuspelog batch-a sledeći pokušaj čeka, sa duplim razmakom za svaki uzastopni neuspeh
+    private volatile long retryAt;
+    private int consecutiveFailures;
+
+    private Timer flushTimer;
+    private Counter flushedViews;
+    private Counter directWrites;
+    private Counter droppedViews;
+
+    @PostConstruct
+    public void init() {
+        events = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("view_buffer_depth", events, BlockingQueue::size)
+                .description("Broj pregleda koji čekaju upis u bazu")
+                .register(meterRegistry);
+        Gauge.builder("view_buffer_pending_videos", pendingCounts, Map::size)
+                .description("Broj videa sa neupisanim pregledima")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("view_buffer_flush_duration")
+                .description("Trajanje jednog flush-a pregleda u bazu")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        flushedViews = Counter.builder("view_buffer_flushed_views")
+                .description("Ukupan broj pregleda upisanih kroz batch flush")
+                .register(meterRegistry);
+        directWrites = Counter.builder("view_buffer_direct_writes")
+                .description("Pregledi upisani direktno jer je buffer bio pun")
+                .register(meterRegistry);
+        droppedViews = Counter.builder("view_buffer_dropped_views")
+                .description("Pregledi izgubljeni nakon neuspelog flush-a")
+                .register(meterRegistry);
+    }
+
+    public void recordView(Long videoId) {
+        if (!videoExists(videoId)) {
+            throw new IllegalArgumentException("Video not found with id: " + videoId);
+        }
+
+        ViewEvent event = new ViewEvent(videoId, LocalDateTime.now());
+        trendingService.recordView(videoId, event.viewedAt);
+        // Uvećanje je pod lock-om ključa, pa se ne može preklopiti sa uklanjanjem u releasePending
+        pendingCounts.compute(videoId, (key, pending) -> {
+            LongAdder counter = pending != null ? pending : new LongAdder();
+            counter.increment();
+            return counter;
+        });
+
+        if (events.offer(event)) {
+            return;
+        }
+
+        // Buffer je pun - praznimo ga odmah umesto da rastemo bez granice (osim dok baza ne radi)
+        if (System.currentTimeMillis() >= retryAt) {
+            flush();
+        }
+        if (!events.offer(event)) {
+            releasePending(videoId, 1L);
+            writeDirect(event);
+        }
+    }
+
+    public long getPendingCount(Long videoId) {
+        LongAdder pending = pendingCounts.get(videoId);
+        return pending != null ? Math.max(0, pending.sum()) : 0L;
+    }
+
+    public int getBufferDepth() {
+        return events.size();
+    }
+
+    @Scheduled(fixedDelayString = "${views.buffer.flush-interval-ms:500}")
+    public void scheduledFlush() {
+        if (System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("Gašenje aplikacije - upisujem {} preostalih pregleda", events.size());
+        flush();
+    }
+
+    public int flush() {
+        flushLock.lock();
+        try {
+            int total = 0;
+            List<ViewEvent> batch = new ArrayList<>(Math.min(batchSize, capacity));
+
+            while (events.drainTo(batch, batchSize) > 0) {
+                int written = writeBatch(batch);
+                batch.clear();
+                // Neuspeli batch je vraćen u red - ponovo se pokušava tek posle pauze, ne u istoj petlji
+                if (written == 0) {
+                    scheduleRetry();
+                    break;
+                }
+                total += written;
+            }
+            if (total > 0) {
+                consecutiveFailures = 0;
+                retryAt = 0;
+            }
+            return total;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int writeBatch(List<ViewEvent> batch) {
+        Map<Long, Long> deltas = new HashMap<>();
+        List<Long> videoIds = new ArrayList<>(batch.size());
+        List<LocalDateTime> viewedAt = new ArrayList<>(batch.size());
+
+        for (ViewEvent event : batch) {
+            deltas.merge(event.videoId, 1L, Long::sum);
+            videoIds.add(event.videoId);
+            viewedAt.add(event.viewedAt);
+        }
+
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                videoCounterRepository.addViewCounts(deltas);
+                videoCounterRepository.insertViews(videoIds, viewedAt);
+            });
+        } catch (Exception e) {
+            logger.error("Flush {} pregleda nije uspeo, vraćam ih u buffer: {}", batch.size(), e.getMessage());
+            requeue(batch);
+            return 0;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        deltas.forEach(this::releasePending);
+        spatialIndex.addViews(deltas);
+        flushedViews.increment(batch.size());
+        return batch.size();
+    }
+
+    // Poziva se pod flushLock-om
+    private void scheduleRetry() {
+        consecutiveFailures++;
+        long backoff = retryBackoffMs << Math.min(consecutiveFailures - 1, 16);
+        retryAt = System.currentTimeMillis() + Math.min(backoff, maxRetryBackoffMs);
+    }
+
+    private void requeue(List<ViewEvent> batch) {
+        int dropped = 0;
+        for (ViewEvent event : batch) {
+            if (!events.offer(event)) {
+                releasePending(event.videoId, 1L);
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            droppedViews.increment(dropped);
+            logger.error("Izgubljeno {} pregleda - buffer je pun", dropped);
+        }
+    }
+
+    private void releasePending(Long videoId, Long count) {
+        pendingCounts.computeIfPresent(videoId, (key, pending) -> {
+            pending.add(-count);
+            return pending.sum() <= 0 ? null : pending;
+        });
+    }
+
+    private void writeDirect(ViewEvent event) {
+        transactionTemplate.executeWithoutResult(status -> {
+            videoCounterRepository.addViewCounts(Map.of(event.videoId, 1L));
+            videoCounterRepository.insertViews(List.of(event.videoId), List.of(event.viewedAt));
+        });
+        directWrites.increment();
+    }
+
+    private boolean videoExists(Long videoId) {
+        if (knownVideos.getIfPresent(videoId) != null) {
+            return true;
+        }
+        boolean exists = videoRepository.existsById(videoId);
+        if (exists) {
+            knownVideos.put(videoId, Boolean.TRUE);
+        }
+        return exists;
+    }
+
+    private static final class ViewEvent {
+        final Long videoId;
+        final LocalDateTime viewedAt;
+
+        ViewEvent(Long videoId, LocalDateTime viewedAt) {
+            this.videoId = videoId;
+            this.viewedAt = viewedAt;
+        }
+    }
+}
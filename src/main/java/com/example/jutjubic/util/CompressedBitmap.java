@@ -0,0 +1,181 @@
+package com.example.jutjubic.util;
+
+import java.util.Arrays;
+
+// Skup long id-jeva u stilu roaring bitmape: id se deli na ključ (gornji bitovi) i donjih 16 bitova.
+// Svaki ključ ima kontejner - sortiran char[] dok ima najviše ARRAY_MAX vrednosti, inače bitmapa od
+// 65536 bitova. Retki skupovi zauzimaju ~2 bajta po id-ju, gusti ~1 bit. Nije thread-safe.
+public class CompressedBitmap {
+
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private long[] keys = new long[4];
+    private Container[] containers = new Container[4];
+    private int size;
+    private long cardinality;
+
+    public static CompressedBitmap of(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (long id : sorted) {
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    public boolean contains(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    public boolean add(long id) {
+        long key = id >>> 16;
+        // Sortiran unos (početno punjenje) uvek dodaje na kraj - bez binarne pretrage
+        int index = size > 0 && keys[size - 1] == key ? size - 1 : Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key);
+        }
+        boolean added = containers[index].add((char) id);
+        if (added) {
+            cardinality++;
+        }
+        return added;
+    }
+
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        if (index < 0 || !containers[index].remove((char) id)) {
+            return false;
+        }
+        cardinality--;
+        if (containers[index].cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        }
+        return true;
+    }
+
+    public long cardinality() {
+        return cardinality;
+    }
+
+    // Približna zauzetost memorije, za težinu u cache-u
+    public int sizeInBytes() {
+        int bytes = 32 + keys.length * 8 + containers.length * 4;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private void insertContainer(int index, long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = new Container();
+        size++;
+    }
+
+    // Niz ili bitmapa, prelazi u bitmapu iznad ARRAY_MAX i nazad kad padne ispod
+    private static final class Container {
+        private char[] values = new char[4];
+        private long[] bits;
+        private int cardinality;
+
+        boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return search(low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bits[low >>> 6] |= mask;
+                cardinality++;
+                return true;
+            }
+
+            int index = cardinality > 0 && values[cardinality - 1] < low ? -cardinality - 1 : search(low);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bits[low >>> 6] &= ~mask;
+                cardinality--;
+                if (cardinality < ARRAY_MAX / 2) {
+                    toArray();
+                }
+                return true;
+            }
+
+            int index = search(low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        int sizeInBytes() {
+            return 24 + (bits != null ? bits.length * 8 : values.length * 2);
+        }
+
+        private int search(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low);
+        }
+
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            values = new char[cardinality];
+            int i = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long w = bits[word];
+                while (w != 0) {
+                    values[i++] = (char) (word * 64 + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            bits = null;
+        }
+    }
+}
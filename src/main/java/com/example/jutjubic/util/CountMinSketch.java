@@ -0,0 +1,81 @@
+package com.example.jutjubic.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Count-min sketch fiksne veličine (depth x width brojača): procena nikad nije manja od tačnog
+// broja, a precenjuje najviše za ~e/width ukupnog broja dodavanja sa verovatnoćom 1 - e^-depth.
+// Brojači su atomični, pa add i estimate rade bez zaključavanja.
+public class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final AtomicIntegerArray counters;
+    private final AtomicLong total = new AtomicLong();
+
+    // width se zaokružuje naviše na stepen dvojke
+    public CountMinSketch(int depth, int width) {
+        int roundedWidth = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.mask = roundedWidth - 1;
+        this.counters = new AtomicIntegerArray(depth * roundedWidth);
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        for (int row = 0; row < depth; row++) {
+            counters.incrementAndGet(index(row, hash));
+        }
+        total.incrementAndGet();
+    }
+
+    public int estimate(String key) {
+        long hash = hash(key);
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(index(row, hash)));
+        }
+        return min;
+    }
+
+    // Granica precenjivanja za trenutni broj dodavanja: e/width * total, zaokruženo naviše
+    public int maxOverestimate() {
+        return (int) Math.ceil(Math.E * total.get() / (mask + 1));
+    }
+
+    public long totalCount() {
+        return total.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        total.set(0);
+    }
+
+    public int sizeInBytes() {
+        return counters.length() * 4;
+    }
+
+    // Redovi koriste h1 + row * h2 (Kirsch-Mitzenmacher) iz jednog 64-bitnog heša
+    private int index(int row, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+
+    // FNV-1a nad UTF-8 bajtovima, pa finalni mix da gornji bitovi budu dobro raspoređeni
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.jutjubic.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hilbertova kriva reda ORDER preko lat/lon: svet je mreža 2^ORDER x 2^ORDER ćelija, a ključ je
+// redni broj ćelije duž krive. Bliske tačke uglavnom imaju bliske ključeve, a svaka ćelija grubljeg
+// nivoa L pokriva neprekidan opseg ključeva (prvih 2L bitova ključa je njen indeks na nivou L).
+public class HilbertCurve {
+
+    public static final int ORDER = 16;
+    private static final int SIDE = 1 << ORDER;
+
+    private HilbertCurve() {
+    }
+
+    public static long key(double lat, double lon) {
+        return index(ORDER, cellX(lon), cellY(lat));
+    }
+
+    // Opsezi ključeva [from, to] koji pokrivaju bbox: najfiniji nivo na kome bbox seče najviše
+    // maxCells ćelija, susedni opsezi spojeni. Pokrivanje je šire od bbox-a - upit filtrira i po lat/lon.
+    public static List<long[]> ranges(double minLat, double minLon, double maxLat, double maxLon, int maxCells) {
+        int minX = cellX(minLon);
+        int maxX = cellX(maxLon);
+        int minY = cellY(minLat);
+        int maxY = cellY(maxLat);
+
+        int level = ORDER;
+        while (level > 0 && (long) ((maxX >> (ORDER - level)) - (minX >> (ORDER - level)) + 1)
+                * ((maxY >> (ORDER - level)) - (minY >> (ORDER - level)) + 1) > maxCells) {
+            level--;
+        }
+
+        int shift = ORDER - level;
+        List<Long> cells = new ArrayList<>();
+        for (int x = minX >> shift; x <= maxX >> shift; x++) {
+            for (int y = minY >> shift; y <= maxY >> shift; y++) {
+                cells.add(index(level, x, y));
+            }
+        }
+        cells.sort(null);
+
+        List<long[]> ranges = new ArrayList<>();
+        for (long cell : cells) {
+            long from = cell << (2 * shift);
+            long to = ((cell + 1) << (2 * shift)) - 1;
+            if (!ranges.isEmpty() && ranges.get(ranges.size() - 1)[1] + 1 == from) {
+                ranges.get(ranges.size() - 1)[1] = to;
+            } else {
+                ranges.add(new long[] {from, to});
+            }
+        }
+        return ranges;
+    }
+
+    // Klasičan xy -> d algoritam, od najvišeg bita ka najnižem
+    static long index(int order, int x, int y) {
+        int n = 1 << order;
+        long d = 0;
+        for (int s = n / 2; s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    private static int cellX(double lon) {
+        return clamp((int) Math.floor((lon + 180) / 360 * SIDE));
+    }
+
+    private static int cellY(double lat) {
+        return clamp((int) Math.floor((lat + 90) / 180 * SIDE));
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(SIDE - 1, value));
+    }
+}
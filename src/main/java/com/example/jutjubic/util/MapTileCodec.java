@@ -0,0 +1,96 @@
+package com.example.jutjubic.util;
+
+import com.example.jutjubic.dto.VideoMap;
+import com.example.jutjubic.enums.TimePeriod;
+import com.example.jutjubic.proto.MapTileProto;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Binarni zapis tile-a za map_tile_cache.tile_data (protobuf umesto JSON teksta).
+// Tile ima po jednu sekciju za svaki TimePeriod; sekcija je zaseban MapTile.
+public class MapTileCodec {
+
+    private MapTileCodec() {
+    }
+
+    public static byte[] encode(List<VideoMap> videos) {
+        MapTileProto.MapTile.Builder tile = MapTileProto.MapTile.newBuilder();
+        for (VideoMap video : videos) {
+            MapTileProto.TileVideo.Builder builder = MapTileProto.TileVideo.newBuilder()
+                    .setId(video.getId())
+                    .setTitle(video.getTitle() != null ? video.getTitle() : "")
+                    .setLatitude(video.getLatitude())
+                    .setLongitude(video.getLongitude())
+                    .setViewCount(video.getViewCount() != null ? video.getViewCount() : 0L)
+                    .setClusterSize(video.getClusterSize() != null ? video.getClusterSize() : 1)
+                    .setUploaderName(video.getUploaderName() != null ? video.getUploaderName() : "");
+            if (video.getThumbnailUrl() != null) {
+                builder.setThumbnailUrl(video.getThumbnailUrl());
+            }
+            if (video.getUploadDate() != null) {
+                builder.setUploadDate(video.getUploadDate().toInstant(ZoneOffset.UTC).toEpochMilli());
+            }
+            tile.addVideos(builder);
+        }
+        return tile.build().toByteArray();
+    }
+
+    public static List<VideoMap> decode(byte[] data) {
+        try {
+            MapTileProto.MapTile tile = MapTileProto.MapTile.parseFrom(data);
+            List<VideoMap> videos = new ArrayList<>(tile.getVideosCount());
+            for (MapTileProto.TileVideo video : tile.getVideosList()) {
+                videos.add(new VideoMap(
+                        video.getId(),
+                        video.getTitle(),
+                        video.hasThumbnailUrl() ? video.getThumbnailUrl() : null,
+                        video.getLatitude(),
+                        video.getLongitude(),
+                        video.hasUploadDate()
+                                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(video.getUploadDate()), ZoneOffset.UTC)
+                                : null,
+                        video.getViewCount(),
+                        video.getClusterSize(),
+                        video.getUploaderName()
+                ));
+            }
+            return videos;
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Neispravan zapis tile-a: " + e.getMessage(), e);
+        }
+    }
+
+    public static byte[] encodeSections(Map<TimePeriod, byte[]> sections) {
+        return MapTileProto.MapTileSections.newBuilder()
+                .setAllTime(ByteString.copyFrom(sections.get(TimePeriod.ALL_TIME)))
+                .setLast30Days(ByteString.copyFrom(sections.get(TimePeriod.LAST_30_DAYS)))
+                .setCurrentYear(ByteString.copyFrom(sections.get(TimePeriod.CURRENT_YEAR)))
+                .build()
+                .toByteArray();
+    }
+
+    // Samo razdvaja sekcije; sadržaj sekcije se dekodira tek kad zatreba (decode)
+    public static Map<TimePeriod, byte[]> splitSections(byte[] data) {
+        try {
+            MapTileProto.MapTileSections sections = MapTileProto.MapTileSections.parseFrom(data);
+            if (!sections.hasAllTime() || !sections.hasLast30Days() || !sections.hasCurrentYear()) {
+                throw new IllegalArgumentException("Tile nema sve sekcije perioda");
+            }
+            Map<TimePeriod, byte[]> result = new EnumMap<>(TimePeriod.class);
+            result.put(TimePeriod.ALL_TIME, sections.getAllTime().toByteArray());
+            result.put(TimePeriod.LAST_30_DAYS, sections.getLast30Days().toByteArray());
+            result.put(TimePeriod.CURRENT_YEAR, sections.getCurrentYear().toByteArray());
+            return result;
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Neispravan zapis tile-a: " + e.getMessage(), e);
+        }
+    }
+}
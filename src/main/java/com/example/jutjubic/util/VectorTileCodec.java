@@ -0,0 +1,106 @@
+package com.example.jutjubic.util;
+
+import com.example.jutjubic.dto.VideoMap;
+import com.example.jutjubic.proto.MapTileProto;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Kompaktan binarni tile za API (po uzoru na MVT): koordinate kvantizovane na mrežu tile-a,
+// id-jevi i koordinate kao razlike od prethodne tačke, naslovi i autori kroz tabelu stringova.
+// Bez thumbnail putanje - klijent je gradi iz id-ja (/api/videos/{id}/thumbnail).
+public class VectorTileCodec {
+
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+    public static final int EXTENT = 4096;
+
+    private VectorTileCodec() {
+    }
+
+    // bounds = {minLat, minLon, maxLat, maxLon}
+    public static byte[] encode(List<VideoMap> videos, double[] bounds) {
+        List<VideoMap> sorted = new ArrayList<>(videos);
+        sorted.sort(Comparator.comparing(VideoMap::getId));
+
+        MapTileProto.VectorTile.Builder tile = MapTileProto.VectorTile.newBuilder().setExtent(EXTENT);
+        Map<String, Integer> strings = new HashMap<>();
+        strings.put("", 0);
+        tile.addStrings("");
+
+        long previousId = 0;
+        int previousX = 0;
+        int previousY = 0;
+        for (VideoMap video : sorted) {
+            int x = quantize(video.getLongitude() - bounds[1], bounds[3] - bounds[1]);
+            int y = quantize(bounds[2] - video.getLatitude(), bounds[2] - bounds[0]);
+            tile.addIdDeltas(video.getId() - previousId)
+                    .addGeometry(x - previousX)
+                    .addGeometry(y - previousY)
+                    .addClusterSizes(video.getClusterSize() != null ? video.getClusterSize() : 1)
+                    .addViewCounts(video.getViewCount() != null ? video.getViewCount() : 0L)
+                    .addUploadDays(video.getUploadDate() != null
+                            ? (int) video.getUploadDate().toLocalDate().toEpochDay() + 1
+                            : 0)
+                    .addTitleRefs(stringRef(tile, strings, video.getTitle()))
+                    .addUploaderRefs(stringRef(tile, strings, video.getUploaderName()));
+            previousId = video.getId();
+            previousX = x;
+            previousY = y;
+        }
+        return tile.build().toByteArray();
+    }
+
+    // Obrnuto od encode; koordinate su tačke mreže (greška najviše pola ćelije), thumbnail ostaje prazan
+    public static List<VideoMap> decode(byte[] data, double[] bounds) {
+        try {
+            MapTileProto.VectorTile tile = MapTileProto.VectorTile.parseFrom(data);
+            double cellLon = (bounds[3] - bounds[1]) / tile.getExtent();
+            double cellLat = (bounds[2] - bounds[0]) / tile.getExtent();
+
+            List<VideoMap> videos = new ArrayList<>(tile.getIdDeltasCount());
+            long id = 0;
+            int x = 0;
+            int y = 0;
+            for (int i = 0; i < tile.getIdDeltasCount(); i++) {
+                id += tile.getIdDeltas(i);
+                x += tile.getGeometry(2 * i);
+                y += tile.getGeometry(2 * i + 1);
+                int uploadDay = tile.getUploadDays(i);
+                videos.add(new VideoMap(
+                        id,
+                        tile.getStrings(tile.getTitleRefs(i)),
+                        null,
+                        bounds[2] - y * cellLat,
+                        bounds[1] + x * cellLon,
+                        uploadDay > 0 ? LocalDate.ofEpochDay(uploadDay - 1L).atStartOfDay() : null,
+                        tile.getViewCounts(i),
+                        tile.getClusterSizes(i),
+                        tile.getStrings(tile.getUploaderRefs(i))
+                ));
+            }
+            return videos;
+        } catch (InvalidProtocolBufferException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Neispravan vektorski tile: " + e.getMessage(), e);
+        }
+    }
+
+    private static int quantize(double offset, double size) {
+        int value = (int) Math.round(offset / size * EXTENT);
+        return Math.max(0, Math.min(EXTENT, value));
+    }
+
+    private static int stringRef(MapTileProto.VectorTile.Builder tile, Map<String, Integer> strings, String value) {
+        if (value == null) {
+            return 0;
+        }
+        return strings.computeIfAbsent(value, v -> {
+            tile.addStrings(v);
+            return tile.getStringsCount() - 1;
+        });
+    }
+}
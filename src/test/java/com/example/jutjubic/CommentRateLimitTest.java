@@ -19,9 +19,17 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -214,4 +222,58 @@ public class CommentRateLimitTest {
         System.out.println("✅ Drugi korisnik: Komentar prihvaćen (ima svoj nezavisan limit)");
         System.out.println("\n==================\n");
     }
+
+    @Test
+    public void testRateLimitUnderHighContention() throws Exception {
+        System.out.println("\n=== BENCHMARK: Rate limit pod velikim opterećenjem ===\n");
+
+        int threads = 32;
+        int users = 200;
+        int rounds = 100;
+        // Id-jevi van opsega pravih korisnika - prozori kreću prazni
+        long firstUserId = Long.MAX_VALUE - users;
+
+        AtomicIntegerArray accepted = new AtomicIntegerArray(users);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int round = 0; round < rounds; round++) {
+                    for (int u = 0; u < users; u++) {
+                        // Niti kreću od različitih korisnika, pa se takmiče i za iste i za različite prozore
+                        int user = (u + offset) % users;
+                        if (rateLimitService.tryAcquire(firstUserId + user) != CommentRateLimitService.REJECTED) {
+                            accepted.incrementAndGet(user);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        long attempts = (long) threads * rounds * users;
+        System.out.printf("Pokušaja: %d, niti: %d, trajanje: %.1f ms, %.0f pokušaja/s%n",
+                attempts, threads, elapsed / 1e6, attempts / (elapsed / 1e9));
+
+        for (int u = 0; u < users; u++) {
+            assertEquals(60, accepted.get(u),
+                    "Svaki korisnik bi trebalo da dobije tačno 60 komentara i pod konkurentnim pristupom");
+            assertEquals(0, rateLimitService.getRemainingComments(firstUserId + u));
+        }
+
+        System.out.println("✅ Svih " + users + " korisnika ograničeno na tačno 60 komentara");
+        System.out.println("==================\n");
+    }
 }
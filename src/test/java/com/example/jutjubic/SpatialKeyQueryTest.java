@@ -0,0 +1,131 @@
+package com.example.jutjubic;
+
+import com.example.jutjubic.dto.VideoGeoPoint;
+import com.example.jutjubic.model.User;
+import com.example.jutjubic.model.Video;
+import com.example.jutjubic.repository.UserRepository;
+import com.example.jutjubic.repository.VideoRepository;
+import com.example.jutjubic.repository.VideoSpatialKeyRepository;
+import com.example.jutjubic.service.VideoSpatialKeyBackfillService;
+import com.example.jutjubic.util.HilbertCurve;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SpatialKeyQueryTest {
+
+    private static final int VIDEOS = 500;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VideoSpatialKeyRepository spatialKeyRepository;
+
+    @Autowired
+    private VideoSpatialKeyBackfillService backfillService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        String uniqueId = UUID.randomUUID().toString().substring(0, 8);
+
+        User testUser = new User();
+        testUser.setEmail("spatial" + uniqueId + "@example.com");
+        testUser.setUsername("spatial" + uniqueId);
+        testUser.setPassword("password123");
+        testUser.setFirstName("Test");
+        testUser.setLastName("User");
+        testUser.setAddress("Test Address");
+        testUser.setEnabled(true);
+        testUser = userRepository.save(testUser);
+
+        // Gusto oko Beograda, ostatak po celom svetu, uključujući ivice mreže
+        Random random = new Random(5);
+        List<Video> videos = new ArrayList<>(VIDEOS);
+        for (int i = 0; i < VIDEOS; i++) {
+            Video video = new Video();
+            video.setTitle("Spatial " + uniqueId + " " + i);
+            video.setThumbnailPath("test/thumbnail.jpg");
+            video.setVideoPath("test/video.mp4");
+            video.setUser(testUser);
+            video.setCreatedAt(LocalDateTime.now());
+            if (i < 4) {
+                video.setLatitude(i % 2 == 0 ? 90.0 : -90.0);
+                video.setLongitude(i < 2 ? 180.0 : -180.0);
+            } else if (random.nextBoolean()) {
+                video.setLatitude(44.8 + random.nextGaussian());
+                video.setLongitude(20.4 + random.nextGaussian());
+            } else {
+                video.setLatitude(random.nextDouble() * 180 - 90);
+                video.setLongitude(random.nextDouble() * 360 - 180);
+            }
+            videos.add(video);
+        }
+        videoRepository.saveAll(videos).forEach(video -> createdIds.add(video.getId()));
+    }
+
+    @Test
+    public void keyIsComputedOnSave() {
+        Video video = videoRepository.findById(createdIds.get(10)).orElseThrow();
+        assertEquals(HilbertCurve.key(video.getLatitude(), video.getLongitude()), video.getSpatialKey());
+    }
+
+    @Test
+    public void rangeQueryMatchesBetweenQuery() {
+        // Deo redova kao pre backfill-a: bez ključa moraju i dalje da se nađu
+        jdbcTemplate.update("UPDATE videos SET spatial_key = NULL WHERE id IN (?, ?, ?)",
+                createdIds.get(5), createdIds.get(6), createdIds.get(7));
+
+        Random random = new Random(9);
+        List<double[]> boxes = new ArrayList<>(List.of(
+                new double[] {-90, -180, 90, 180},
+                new double[] {40, 15, 50, 25},
+                new double[] {44.8, 20.4, 44.8, 20.4},
+                new double[] {89, 179, 90, 180}));
+        for (int i = 0; i < 30; i++) {
+            double lat = 44.8 + random.nextGaussian() * 2;
+            double lon = 20.4 + random.nextGaussian() * 2;
+            double size = 0.05 + random.nextDouble() * 5;
+            boxes.add(new double[] {lat, lon, lat + size, lon + size});
+        }
+
+        for (double[] box : boxes) {
+            List<Long> expected = videoRepository.findByLocationWithinBounds(box[0], box[1], box[2], box[3])
+                    .stream().map(Video::getId).sorted().toList();
+            List<Long> actual = spatialKeyRepository.findGeoPointsWithinBounds(box[0], box[1], box[2], box[3])
+                    .stream().map(VideoGeoPoint::getId).sorted().toList();
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void backfillFillsMissingKeys() {
+        jdbcTemplate.update("UPDATE videos SET spatial_key = NULL WHERE id = ?", createdIds.get(20));
+
+        backfillService.backfill();
+
+        Video video = videoRepository.findById(createdIds.get(20)).orElseThrow();
+        assertEquals(HilbertCurve.key(video.getLatitude(), video.getLongitude()), video.getSpatialKey());
+    }
+}
@@ -5,6 +5,7 @@ import com.example.jutjubic.model.Video;
 import com.example.jutjubic.repository.UserRepository;
 import com.example.jutjubic.repository.VideoRepository;
 import com.example.jutjubic.service.VideoService;
+import com.example.jutjubic.service.ViewCountBufferService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,6 +36,9 @@ public class ViewCountConcurrencyTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ViewCountBufferService viewCountBufferService;
+
     private Long testVideoId;
 
     @BeforeEach
@@ -129,6 +133,7 @@ public class ViewCountConcurrencyTest {
         long endTime = System.currentTimeMillis();
         long duration = endTime - startTime;
 
+        viewCountBufferService.flush();
         Video finalVideo = videoRepository.findById(testVideoId).orElseThrow();
         Long expectedViewCount = initialViewCount + numberOfThreads;
 
@@ -139,6 +144,86 @@ public class ViewCountConcurrencyTest {
                 "Real-world scenario failed! Expected: " + expectedViewCount + ", Got: " + finalVideo.getViewCount());
     }
 
+    @Test
+    public void testHighThroughput_BufferedVsDirectUpdate() throws InterruptedException {
+        int numberOfThreads = 100;
+        int viewsPerThread = 200;
+        long totalViews = (long) numberOfThreads * viewsPerThread;
+
+        Long initialViewCount = videoRepository.findById(testVideoId).orElseThrow().getViewCount();
+
+        System.out.println("\n╔══════════════════════════════════════════════════════════╗");
+        System.out.println("║  HIGH THROUGHPUT TEST: BUFFER vs DIRECT UPDATE           ║");
+        System.out.println("╠══════════════════════════════════════════════════════════╣");
+        System.out.println("║  Threads: " + String.format("%-47d", numberOfThreads) + "║");
+        System.out.println("║  Views per thread: " + String.format("%-38d", viewsPerThread) + "║");
+        System.out.println("╚══════════════════════════════════════════════════════════╝");
+
+        long bufferedDuration = runViewLoad(numberOfThreads, viewsPerThread,
+                () -> videoService.incrementViewCount(testVideoId));
+        viewCountBufferService.flush();
+
+        Long afterBuffered = videoRepository.findById(testVideoId).orElseThrow().getViewCount();
+        assertEquals(initialViewCount + totalViews, afterBuffered,
+                "Buffered view count mismatch! Expected: " + (initialViewCount + totalViews) + ", Got: " + afterBuffered);
+
+        long directDuration = runViewLoad(numberOfThreads, viewsPerThread,
+                () -> videoRepository.incrementViewCount(testVideoId));
+
+        Long afterDirect = videoRepository.findById(testVideoId).orElseThrow().getViewCount();
+        assertEquals(afterBuffered + totalViews, afterDirect,
+                "Direct view count mismatch! Expected: " + (afterBuffered + totalViews) + ", Got: " + afterDirect);
+
+        System.out.println("\n╔══════════════════════════════════════════════════════════╗");
+        System.out.println("║  THROUGHPUT RESULTS                                      ║");
+        System.out.println("╠══════════════════════════════════════════════════════════╣");
+        System.out.println("║  Buffered: " + String.format("%-46s",
+                bufferedDuration + " ms (" + String.format("%.0f", totalViews * 1000.0 / Math.max(1, bufferedDuration)) + " views/s)") + "║");
+        System.out.println("║  Direct:   " + String.format("%-46s",
+                directDuration + " ms (" + String.format("%.0f", totalViews * 1000.0 / Math.max(1, directDuration)) + " views/s)") + "║");
+        System.out.println("║  Speedup: " + String.format("%-47s",
+                String.format("%.2fx", (double) directDuration / Math.max(1, bufferedDuration))) + "║");
+        System.out.println("╚══════════════════════════════════════════════════════════╝");
+
+        // Trajanja su samo informativna; proverava se da posle flush-a ništa nije ostalo u buffer-u
+        assertEquals(0, viewCountBufferService.getBufferDepth(), "Buffer should be empty after flush");
+        assertEquals(0L, viewCountBufferService.getPendingCount(testVideoId),
+                "No pending views should remain after flush");
+    }
+
+    private long runViewLoad(int numberOfThreads, int viewsPerThread, Runnable view) throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(numberOfThreads);
+        AtomicInteger failureCount = new AtomicInteger(0);
+
+        for (int i = 0; i < numberOfThreads; i++) {
+            executorService.submit(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < viewsPerThread; j++) {
+                        view.run();
+                    }
+                } catch (Exception e) {
+                    failureCount.incrementAndGet();
+                    System.err.println("  ✗ Load thread FAILED: " + e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startTime = System.currentTimeMillis();
+        start.countDown();
+        boolean completed = done.await(300, TimeUnit.SECONDS);
+        long duration = System.currentTimeMillis() - startTime;
+        executorService.shutdown();
+
+        assertTrue(completed, "Not all load threads completed within 300 seconds!");
+        assertEquals(0, failureCount.get(), "Some view increments failed");
+        return duration;
+    }
+
     private void runConcurrencyTest(int numberOfThreads, String testName) throws InterruptedException {
         ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
         CountDownLatch latch = new CountDownLatch(numberOfThreads);
@@ -152,7 +237,7 @@ public class ViewCountConcurrencyTest {
         System.out.println("\n╔══════════════════════════════════════════════════════════╗");
         System.out.println("║  STARTING CONCURRENCY TEST: " + String.format("%-28s", testName) + "║");
         System.out.println("╠══════════════════════════════════════════════════════════╣");
-        System.out.println("║  Method: ATOMIC UPDATE (Direct DB Query)                ║");
+        System.out.println("║  Method: WRITE-BEHIND BUFFER + BATCH FLUSH               ║");
         System.out.println("║  Video ID: " + String.format("%-47d", testVideoId) + "║");
         System.out.println("║  Initial View Count: " + String.format("%-37d", initialViewCount) + "║");
         System.out.println("║  Concurrent Threads: " + String.format("%-37d", numberOfThreads) + "║");
@@ -189,6 +274,7 @@ public class ViewCountConcurrencyTest {
             System.err.println("\n⚠ WARNING: Not all threads completed within 60 seconds!");
         }
 
+        viewCountBufferService.flush();
         Video finalVideo = videoRepository.findById(testVideoId).orElseThrow();
         Long expectedViewCount = initialViewCount + numberOfThreads;
 
@@ -203,7 +289,7 @@ public class ViewCountConcurrencyTest {
 
         System.out.println("\n╔══════════════════════════════════════════════════════════╗");
         System.out.println("║  ✅ TEST PASSED: " + String.format("%-41s", testName) + "║");
-        System.out.println("║  Atomic update guarantees consistency!                   ║");
+        System.out.println("║  Batch flush guarantees consistency!                     ║");
         System.out.println("║  All " + String.format("%-3d", numberOfThreads) + " concurrent requests succeeded!                  ║");
         System.out.println("╚══════════════════════════════════════════════════════════╝\n");
     }
@@ -0,0 +1,91 @@
+package com.example.jutjubic.benchmark;
+
+import com.example.jutjubic.util.CompressedBitmap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LikeIndexBenchmarkTest {
+
+    private static final int FEED_SIZE = 30;
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    public void bitmapMatchesHashSet() {
+        Random random = new Random(5);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        Set<Long> expected = new HashSet<>();
+
+        // Gust opseg (prelazak niz -> bitmapa -> niz) i retki id-jevi preko više kontejnera
+        for (int i = 0; i < 200_000; i++) {
+            long id = random.nextBoolean() ? random.nextInt(10_000) : random.nextInt(Integer.MAX_VALUE);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), bitmap.remove(id));
+            } else {
+                assertEquals(expected.add(id), bitmap.add(id));
+            }
+        }
+        assertEquals(expected.size(), bitmap.cardinality());
+        for (int i = 0; i < 50_000; i++) {
+            long id = random.nextBoolean() ? random.nextInt(10_000) : random.nextInt(Integer.MAX_VALUE);
+            assertEquals(expected.contains(id), bitmap.contains(id));
+        }
+        for (long id : expected) {
+            assertTrue(bitmap.contains(id));
+        }
+    }
+
+    @Test
+    public void benchmarkFeedLikeStatus() {
+        System.out.println("=".repeat(80));
+        System.out.println("BENCHMARK: STANJE LAJKOVA ZA FEED OD " + FEED_SIZE + " VIDEA");
+        System.out.println("=".repeat(80));
+
+        Random random = new Random(11);
+        CompressedBitmap[] feed = new CompressedBitmap[FEED_SIZE];
+        long totalLikes = 0;
+        int totalBytes = 0;
+        for (int v = 0; v < FEED_SIZE; v++) {
+            int likes = v % 3 == 0 ? 200_000 : 1 + random.nextInt(5_000);
+            long[] users = new long[likes];
+            for (int i = 0; i < likes; i++) {
+                users[i] = random.nextInt(1_000_000);
+            }
+            feed[v] = CompressedBitmap.of(users);
+            totalLikes += feed[v].cardinality();
+            totalBytes += feed[v].sizeInBytes();
+        }
+
+        int liked = 0;
+        for (int i = 0; i < 10_000; i++) {
+            liked += feedStatus(feed, random.nextInt(1_000_000));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            liked += feedStatus(feed, random.nextInt(1_000_000));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Lajkova u indeksu: %d, memorija: %.1f KB (%.2f B po lajku)%n",
+                totalLikes, totalBytes / 1024.0, (double) totalBytes / totalLikes);
+        System.out.printf("Feed od %d videa: %.2f µs po zahtevu (lajkovano ukupno %d)%n",
+                FEED_SIZE, elapsed / 1000.0 / ITERATIONS, liked);
+
+        assertTrue((double) totalBytes / totalLikes < 4, "Indeks bi trebalo da zauzima manje od 4 B po lajku");
+    }
+
+    private static int feedStatus(CompressedBitmap[] feed, long userId) {
+        int liked = 0;
+        for (CompressedBitmap bitmap : feed) {
+            if (bitmap.contains(userId)) {
+                liked++;
+            }
+        }
+        return liked;
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.jutjubic.benchmark;
+
+import com.example.jutjubic.dto.VideoGeoPoint;
+import com.example.jutjubic.dto.VideoMap;
+import com.example.jutjubic.enums.TimePeriod;
+import com.example.jutjubic.service.VideoClusterIndex;
+import com.example.jutjubic.service.VideoSpatialIndex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpatialIndexBenchmarkTest {
+
+    private static final int VIDEOS = 1_000_000;
+    private static final int QUERIES_PER_ZOOM = 200;
+    private static final double BASE_TILE_SIZE = 10.0;
+
+    private static final List<VideoGeoPoint> points = new ArrayList<>(VIDEOS);
+    private static final VideoSpatialIndex index = new VideoSpatialIndex();
+
+    @BeforeAll
+    public static void loadPoints() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= VIDEOS; id++) {
+            // Pola videa oko nekoliko gradova, ostatak ravnomerno po svetu
+            double lat;
+            double lon;
+            if (random.nextBoolean()) {
+                lat = 44.8 + random.nextGaussian() * 3;
+                lon = 20.4 + random.nextGaussian() * 3;
+            } else {
+                lat = random.nextDouble() * 170 - 85;
+                lon = random.nextDouble() * 360 - 180;
+            }
+            points.add(new VideoGeoPoint(id, lat, lon, "Video " + id, null, now, (long) random.nextInt(10_000), "user"));
+        }
+        index.load(points.stream());
+    }
+
+    @Test
+    public void indexMatchesLinearScan() {
+        double[][] boxes = {
+                {40, 15, 50, 25},
+                {-10.3, -70.7, 3.9, -55.1},
+                {-90, -180, 90, 180},
+                {44.8, 20.4, 44.8, 20.4}
+        };
+        for (double[] box : boxes) {
+            assertEquals(ids(scan(box)), ids(index.query(box[0], box[1], box[2], box[3])));
+        }
+    }
+
+    @Test
+    public void addAndRemoveUpdateQueries() {
+        VideoSpatialIndex small = new VideoSpatialIndex();
+        small.add(new VideoGeoPoint(1L, 45.0, 19.0, "a", null, null, 0L, null));
+        small.add(new VideoGeoPoint(2L, 45.1, 19.1, "b", null, null, 0L, null));
+        assertEquals(2, small.query(44, 18, 46, 20).size());
+
+        // Ponovno dodavanje istog id-ja premešta tačku
+        small.add(new VideoGeoPoint(2L, -30.0, 140.0, "b", null, null, 0L, null));
+        assertEquals(1, small.query(44, 18, 46, 20).size());
+        assertEquals(1, small.query(-31, 139, -29, 141).size());
+
+        small.remove(1L);
+        assertTrue(small.query(44, 18, 46, 20).isEmpty());
+        assertEquals(1, small.size());
+    }
+
+    @Test
+    public void pointOnSharedEdgeBelongsToOneTile() {
+        VideoSpatialIndex small = new VideoSpatialIndex();
+        small.add(new VideoGeoPoint(1L, 45.0, 20.0, "a", null, null, 0L, null));
+
+        // Granice su poluotvorene [min, max), kao kod klastera
+        assertTrue(small.query(44, 19, 45, 20).isEmpty());
+        assertTrue(small.query(45, 19, 46, 20).isEmpty());
+        assertTrue(small.query(44, 20, 45, 21).isEmpty());
+        assertEquals(1, small.query(45, 20, 46, 21).size());
+    }
+
+    @Test
+    public void clusterLevelsCoverAllPoints() {
+        for (int zoom = 0; zoom <= VideoClusterIndex.MAX_CLUSTER_ZOOM; zoom++) {
+            List<VideoMap> world = index.tile(zoom, TimePeriod.ALL_TIME, -90, -180, 90.0001, 180.0001);
+            long total = world.stream().mapToLong(VideoMap::getClusterSize).sum();
+            assertEquals(VIDEOS, total, "Zoom " + zoom + " mora da pokrije sve videe");
+        }
+    }
+
+    @Test
+    public void clustersFollowIncrementalUpdates() {
+        VideoSpatialIndex small = new VideoSpatialIndex();
+        small.load(List.of(
+                new VideoGeoPoint(1L, 45.0, 19.0, "a", null, null, 10L, null),
+                new VideoGeoPoint(2L, 45.2, 19.2, "b", null, null, 5L, null)).stream());
+
+        List<VideoMap> clusters = small.tile(3, TimePeriod.ALL_TIME, 40, 15, 50, 25);
+        assertEquals(1, clusters.size());
+        assertEquals(2, clusters.get(0).getClusterSize());
+        assertEquals(1L, clusters.get(0).getId());
+
+        small.add(new VideoGeoPoint(3L, 45.1, 19.1, "c", null, null, 50L, null));
+        clusters = small.tile(3, TimePeriod.ALL_TIME, 40, 15, 50, 25);
+        assertEquals(3, clusters.get(0).getClusterSize());
+        assertEquals(3L, clusters.get(0).getId());
+
+        small.addViews(Map.of(2L, 100L));
+        assertEquals(2L, small.tile(3, TimePeriod.ALL_TIME, 40, 15, 50, 25).get(0).getId());
+
+        small.remove(2L);
+        clusters = small.tile(3, TimePeriod.ALL_TIME, 40, 15, 50, 25);
+        assertEquals(2, clusters.get(0).getClusterSize());
+        assertEquals(3L, clusters.get(0).getId());
+        assertEquals(45.05, clusters.get(0).getLatitude(), 1e-9);
+
+        // Iznad MAX_CLUSTER_ZOOM tile vraća pojedinačne videe
+        assertEquals(2, small.tile(VideoClusterIndex.MAX_CLUSTER_ZOOM + 1, TimePeriod.ALL_TIME, 40, 15, 50, 25).size());
+    }
+
+    @Test
+    public void periodSectionsCountOnlyMatchingVideos() {
+        LocalDateTime now = LocalDateTime.now();
+        VideoSpatialIndex small = new VideoSpatialIndex();
+        small.load(List.of(
+                new VideoGeoPoint(1L, 45.0, 19.0, "a", null, now.minusDays(2), 10L, null),
+                new VideoGeoPoint(2L, 45.2, 19.2, "b", null, now.minusYears(2), 500L, null),
+                new VideoGeoPoint(3L, 45.1, 19.1, "c", null, null, 50L, null)).stream());
+
+        List<VideoMap> all = small.tile(3, TimePeriod.ALL_TIME, 40, 15, 50, 25);
+        assertEquals(3, all.get(0).getClusterSize());
+        assertEquals(2L, all.get(0).getId());
+
+        // Samo video iz poslednjih 30 dana: tačan broj, predstavnik i centroid
+        List<VideoMap> recent = small.tile(3, TimePeriod.LAST_30_DAYS, 40, 15, 50, 25);
+        assertEquals(1, recent.size());
+        assertEquals(1, recent.get(0).getClusterSize());
+        assertEquals(1L, recent.get(0).getId());
+        assertEquals(45.0, recent.get(0).getLatitude(), 1e-9);
+
+        small.add(new VideoGeoPoint(4L, 45.3, 19.3, "d", null, now, 20L, null));
+        recent = small.tile(3, TimePeriod.LAST_30_DAYS, 40, 15, 50, 25);
+        assertEquals(2, recent.get(0).getClusterSize());
+        assertEquals(4L, recent.get(0).getId());
+
+        small.remove(1L);
+        small.remove(4L);
+        assertTrue(small.tile(3, TimePeriod.LAST_30_DAYS, 40, 15, 50, 25).isEmpty());
+        assertEquals(2, small.tile(3, TimePeriod.ALL_TIME, 40, 15, 50, 25).get(0).getClusterSize());
+        assertTrue(small.tile(VideoClusterIndex.MAX_CLUSTER_ZOOM + 1, TimePeriod.LAST_30_DAYS, 40, 15, 50, 25).isEmpty());
+    }
+
+    @Test
+    public void benchmarkClusterLookupVsRegroup() {
+        System.out.println("=".repeat(80));
+        System.out.println("BENCHMARK: GOTOVI KLASTERI vs GRUPISANJE PO ZAHTEVU - " + VIDEOS + " videa");
+        System.out.println("=".repeat(80));
+
+        Random random = new Random(11);
+        for (int zoom : new int[] {0, 3, 6, 8}) {
+            double tileSize = BASE_TILE_SIZE / Math.pow(2, zoom / 3.0);
+            double segment = VideoClusterIndex.cellDegrees(zoom);
+            List<double[]> tiles = new ArrayList<>(QUERIES_PER_ZOOM);
+            for (int i = 0; i < QUERIES_PER_ZOOM; i++) {
+                // Tile-ovi oko gustog područja, gde je grupisanje najskuplje
+                int x = (int) Math.floor((20.4 + random.nextGaussian() * 3 + 180) / tileSize);
+                int y = (int) Math.floor((44.8 + random.nextGaussian() * 3 + 90) / tileSize);
+                tiles.add(new double[] {y * tileSize - 90, x * tileSize - 180,
+                        (y + 1) * tileSize - 90, (x + 1) * tileSize - 180});
+            }
+
+            long regroupStart = System.nanoTime();
+            long regrouped = 0;
+            for (double[] tile : tiles) {
+                // Stari put: sve tačke tile-a, pa grupisanje po String ključu ćelije
+                Map<String, List<VideoGeoPoint>> segments = new HashMap<>();
+                for (VideoGeoPoint point : index.query(tile[0], tile[1], tile[2], tile[3])) {
+                    String key = (int) Math.floor(point.getLongitude() / segment) + "_"
+                            + (int) Math.floor(point.getLatitude() / segment);
+                    segments.computeIfAbsent(key, k -> new ArrayList<>()).add(point);
+                }
+                regrouped += segments.size();
+            }
+            long regroupTime = System.nanoTime() - regroupStart;
+
+            long lookupStart = System.nanoTime();
+            long looked = 0;
+            for (double[] tile : tiles) {
+                looked += index.tile(zoom, TimePeriod.ALL_TIME, tile[0], tile[1], tile[2], tile[3]).size();
+            }
+            long lookupTime = System.nanoTime() - lookupStart;
+
+            System.out.println("\n--- ZOOM " + zoom + " (tile " + String.format("%.2f", tileSize) + "°, ćelija "
+                    + segment + "°) ---");
+            System.out.printf("Grupisanje:     %.3f ms/tile (%.1f klastera)\n",
+                    regroupTime / 1e6 / QUERIES_PER_ZOOM, regrouped / (double) QUERIES_PER_ZOOM);
+            System.out.printf("Klasteri:       %.3f ms/tile (%.1f klastera)\n",
+                    lookupTime / 1e6 / QUERIES_PER_ZOOM, looked / (double) QUERIES_PER_ZOOM);
+            System.out.printf("Ubrzanje:       %.2fx\n", regroupTime / (double) Math.max(1, lookupTime));
+        }
+        System.out.println("=".repeat(80));
+    }
+
+    @Test
+    public void benchmarkTileQueries() {
+        System.out.println("=".repeat(80));
+        System.out.println("BENCHMARK: PROSTORNI INDEKS vs LINEARNI SCAN - " + VIDEOS + " videa");
+        System.out.println("=".repeat(80));
+        System.out.println("Napomena: scan oponaša BETWEEN upit nad tabelom, bez round trip-a do baze");
+
+        Random random = new Random(7);
+        for (int zoom : new int[] {3, 6, 9}) {
+            double tileSize = BASE_TILE_SIZE / Math.pow(2, zoom / 3.0);
+            int tilesX = (int) Math.ceil(360 / tileSize);
+            int tilesY = (int) Math.ceil(180 / tileSize);
+
+            List<double[]> tiles = new ArrayList<>(QUERIES_PER_ZOOM);
+            for (int i = 0; i < QUERIES_PER_ZOOM; i++) {
+                int x = random.nextInt(tilesX);
+                int y = random.nextInt(tilesY);
+                tiles.add(new double[] {y * tileSize - 90, x * tileSize - 180,
+                        (y + 1) * tileSize - 90, (x + 1) * tileSize - 180});
+            }
+
+            List<List<VideoGeoPoint>> scanned = new ArrayList<>(QUERIES_PER_ZOOM);
+            long scanStart = System.nanoTime();
+            for (double[] tile : tiles) {
+                scanned.add(scan(tile));
+            }
+            long scanTime = System.nanoTime() - scanStart;
+
+            List<List<VideoGeoPoint>> indexed = new ArrayList<>(QUERIES_PER_ZOOM);
+            long indexStart = System.nanoTime();
+            for (double[] tile : tiles) {
+                indexed.add(index.query(tile[0], tile[1], tile[2], tile[3]));
+            }
+            long indexTime = System.nanoTime() - indexStart;
+            long found = indexed.stream().mapToLong(List::size).sum();
+
+            System.out.println("\n--- ZOOM " + zoom + " (tile " + tileSize + "°) ---");
+            System.out.printf("Linearni scan:  %.3f ms/tile\n", scanTime / 1e6 / QUERIES_PER_ZOOM);
+            System.out.printf("Indeks:         %.3f ms/tile\n", indexTime / 1e6 / QUERIES_PER_ZOOM);
+            System.out.printf("Prosek videa:   %.1f po tile-u\n", found / (double) QUERIES_PER_ZOOM);
+            System.out.printf("Ubrzanje:       %.2fx\n", scanTime / (double) Math.max(1, indexTime));
+
+            // Vreme je samo za log; proverava se da indeks vraća iste videe kao scan
+            for (int i = 0; i < QUERIES_PER_ZOOM; i++) {
+                assertEquals(ids(scanned.get(i)), ids(indexed.get(i)));
+            }
+        }
+        System.out.println("=".repeat(80));
+    }
+
+    private static List<VideoGeoPoint> scan(double[] box) {
+        List<VideoGeoPoint> result = new ArrayList<>();
+        for (VideoGeoPoint point : points) {
+            if (point.getLatitude() >= box[0] && point.getLatitude() < box[2]
+                    && point.getLongitude() >= box[1] && point.getLongitude() < box[3]) {
+                result.add(point);
+            }
+        }
+        return result;
+    }
+
+    private static List<Long> ids(List<VideoGeoPoint> result) {
+        return result.stream().map(VideoGeoPoint::getId).sorted(Comparator.naturalOrder()).toList();
+    }
+}
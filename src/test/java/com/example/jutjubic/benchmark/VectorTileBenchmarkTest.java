@@ -0,0 +1,114 @@
+package com.example.jutjubic.benchmark;
+
+import com.example.jutjubic.dto.VideoMap;
+import com.example.jutjubic.util.VectorTileCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VectorTileBenchmarkTest {
+
+    private static final int ITERATIONS = 200;
+    private static final double[] BOUNDS = {40.0, 15.0, 50.0, 25.0};
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule());
+
+    @Test
+    public void vectorTileRoundTrip() {
+        List<VideoMap> videos = randomTile(new Random(3), 500, 1);
+        List<VideoMap> decoded = VectorTileCodec.decode(VectorTileCodec.encode(videos, BOUNDS), BOUNDS);
+
+        List<VideoMap> expected = new ArrayList<>(videos);
+        expected.sort(Comparator.comparing(VideoMap::getId));
+        assertEquals(expected.size(), decoded.size());
+
+        // Greška kvantizacije je najviše pola ćelije mreže
+        double maxError = (BOUNDS[2] - BOUNDS[0]) / VectorTileCodec.EXTENT / 2 + 1e-9;
+        for (int i = 0; i < expected.size(); i++) {
+            VideoMap original = expected.get(i);
+            VideoMap copy = decoded.get(i);
+            assertEquals(original.getId(), copy.getId());
+            assertEquals(original.getTitle(), copy.getTitle());
+            assertEquals(original.getViewCount(), copy.getViewCount());
+            assertEquals(original.getClusterSize(), copy.getClusterSize());
+            assertEquals(original.getUploaderName(), copy.getUploaderName());
+            assertEquals(original.getUploadDate().toLocalDate(), copy.getUploadDate().toLocalDate());
+            assertEquals(original.getLatitude(), copy.getLatitude(), maxError);
+            assertEquals(original.getLongitude(), copy.getLongitude(), maxError);
+        }
+    }
+
+    @Test
+    public void benchmarkVectorTileVsJson() throws Exception {
+        System.out.println("=".repeat(80));
+        System.out.println("BENCHMARK: VEKTORSKI TILE vs JSON - " + ITERATIONS + " kodiranja po veličini");
+        System.out.println("=".repeat(80));
+
+        Random random = new Random(17);
+        for (int size : new int[] {20, 200, 2000}) {
+            List<VideoMap> videos = randomTile(random, size, size > 200 ? 1 : 40);
+
+            // Zagrevanje JIT-a pre merenja
+            for (int i = 0; i < 20; i++) {
+                objectMapper.writeValueAsBytes(videos);
+                VectorTileCodec.encode(videos, BOUNDS);
+            }
+
+            long jsonStart = System.nanoTime();
+            int jsonSize = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                jsonSize = objectMapper.writeValueAsBytes(videos).length;
+            }
+            long jsonTime = System.nanoTime() - jsonStart;
+
+            long vectorStart = System.nanoTime();
+            int vectorSize = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                vectorSize = VectorTileCodec.encode(videos, BOUNDS).length;
+            }
+            long vectorTime = System.nanoTime() - vectorStart;
+
+            System.out.println("\n--- " + size + " markera ---");
+            System.out.printf("JSON:      %8d bytes, %.3f ms/tile\n", jsonSize, jsonTime / 1e6 / ITERATIONS);
+            System.out.printf("Vektorski: %8d bytes, %.3f ms/tile\n", vectorSize, vectorTime / 1e6 / ITERATIONS);
+            System.out.printf("Veličina:  %.1f%% JSON-a\n", vectorSize * 100.0 / jsonSize);
+            System.out.println("Keširan vektorski tile se šalje bez kodiranja (0 ms/tile)");
+
+            assertTrue(vectorSize < jsonSize / 2, "Vektorski tile bi trebalo da bude bar duplo manji od JSON-a");
+        }
+        System.out.println("=".repeat(80));
+    }
+
+    // Klasteri (clusterSize > 1) na grubim zoom-ovima, pojedinačni videi na finim
+    private static List<VideoMap> randomTile(Random random, int size, int maxClusterSize) {
+        List<VideoMap> videos = new ArrayList<>(size);
+        LocalDateTime now = LocalDateTime.now();
+        long id = 1000;
+        for (int i = 0; i < size; i++) {
+            id += 1 + random.nextInt(50);
+            videos.add(new VideoMap(
+                    id,
+                    "Video snimak " + id,
+                    "uploads/thumbnails/" + id + "_thumbnail.jpg",
+                    BOUNDS[0] + random.nextDouble() * (BOUNDS[2] - BOUNDS[0]),
+                    BOUNDS[1] + random.nextDouble() * (BOUNDS[3] - BOUNDS[1]),
+                    now.minusDays(random.nextInt(700)),
+                    (long) random.nextInt(1_000_000),
+                    1 + random.nextInt(maxClusterSize),
+                    "korisnik" + random.nextInt(20)));
+        }
+        // Redosled kao u tile-u, ne po id-ju
+        Collections.shuffle(videos, random);
+        return videos;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.jutjubic.benchmark;
+
+import com.example.jutjubic.service.VideoStreamingService;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.UrlResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VideoStreamingBenchmarkTest {
+
+    private static final long FILE_SIZE = 16L * 1024 * 1024;
+    private static final int CLIENTS = 4;
+    private static final int SEEKS_PER_CLIENT = 10;
+    private static final long RANGE_SIZE = 1024 * 1024;
+
+    private static File videoFile;
+    private final VideoStreamingService streamingService = new VideoStreamingService();
+
+    @BeforeAll
+    public static void createVideoFile() throws IOException {
+        videoFile = File.createTempFile("stream-benchmark", ".mp4");
+        byte[] block = new byte[1024 * 1024];
+        new Random(42).nextBytes(block);
+        try (RandomAccessFile raf = new RandomAccessFile(videoFile, "rw")) {
+            for (long written = 0; written < FILE_SIZE; written += block.length) {
+                raf.write(block);
+            }
+        }
+    }
+
+    @AfterAll
+    public static void deleteVideoFile() {
+        videoFile.delete();
+    }
+
+    @Test
+    public void singleRangeReturnsPartialContent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=100-199");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        streamingService.stream(videoFile, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/" + FILE_SIZE, response.getHeader("Content-Range"));
+        assertEquals(100, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void multiRangeReturnsByteranges() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=0-9, 1000-1009, -10");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        streamingService.stream(videoFile, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        assertEquals(response.getContentLengthLong(), response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void unsatisfiableRangeReturns416() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=" + FILE_SIZE + "-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        streamingService.stream(videoFile, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */" + FILE_SIZE, response.getHeader("Content-Range"));
+    }
+
+    @Test
+    public void staleIfRangeFallsBackToFullFile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=0-99");
+        request.addHeader("If-Range", "\"stale\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        streamingService.stream(videoFile, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(FILE_SIZE, response.getContentLengthLong());
+    }
+
+    @Test
+    public void ifRangeDateMustMatchLastModifiedExactly() throws Exception {
+        long lastModified = videoFile.lastModified() / 1000 * 1000;
+
+        MockHttpServletRequest exact = new MockHttpServletRequest("HEAD", "/api/videos/1/stream");
+        exact.addHeader("Range", "bytes=0-99");
+        exact.addHeader("If-Range", lastModified);
+        MockHttpServletResponse exactResponse = new MockHttpServletResponse();
+        streamingService.stream(videoFile, exact, exactResponse);
+        assertEquals(206, exactResponse.getStatus());
+
+        // Kasniji datum nije potvrda da se fajl nije menjao
+        MockHttpServletRequest later = new MockHttpServletRequest("HEAD", "/api/videos/1/stream");
+        later.addHeader("Range", "bytes=0-99");
+        later.addHeader("If-Range", lastModified + 60_000);
+        MockHttpServletResponse laterResponse = new MockHttpServletResponse();
+        streamingService.stream(videoFile, later, laterResponse);
+        assertEquals(200, laterResponse.getStatus());
+        assertEquals(FILE_SIZE, laterResponse.getContentLengthLong());
+    }
+
+    // Meri vreme, pa ne ide u običan build: mvn test -Pbenchmark
+    @Test
+    @Tag("benchmark")
+    public void benchmarkConcurrentSeekingClients() throws Exception {
+        System.out.println("=".repeat(80));
+        System.out.println("BENCHMARK: RANGE STRIMING vs CEO FAJL - " + CLIENTS + " klijenata x "
+                + SEEKS_PER_CLIENT + " seek-ova, fajl " + FILE_SIZE / (1024 * 1024) + " MB");
+        System.out.println("=".repeat(80));
+
+        AtomicLong legacyBytes = new AtomicLong();
+        long legacyTime = runClients(seekOffset -> legacyBytes.addAndGet(legacyFullCopy()));
+
+        AtomicLong rangeBytes = new AtomicLong();
+        long rangeTime = runClients(seekOffset -> rangeBytes.addAndGet(rangeRequest(seekOffset)));
+
+        int totalSeeks = CLIENTS * SEEKS_PER_CLIENT;
+        System.out.println("\n--- STARI PUT (UrlResource, ceo fajl po seek-u) ---");
+        System.out.printf("Vreme:          %d ms (%.2f ms/seek)\n", legacyTime, legacyTime / (double) totalSeeks);
+        System.out.printf("Poslato:        %.2f MB\n", legacyBytes.get() / (1024.0 * 1024));
+
+        System.out.println("\n--- RANGE + transferTo ---");
+        System.out.printf("Vreme:          %d ms (%.2f ms/seek)\n", rangeTime, rangeTime / (double) totalSeeks);
+        System.out.printf("Poslato:        %.2f MB\n", rangeBytes.get() / (1024.0 * 1024));
+
+        System.out.printf("\nUbrzanje:       %.2fx\n", legacyTime / (double) Math.max(1, rangeTime));
+        System.out.println("=".repeat(80));
+
+        assertEquals((long) totalSeeks * RANGE_SIZE, rangeBytes.get());
+        assertEquals((long) totalSeeks * FILE_SIZE, legacyBytes.get());
+    }
+
+    private long runClients(SeekAction action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            final Random random = new Random(c);
+            futures.add(executor.submit(() -> {
+                for (int s = 0; s < SEEKS_PER_CLIENT; s++) {
+                    long offset = (long) (random.nextDouble() * (FILE_SIZE - RANGE_SIZE));
+                    action.seek(offset);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private long legacyFullCopy() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        try (InputStream in = new UrlResource(videoFile.toURI()).getInputStream()) {
+            in.transferTo(out);
+        }
+        return out.count;
+    }
+
+    private long rangeRequest(long offset) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=" + offset + "-" + (offset + RANGE_SIZE - 1));
+        CountingResponse response = new CountingResponse();
+
+        streamingService.stream(videoFile, request, response);
+
+        assertEquals(206, response.getStatus());
+        return response.out.count;
+    }
+
+    @FunctionalInterface
+    private interface SeekAction {
+        void seek(long offset) throws Exception;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    // Odgovor koji samo broji bajtove, da benchmark ne meri kopiranje u memorijski buffer
+    private static class CountingResponse extends MockHttpServletResponse {
+        final CountingOutputStream out = new CountingOutputStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+
+                @Override
+                public void write(int b) {
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    out.write(b, off, len);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.jutjubic.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountMinSketchTest {
+
+    @Test
+    public void estimateIsExactWithoutCollisions() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        for (int i = 0; i < 7; i++) {
+            sketch.add("10.0.0.1");
+        }
+        sketch.add("10.0.0.2");
+
+        assertEquals(7, sketch.estimate("10.0.0.1"));
+        assertEquals(1, sketch.estimate("10.0.0.2"));
+        assertEquals(0, sketch.estimate("10.0.0.3"));
+        assertEquals(8, sketch.totalCount());
+    }
+
+    @Test
+    public void estimateStaysWithinErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(4, 4096);
+        Map<String, Integer> exact = new HashMap<>();
+        Random random = new Random(3);
+
+        // Talas sa mnogo adresa: ukupno dodavanja je višestruko veće od širine
+        for (int i = 0; i < 200_000; i++) {
+            String ip = "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(4);
+            sketch.add(ip);
+            exact.merge(ip, 1, Integer::sum);
+        }
+
+        int bound = sketch.maxOverestimate();
+        assertEquals((int) Math.ceil(Math.E * 200_000 / 4096), bound);
+
+        int exceeded = 0;
+        for (Map.Entry<String, Integer> entry : exact.entrySet()) {
+            int estimate = sketch.estimate(entry.getKey());
+            // Nikad ne potcenjuje
+            assertTrue(estimate >= entry.getValue());
+            if (estimate - entry.getValue() > bound) {
+                exceeded++;
+            }
+        }
+        // Granica važi sa verovatnoćom 1 - e^-depth (~98% za depth 4)
+        assertTrue(exceeded <= exact.size() * 0.02, "Previše procena iznad granice: " + exceeded);
+    }
+
+    @Test
+    public void widthIsRoundedUpToPowerOfTwo() {
+        assertEquals(4 * 1024 * 4, new CountMinSketch(4, 1000).sizeInBytes());
+        assertEquals(2 * 1024 * 4, new CountMinSketch(2, 1024).sizeInBytes());
+    }
+
+    @Test
+    public void clearResetsCountersAndTotal() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("ip-" + i);
+        }
+        assertTrue(sketch.maxOverestimate() > 0);
+
+        sketch.clear();
+
+        assertEquals(0, sketch.estimate("ip-1"));
+        assertEquals(0, sketch.totalCount());
+        assertEquals(0, sketch.maxOverestimate());
+    }
+}